@@ -0,0 +1,61 @@
+package com.udacity.jdnd.course3.critter.config;
+
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+
+/**
+ * Keeps the rows read by read-only transactions out of the second-level and query caches, which every
+ * client shares: read from a lagging replica, they would be served stale to all clients, including those
+ * in their read-your-writes window, and make the next update of a cached entity fail its version check.
+ *
+ * Read-only transactions still read the caches, which are only filled from the primary. The store mode is
+ * set as a JPA property of the entity manager, since find applies that over the cache mode of the session,
+ * and restored afterwards, as an open-in-view entity manager runs several transactions.
+ */
+class ReadOnlyCacheModeJpaDialect extends HibernateJpaDialect {
+
+    private static final String STORE_MODE = "javax.persistence.cache.storeMode";
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition) throws SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        Object previousStoreMode = entityManager.getProperties().getOrDefault(STORE_MODE, CacheStoreMode.USE);
+        entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReadOnlyTransactionData(transactionData, entityManager, previousStoreMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (!(transactionData instanceof ReadOnlyTransactionData)) {
+            super.cleanupTransaction(transactionData);
+            return;
+        }
+        ReadOnlyTransactionData readOnly = (ReadOnlyTransactionData) transactionData;
+        if (readOnly.entityManager.isOpen()) {
+            readOnly.entityManager.setProperty(STORE_MODE, readOnly.previousStoreMode);
+        }
+        super.cleanupTransaction(readOnly.transactionData);
+    }
+
+    private static final class ReadOnlyTransactionData {
+
+        private final Object transactionData;
+
+        private final EntityManager entityManager;
+
+        private final Object previousStoreMode;
+
+        private ReadOnlyTransactionData(Object transactionData, EntityManager entityManager, Object previousStoreMode) {
+            this.transactionData = transactionData;
+            this.entityManager = entityManager;
+            this.previousStoreMode = previousStoreMode;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.udacity.jdnd.course3.critter.config;
+
+import com.udacity.jdnd.course3.critter.repository.PetRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends the read-only service transactions (the GET endpoints) to a read replica and everything
+ * else to the primary, once critter.datasource.replica.url is set. Without it the single
+ * spring.datasource pool is used as before.
+ *
+ * The primary pool is configured by spring.datasource and spring.datasource.hikari, the replica by
+ * critter.datasource.replica.url, username, password and hikari, with the primary's credentials as
+ * defaults. The only DataSource bean is the routing one in front of both pools, so Flyway, which
+ * runs outside of any transaction, migrates the primary, and every statement is counted once by
+ * StatementCountingDataSourcePostProcessor.
+ *
+ * Repository methods get no transaction of their own here: Spring Data would otherwise run them
+ * read-only and send the entities loaded for an update, and the in-memory indexes, to the replica.
+ * And Hibernate gives its connection back after every transaction instead of holding it for the
+ * whole open-in-view session, so each transaction of a request is routed on its own: a write after
+ * a read-only transaction must not reuse the replica connection.
+ *
+ * Read-only transactions do not fill the second-level and query caches, see ReadOnlyCacheModeJpaDialect.
+ */
+@Configuration
+@ConditionalOnProperty("critter.datasource.replica.url")
+@EnableJpaRepositories(basePackageClasses = PetRepository.class, enableDefaultTransactions = false)
+public class ReadWriteDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReadWritePools readWritePools(DataSourceProperties properties, Environment environment) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create(properties.getClassLoader())
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(environment.getRequiredProperty("critter.datasource.replica.url"))
+                .username(environment.getProperty("critter.datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("critter.datasource.replica.password", properties.determinePassword()))
+                .build();
+        binder.bind("critter.datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+
+        return new ReadWritePools(primary, replica);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransactionCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /**
+     * Replaces the dialect the transaction manager takes from the entity manager factory when it is initialized.
+     */
+    @Bean
+    public static BeanPostProcessor readOnlyCacheModeJpaDialectPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaTransactionManager) {
+                    ((JpaTransactionManager) bean).setJpaDialect(new ReadOnlyCacheModeJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ReadYourWritesWindow readYourWritesWindow(
+            @Value("${critter.datasource.read-your-writes-ms:2000}") long windowMillis) {
+        return new ReadYourWritesWindow(windowMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWritePools readWritePools, ReadYourWritesWindow readYourWritesWindow) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(readWritePools, readYourWritesWindow));
+    }
+}
@@ -0,0 +1,64 @@
+package com.udacity.jdnd.course3.critter.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The primary and replica connection pools behind ReadWriteRoutingDataSource, and their metrics:
+ * the hikaricp.* gauges of each pool, tagged with its pool name, and critter.datasource.connections,
+ * the connections handed out by the routing data source tagged with the pool and the route
+ * (read-write, read-only, or read-your-writes for read-only transactions kept on the primary).
+ *
+ * Not a DataSource itself, so only the routing data source in front of the pools is exposed as one,
+ * and its statements are counted once.
+ */
+class ReadWritePools implements MeterBinder, Closeable {
+
+    final HikariDataSource primary;
+
+    final HikariDataSource replica;
+
+    final LongAdder readWrite = new LongAdder();
+
+    final LongAdder readOnly = new LongAdder();
+
+    final LongAdder readYourWrites = new LongAdder();
+
+    ReadWritePools(HikariDataSource primary, HikariDataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (HikariDataSource pool : new HikariDataSource[]{primary, replica}) {
+            // Spring Boot may have bound the primary already, reached through the routing data source
+            if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        }
+        register(registry, readWrite, primary, "read-write");
+        register(registry, readOnly, replica, "read-only");
+        register(registry, readYourWrites, primary, "read-your-writes");
+    }
+
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+
+    private static void register(MeterRegistry registry, LongAdder count, HikariDataSource pool, String route) {
+        FunctionCounter.builder("critter.datasource.connections", count, LongAdder::doubleValue)
+                .description("Connections handed out by the read/write routing data source")
+                .tag("pool", pool.getPoolName())
+                .tag("route", route)
+                .register(registry);
+    }
+}
@@ -0,0 +1,96 @@
+package com.udacity.jdnd.course3.critter.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hands out connections of the replica pool to read-only transactions and of the primary pool to
+ * everything else, reads outside of a transaction included. A read-only transaction also uses the
+ * primary while the read-your-writes window of its client is open.
+ *
+ * The pool is chosen when the connection is first used, so this must sit behind a
+ * LazyConnectionDataSourceProxy: the transaction manager asks for the connection before the
+ * transaction is marked read-only.
+ *
+ * Every connection handed out is counted in ReadWritePools. The statements run on the primary are
+ * watched, and a transaction that inserted, updated or deleted rows opens the read-your-writes window
+ * of its client when it commits; one that only read on the primary does not.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Pool {
+        PRIMARY, REPLICA
+    }
+
+    private static final Set<QueryType> WRITES = EnumSet.of(QueryType.INSERT, QueryType.UPDATE, QueryType.DELETE);
+
+    private final ReadYourWritesWindow readYourWrites;
+
+    private final ReadWritePools pools;
+
+    ReadWriteRoutingDataSource(ReadWritePools pools, ReadYourWritesWindow readYourWrites) {
+        this.pools = pools;
+        this.readYourWrites = readYourWrites;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Pool.PRIMARY, ProxyDataSourceBuilder.create(pools.primary)
+                .name("primary-writes")
+                .afterQuery(this::afterPrimaryStatement)
+                .build());
+        targets.put(Pool.REPLICA, pools.replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(pools.primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pools.readWrite.increment();
+            return Pool.PRIMARY;
+        }
+        if (readYourWrites.isOpen()) {
+            pools.readYourWrites.increment();
+            return Pool.PRIMARY;
+        }
+        pools.readOnly.increment();
+        return Pool.REPLICA;
+    }
+
+    /**
+     * Has the write recorded once the current transaction commits, if the statement changed rows.
+     * Writes outside of a Spring transaction, like Flyway's migrations, are not recorded.
+     */
+    private void afterPrimaryStatement(ExecutionInfo execution, List<QueryInfo> queries) {
+        if (!execution.isSuccess() || !TransactionSynchronizationManager.isSynchronizationActive()
+                || queries.stream().noneMatch(query -> WRITES.contains(QueryUtils.getQueryType(query.getQuery())))) {
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof WriteRecorder) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new WriteRecorder());
+    }
+
+    private final class WriteRecorder implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            readYourWrites.recordWrite();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.udacity.jdnd.course3.critter.config;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the reads of a client on the primary for a while after it wrote, so it sees its own writes
+ * even when the replica lags behind.
+ *
+ * Within an HTTP request, every read after a committed write goes to the primary. The response carries
+ * a cookie with the end of the window, and later requests presenting it read from the primary until
+ * then; an end further away than the window is ignored, so a client cannot pin itself to the primary.
+ * Outside of a request the window is kept per thread, and cleared once it has passed. A window of 0 only
+ * keeps the rest of the writing request on the primary.
+ */
+public class ReadYourWritesWindow {
+
+    static final String COOKIE = "critter-read-primary-until";
+
+    private static final String WROTE = ReadYourWritesWindow.class.getName() + ".wrote";
+
+    private final long windowMillis;
+
+    private final ThreadLocal<Long> openUntil = new ThreadLocal<>();
+
+    public ReadYourWritesWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Opens the window of the current client; called once a transaction that wrote has committed.
+     */
+    public void recordWrite() {
+        long until = System.currentTimeMillis() + windowMillis;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            if (windowMillis > 0) {
+                openUntil.set(until);
+            }
+            return;
+        }
+        attributes.setAttribute(WROTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        if (windowMillis > 0 && response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) TimeUnit.MILLISECONDS.toSeconds(windowMillis + 999));
+            response.addCookie(cookie);
+        }
+    }
+
+    /**
+     * @return whether the current client wrote recently enough that it must read from the primary
+     */
+    public boolean isOpen() {
+        long now = System.currentTimeMillis();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            Long until = openUntil.get();
+            if (until != null && until <= now) {
+                openUntil.remove();
+                return false;
+            }
+            return until != null;
+        }
+        if (attributes.getAttribute(WROTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            return true;
+        }
+        Cookie cookie = WebUtils.getCookie(((ServletRequestAttributes) attributes).getRequest(), COOKIE);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            long until = Long.parseLong(cookie.getValue());
+            return until > now && until <= now + windowMillis;
+        } catch (NumberFormatException exception) {
+            return false;
+        }
+    }
+}
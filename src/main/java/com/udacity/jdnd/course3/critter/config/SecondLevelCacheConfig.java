@@ -0,0 +1,24 @@
+package com.udacity.jdnd.course3.critter.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Gives Hibernate's second-level cache a Caffeine JCache manager of its own.
+ *
+ * Caching providers share one manager per class loader, so two application contexts in the same
+ * JVM (as in the tests, each with its own database) would otherwise read each other's entities.
+ * Hibernate closes the manager when the EntityManagerFactory shuts down. Regions, sizes and TTLs
+ * are configured in application.conf.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer jcacheCacheManagerCustomizer() {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, new CaffeineCachingProvider().getCacheManager());
+    }
+}
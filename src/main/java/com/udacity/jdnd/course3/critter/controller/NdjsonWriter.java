@@ -0,0 +1,43 @@
+package com.udacity.jdnd.course3.critter.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a response as newline delimited JSON (one DTO per line) while the DTOs are produced,
+ * so a list endpoint never has to hold the whole result in memory.
+ */
+@Component
+public class NdjsonWriter {
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param response response to write to
+     * @param producer called once with a sink; every object passed to the sink is written as one line
+     */
+    public void write(HttpServletResponse response, Consumer<Consumer<Object>> producer) throws IOException {
+        response.setContentType(APPLICATION_NDJSON);
+        try (SequenceWriter lines = objectMapper.writer().withRootValueSeparator("\n").writeValues(response.getOutputStream())) {
+            producer.accept(dto -> {
+                try {
+                    lines.write(dto);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.udacity.jdnd.course3.critter.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers 409 Conflict when the @Version column of a pet, customer or employee shows that another
+ * request updated it between this request's read and its write. The client reads it again and retries.
+ *
+ * Schedules retry on their own through OptimisticRetry and only get here as ScheduleVersionConflictException.
+ */
+@ControllerAdvice
+public class OptimisticLockingAdvice {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticLockingAdvice.class);
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public void handleConcurrentUpdate(OptimisticLockingFailureException exception, HttpServletResponse response) throws IOException {
+        log.debug("Concurrent update rejected", exception);
+        // sendError renders the same error body as the @ResponseStatus exceptions
+        response.sendError(HttpStatus.CONFLICT.value(), "The entity was updated concurrently, read it again and retry.");
+    }
+}
@@ -2,16 +2,21 @@ package com.udacity.jdnd.course3.critter.controller;
 
 import com.udacity.jdnd.course3.critter.request.PetRequest;
 import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.PetType;
 import com.udacity.jdnd.course3.critter.exceptions.MissingInfoException;
+import com.udacity.jdnd.course3.critter.mapper.PetMapper;
 import com.udacity.jdnd.course3.critter.service.PetService;
 import com.udacity.jdnd.course3.critter.service.UserService;
 import com.udacity.jdnd.course3.critter.exceptions.CustomerNotFoundException;
 import com.udacity.jdnd.course3.critter.exceptions.PetNotFoundException;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.ArrayList;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,14 +27,18 @@ import java.util.Optional;
 @RequestMapping("/pet")
 public class PetController {
 
-    private static final String []  PROPERTIES_TO_IGNORE_ON_COPY = { "id" };
-
     @Autowired
     PetService petService;
 
     @Autowired
     UserService userService;
 
+    @Autowired
+    NdjsonWriter ndjsonWriter;
+
+    @Autowired
+    PetMapper petMapper;
+
     @PostMapping("/{ownerId}")
     public PetRequest updatePet(@PathVariable(name="ownerId") Long ownerId, @RequestBody PetRequest petRequest){
         petRequest.setOwnerId(ownerId);
@@ -45,51 +54,78 @@ public class PetController {
         Pet p = petService.getPet(Long.valueOf(petId)).orElseGet(Pet::new);
 
         // copy user input to the existing pet
-        BeanUtils.copyProperties(petRequest, p, PROPERTIES_TO_IGNORE_ON_COPY);
+        petMapper.copyToEntity(petRequest, p);
 
         // save the pet to the owner.
         p = petService.save(p, petRequest.getOwnerId());
 
         // return the updated DTO
-        PetRequest dto = new PetRequest();
-        BeanUtils.copyProperties(p, dto);
-        dto.setOwnerId(p.getOwner().getId());
-        return dto;
+        return petMapper.toDTO(p);
     }
 
+    /**
+     * Answers 304 Not Modified, reading only the version of the pet, when If-None-Match holds its current ETag.
+     */
     @GetMapping("/{petId}")
-    public PetRequest getPet(@PathVariable long petId) throws PetNotFoundException {
-        PetRequest dto = new PetRequest();
-        Pet p = petService.getPet(petId).orElseThrow(() -> new PetNotFoundException("ID: " + petId));
-        BeanUtils.copyProperties(p, dto);
-        dto.setOwnerId(p.getOwner().getId());
-        return dto;
+    public PetRequest getPet(@PathVariable long petId, WebRequest request) throws PetNotFoundException {
+        long version = petService.findVersion(petId).orElseThrow(() -> new PetNotFoundException("ID: " + petId));
+        if (request.checkNotModified(VersionETags.of(version))) {
+            return null;
+        }
+        // an update in between only means the next request gets the body again
+        return getPet(petId);
+    }
+
+    public PetRequest getPet(long petId) throws PetNotFoundException {
+        return petService.getPetRequest(petId).orElseThrow(() -> new PetNotFoundException("ID: " + petId));
     }
 
     @GetMapping
     public List<PetRequest> getPets(){
-        List<Pet> pets = petService.getAllPets();
-        return copyPetsToPetsDTO(pets);
+        return petService.getAllPets();
     }
 
-    @GetMapping("/owner/{ownerId}")
-    public List<PetRequest> getPetsByOwner(@PathVariable long ownerId) {
-        List<Pet> pets = petService.findPetByOwner(Long.valueOf(ownerId));
-        return copyPetsToPetsDTO(pets);
+    @GetMapping(params = "limit")
+    public List<PetRequest> getPetsPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        return petService.getPetsAfter(after, limit);
     }
 
-    private List<PetRequest> copyPetsToPetsDTO(List<Pet> pets) {
-        List<PetRequest> dtos = new ArrayList<>();
-        pets.forEach(pet -> {
-            dtos.add(new PetRequest(
-                    pet.getId().longValue(),
-                    pet.getType(),
-                    pet.getName(),
-                    pet.getOwner().getId().longValue(),
-                    pet.getBirthDate(),
-                    pet.getNotes()));
-        });
-
-        return dtos;
+    /**
+     * Finds pets by type, birth date range and name prefix. Every filter is optional; results are
+     * paged like GET /pet?after=&limit=, by passing the last id received as the next after.
+     * A name prefix search is sorted by name, a birth date search by birth date, any other by id.
+     * Names are matched case-sensitively.
+     *
+     * @param bornFrom earliest birth date (pets at most some age)
+     * @param bornTo latest birth date (pets at least some age)
+     */
+    @GetMapping("/search")
+    public List<PetRequest> searchPets(@RequestParam(required = false) PetType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornTo,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        return petService.searchPets(type, bornFrom, bornTo, namePrefix, after, limit);
+    }
+
+    /**
+     * Finds pets by words of their notes, e.g. "diabetic" or "bites".
+     *
+     * @return pet ids, best match first
+     */
+    @GetMapping("/notes/search")
+    public List<Long> searchNotes(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return petService.searchNotes(q, limit);
+    }
+
+    @GetMapping("/stream")
+    public void streamPets(HttpServletResponse response) throws IOException {
+        ndjsonWriter.write(response, sink -> petService.forEachPet(sink::accept));
+    }
+
+    @GetMapping("/owner/{ownerId}")
+    public List<PetRequest> getPetsByOwner(@PathVariable long ownerId) {
+        return petService.findPetRequestsByOwner(ownerId);
     }
 }
@@ -1,16 +1,29 @@
 package com.udacity.jdnd.course3.critter.controller;
 
+import com.udacity.jdnd.course3.critter.entity.Employee;
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.request.ScheduleBatchResult;
 import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
 import com.udacity.jdnd.course3.critter.entity.Schedule;
 import com.udacity.jdnd.course3.critter.exceptions.*;
+import com.udacity.jdnd.course3.critter.mapper.ScheduleMapper;
+import com.udacity.jdnd.course3.critter.service.EmployeeAssignmentService;
+import com.udacity.jdnd.course3.critter.service.Keyset;
+import com.udacity.jdnd.course3.critter.service.OptimisticRetry;
 import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleOccurrence;
 import com.udacity.jdnd.course3.critter.service.ScheduleService;
 import com.udacity.jdnd.course3.critter.service.UserService;
 import com.udacity.jdnd.course3.critter.service.ValidationService;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,8 +34,6 @@ import java.util.stream.Collectors;
 @RequestMapping("/schedule")
 public class ScheduleController {
 
-    private static final String []  PROPERTIES_TO_IGNORE_ON_COPY = { "id" };
-
     @Autowired
     ScheduleService scheduleService;
 
@@ -35,58 +46,383 @@ public class ScheduleController {
     @Autowired
     ValidationService validationService;
 
+    @Autowired
+    NdjsonWriter ndjsonWriter;
+
+    @Autowired
+    ScheduleMapper scheduleMapper;
+
+    @Autowired
+    EmployeeAssignmentService employeeAssignmentService;
+
+    @Autowired
+    OptimisticRetry optimisticRetry;
+
+    // most schedules one plan request may hold, so the solver's input stays within what its time budget covers
+    @Value("${critter.solver.max-plan-size:5000}")
+    int maxPlanSize;
+
+    public ScheduleRequest createSchedule(ScheduleRequest scheduleRequest)
+            throws EmployeeNotFoundException, PetNotFoundException,
+            MissingInfoException, ScheduleConflictException, InvalidScheduleTimeException {
+        return createSchedule(scheduleRequest, false);
+    }
+
+    /**
+     * @param autoAssign pick the employees instead of taking employeeIds from the request
+     * @throws ScheduleConflictException if no available employees can take the schedule
+     */
     @PostMapping
-    public ScheduleRequest createSchedule(@RequestBody ScheduleRequest scheduleRequest)
+    public ScheduleRequest createSchedule(@RequestBody ScheduleRequest scheduleRequest,
+                                          @RequestParam(defaultValue = "false") boolean autoAssign)
             throws EmployeeNotFoundException, PetNotFoundException,
-            MissingInfoException {
+            MissingInfoException, ScheduleConflictException, InvalidScheduleTimeException {
+
+        if (autoAssign) {
+            scheduleRequest.setEmployeeIds(assignEmployees(Collections.singletonList(scheduleRequest)).get(0));
+            if (scheduleRequest.getEmployeeIds().isEmpty() && canBeAssigned(scheduleRequest)) {
+                throw new ScheduleConflictException(noEmployeesAvailable(scheduleRequest));
+            }
+        }
 
         validationService.validatePOJOAttributesNotNullOrEmpty(scheduleRequest);
 
-        Schedule s = scheduleService.findSchedule(scheduleRequest.getId()).orElseGet(Schedule::new);
+        // an update applies the request again to the latest version if another request saved the schedule first
+        return optimisticRetry.run("Schedule " + scheduleRequest.getId(), () -> {
+            Schedule s = scheduleService.findSchedule(scheduleRequest.getId()).orElseGet(Schedule::new);
 
-        s.setDate(scheduleRequest.getDate());
-        s.setActivities(scheduleRequest.getActivities());
-        s.setEmployees(userService.findAllEmployees(scheduleRequest.getEmployeeIds()));
-        s.setPets(petService.findPets(scheduleRequest.getPetIds()));
+            scheduleMapper.copyToEntity(scheduleRequest, s);
+            s.setEmployees(userService.findAllEmployees(scheduleRequest.getEmployeeIds()));
+            s.setPets(petService.findPets(scheduleRequest.getPetIds()));
 
-        s = scheduleService.save(s);
+            return copyScheduleToDTO(scheduleService.save(s));
+        });
+    }
+
+    /**
+     * Creates many new schedules at once. All items are validated first, every referenced pet and
+     * employee is fetched in one pass, and the valid schedules are inserted in a single batched
+     * transaction. Invalid items are reported individually and do not stop the others.
+     *
+     * @return one result per request item, in request order
+     */
+    @PostMapping("/batch")
+    public List<ScheduleBatchResult> createSchedules(@RequestBody List<ScheduleRequest> scheduleRequests) {
+        List<ScheduleBatchResult> results = new ArrayList<>(scheduleRequests.size());
+        Set<Long> petIds = new HashSet<>();
+        Set<Long> employeeIds = new HashSet<>();
+        for (int i = 0; i < scheduleRequests.size(); i++) {
+            ScheduleRequest request = scheduleRequests.get(i);
+            String error = null;
+            try {
+                validationService.validatePOJOAttributesNotNullOrEmpty(request);
+                if (request.getId() != 0) {
+                    error = "Batch creation only accepts new schedules, got ID: " + request.getId();
+                }
+            } catch (MissingInfoException exception) {
+                error = exception.getMessage();
+            }
+            if (error == null) {
+                petIds.addAll(request.getPetIds());
+                employeeIds.addAll(request.getEmployeeIds());
+            }
+            results.add(new ScheduleBatchResult(i, null, error));
+        }
+
+        Map<Long, Pet> pets = petService.findPetsById(petIds);
+        Map<Long, Employee> employees = userService.findEmployeesById(employeeIds);
+
+        List<Schedule> schedules = new ArrayList<>();
+        List<ScheduleBatchResult> accepted = new ArrayList<>();
+        for (ScheduleBatchResult result : results) {
+            if (result.getError() != null) {
+                continue;
+            }
+            ScheduleRequest request = scheduleRequests.get(result.getIndex());
+            String missingPets = missingIds(request.getPetIds(), pets);
+            String missingEmployees = missingIds(request.getEmployeeIds(), employees);
+            if (!missingPets.isEmpty()) {
+                result.setError("Could not find pet(s) with id(s): " + missingPets);
+            } else if (!missingEmployees.isEmpty()) {
+                result.setError("Could not find employee(s) with id(s): " + missingEmployees);
+            } else {
+                Schedule s = new Schedule();
+                scheduleMapper.copyToEntity(request, s);
+                s.setEmployees(request.getEmployeeIds().stream().distinct().map(employees::get).collect(Collectors.toList()));
+                s.setPets(request.getPetIds().stream().distinct().map(pets::get).collect(Collectors.toList()));
+                schedules.add(s);
+                accepted.add(result);
+            }
+        }
+
+        // items whose employees or pets are already booked at that time are rejected one by one
+        Iterator<Schedule> saved = scheduleService.saveAll(schedules,
+                (index, exception) -> accepted.get(index).setError(exception.getMessage())).iterator();
+        for (ScheduleBatchResult result : accepted) {
+            if (result.getError() == null) {
+                result.setSchedule(copyScheduleToDTO(saved.next()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Picks the employees of many schedules at once. Every schedule gets employees that together
+     * have all its activities, work on its date, are free for its time and have room left that day,
+     * with the work spread as evenly as possible. The search is bounded by critter.solver.time-budget-ms.
+     *
+     * @param save also create the planned schedules, as POST /schedule/batch does
+     * @return one result per request item, in request order, holding the planned (or created) schedule or the reason it has none
+     * @throws PlanTooLargeException if the request holds more than critter.solver.max-plan-size schedules
+     */
+    @PostMapping("/plan")
+    public List<ScheduleBatchResult> planSchedules(@RequestBody List<ScheduleRequest> scheduleRequests,
+                                                   @RequestParam(defaultValue = "false") boolean save)
+            throws PlanTooLargeException {
+        if (scheduleRequests.size() > maxPlanSize) {
+            throw new PlanTooLargeException("A plan holds at most " + maxPlanSize + " schedules, got " + scheduleRequests.size());
+        }
+        List<List<Long>> employeeIds = assignEmployees(scheduleRequests);
+        List<ScheduleBatchResult> results = new ArrayList<>(scheduleRequests.size());
+        List<ScheduleRequest> planned = new ArrayList<>();
+        List<ScheduleBatchResult> plannedResults = new ArrayList<>();
+        for (int i = 0; i < scheduleRequests.size(); i++) {
+            ScheduleRequest request = scheduleRequests.get(i);
+            request.setEmployeeIds(employeeIds.get(i));
+            String error = null;
+            if (request.getEmployeeIds().isEmpty() && canBeAssigned(request)) {
+                error = noEmployeesAvailable(request);
+            } else {
+                try {
+                    validationService.validatePOJOAttributesNotNullOrEmpty(request);
+                } catch (MissingInfoException exception) {
+                    error = exception.getMessage();
+                }
+            }
+            ScheduleBatchResult result = new ScheduleBatchResult(i, error == null ? request : null, error);
+            results.add(result);
+            if (error == null) {
+                planned.add(request);
+                plannedResults.add(result);
+            }
+        }
 
-        return copyScheduleToDTO(s);
+        if (save) {
+            List<ScheduleBatchResult> created = createSchedules(planned);
+            for (int i = 0; i < created.size(); i++) {
+                plannedResults.get(i).setSchedule(created.get(i).getSchedule());
+                plannedResults.get(i).setError(created.get(i).getError());
+            }
+        }
+        return results;
     }
 
+    /**
+     * Answers 304 Not Modified, reading only the schedule versions, when If-None-Match holds the current ETag of the list.
+     */
     @GetMapping
+    public List<ScheduleRequest> getAllSchedules(WebRequest request) {
+        if (request.checkNotModified(VersionETags.ofList(scheduleService.findAllScheduleVersions()))) {
+            return null;
+        }
+        return getAllSchedules();
+    }
+
     public List<ScheduleRequest> getAllSchedules() {
         List<Schedule> schedules = scheduleService.findAllSchedules();
         return copyScheduleToDTO(schedules);
     }
 
+    @GetMapping(params = "limit")
+    public List<ScheduleRequest> getSchedulesPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        return copyScheduleToDTO(scheduleService.findSchedulesAfter(after, limit));
+    }
+
+    @GetMapping("/stream")
+    public void streamSchedules(HttpServletResponse response) throws IOException {
+        ndjsonWriter.write(response, sink ->
+                scheduleService.forEachScheduleChunk(chunk -> copyScheduleToDTO(chunk).forEach(sink)));
+    }
+
+    /**
+     * Cancels one occurrence of a recurring schedule. To move an occurrence, cancel it and create a single schedule.
+     *
+     * @return the recurring schedule
+     */
+    @DeleteMapping("/{scheduleId}/occurrence/{date}")
+    public ScheduleRequest cancelOccurrence(@PathVariable long scheduleId,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date)
+            throws ScheduleNotFoundException {
+        return optimisticRetry.run("Schedule " + scheduleId,
+                () -> copyScheduleToDTO(scheduleService.cancelOccurrence(scheduleId, date)));
+    }
+
+    /**
+     * Lists the occurrences of the schedules of a pet by date, then schedule id, at most limit (and
+     * Keyset.MAX_LIMIT) of them. The next page is read with the last date received as from and the
+     * last schedule id as after.
+     *
+     * Answers 304 Not Modified, reading only the schedule versions, when If-None-Match holds the current
+     * ETag of the list. An empty list is always read in full, so an unknown pet still gets 404.
+     */
     @GetMapping("/pet/{petId}")
-    public List<ScheduleRequest> getScheduleForPet(@PathVariable long petId) throws PetNotFoundException {
-        return copyScheduleToDTO(scheduleService.findSchedulesForPet(petId));
+    public List<ScheduleRequest> getScheduleForPet(@PathVariable long petId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "" + Keyset.MAX_LIMIT) int limit,
+            WebRequest request) throws PetNotFoundException {
+        List<Object[]> versions = scheduleService.findScheduleVersionsForPet(petId, from, to);
+        if (!versions.isEmpty() && request.checkNotModified(VersionETags.ofList(versions))) {
+            return null;
+        }
+        return getScheduleForPet(petId, from, to, after, limit);
+    }
+
+    public List<ScheduleRequest> getScheduleForPet(long petId, LocalDate from, LocalDate to) throws PetNotFoundException {
+        return getScheduleForPet(petId, from, to, 0, Keyset.MAX_LIMIT);
     }
 
+    public List<ScheduleRequest> getScheduleForPet(long petId, LocalDate from, LocalDate to, long after, int limit)
+            throws PetNotFoundException {
+        return copyOccurrencesToDTO(scheduleService.findSchedulesForPet(petId, from, to, after, limit));
+    }
+
+    /**
+     * Lists the occurrences of the schedules of an employee, paged like GET /schedule/pet/{petId}.
+     *
+     * Answers 304 Not Modified, reading only the schedule versions, when If-None-Match holds the current
+     * ETag of the list. An empty list is always read in full, so an unknown employee still gets 404.
+     */
     @GetMapping("/employee/{employeeId}")
-    public List<ScheduleRequest> getScheduleForEmployee(@PathVariable long employeeId) throws EmployeeNotFoundException {
-        return copyScheduleToDTO(scheduleService.findSchedulesForEmployee(employeeId));
+    public List<ScheduleRequest> getScheduleForEmployee(@PathVariable long employeeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "" + Keyset.MAX_LIMIT) int limit,
+            WebRequest request) throws EmployeeNotFoundException {
+        List<Object[]> versions = scheduleService.findScheduleVersionsForEmployee(employeeId, from, to);
+        if (!versions.isEmpty() && request.checkNotModified(VersionETags.ofList(versions))) {
+            return null;
+        }
+        return getScheduleForEmployee(employeeId, from, to, after, limit);
     }
 
+    public List<ScheduleRequest> getScheduleForEmployee(long employeeId, LocalDate from, LocalDate to) throws EmployeeNotFoundException {
+        return getScheduleForEmployee(employeeId, from, to, 0, Keyset.MAX_LIMIT);
+    }
+
+    public List<ScheduleRequest> getScheduleForEmployee(long employeeId, LocalDate from, LocalDate to, long after, int limit)
+            throws EmployeeNotFoundException {
+        return copyOccurrencesToDTO(scheduleService.findSchedulesForEmployee(employeeId, from, to, after, limit));
+    }
+
+    /**
+     * Lists the occurrences of the schedules of all pets of a customer, paged like GET /schedule/pet/{petId}.
+     *
+     * Answers 304 Not Modified, reading only the schedule versions, when If-None-Match holds the current
+     * ETag of the list. An empty list is always read in full, so an unknown customer still gets 404.
+     */
     @GetMapping("/customer/{customerId}")
-    public List<ScheduleRequest> getScheduleForCustomer(@PathVariable long customerId) throws CustomerNotFoundException {
-        return copyScheduleToDTO(scheduleService.findSchedulesForCustomer(customerId));
+    public List<ScheduleRequest> getScheduleForCustomer(@PathVariable long customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "" + Keyset.MAX_LIMIT) int limit,
+            WebRequest request) throws CustomerNotFoundException {
+        List<Object[]> versions = scheduleService.findScheduleVersionsForCustomer(customerId, from, to);
+        if (!versions.isEmpty() && request.checkNotModified(VersionETags.ofList(versions))) {
+            return null;
+        }
+        return getScheduleForCustomer(customerId, from, to, after, limit);
+    }
+
+    public List<ScheduleRequest> getScheduleForCustomer(long customerId, LocalDate from, LocalDate to) throws CustomerNotFoundException {
+        return getScheduleForCustomer(customerId, from, to, 0, Keyset.MAX_LIMIT);
+    }
+
+    public List<ScheduleRequest> getScheduleForCustomer(long customerId, LocalDate from, LocalDate to, long after, int limit)
+            throws CustomerNotFoundException {
+        return copyOccurrencesToDTO(scheduleService.findSchedulesForCustomer(customerId, from, to, after, limit));
+    }
+
+    private List<List<Long>> assignEmployees(List<ScheduleRequest> scheduleRequests) {
+        List<Schedule> schedules = new ArrayList<>(scheduleRequests.size());
+        for (ScheduleRequest request : scheduleRequests) {
+            Schedule s = new Schedule();
+            scheduleMapper.copyToEntity(request, s);
+            schedules.add(s);
+        }
+        return employeeAssignmentService.assignEmployees(schedules);
+    }
+
+    // a request the solver could have worked on, so no employees means none are available
+    private static boolean canBeAssigned(ScheduleRequest request) {
+        return request.getDate() != null && request.getActivities() != null && !request.getActivities().isEmpty()
+                && request.getStartTime() != null && request.getEndTime() != null
+                && request.getStartTime().isBefore(request.getEndTime());
+    }
+
+    private static String noEmployeesAvailable(ScheduleRequest request) {
+        return "No available employees for " + request.getActivities() + " on " + request.getDate()
+                + " between " + request.getStartTime() + " and " + request.getEndTime() + ".";
     }
 
+    private static String missingIds(List<Long> ids, Map<Long, ?> found) {
+        return ids.stream()
+                .distinct()
+                .filter(id -> !found.containsKey(id))
+                .map(String::valueOf)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Converts schedules to DTOs without touching their lazy employee, pet and exception date collections.
+     * The ids of all schedules are read with one query per join table instead of two per schedule,
+     * and the exception dates with one more query when some schedules recur.
+     */
     private List<ScheduleRequest> copyScheduleToDTO(List<Schedule> schedules) {
+        List<Long> scheduleIds = schedules.stream().map(Schedule::getId).collect(Collectors.toList());
+        Map<Long, List<Long>> employeeIds = scheduleService.findEmployeeIdsBySchedule(scheduleIds);
+        Map<Long, List<Long>> petIds = scheduleService.findPetIdsBySchedule(scheduleIds);
+        Map<Long, Set<LocalDate>> exceptionDates = scheduleService.findExceptionDatesBySchedule(recurringIds(schedules));
         return schedules
                 .stream()
-                .map(s -> { return copyScheduleToDTO(s); })
+                .map(s -> scheduleMapper.toDTO(s,
+                        employeeIds.getOrDefault(s.getId(), new ArrayList<>()),
+                        petIds.getOrDefault(s.getId(), new ArrayList<>()),
+                        exceptionDates.getOrDefault(s.getId(), new TreeSet<>())))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Converts occurrences to DTOs dated on the occurrence, reading the employee and pet ids once per schedule.
+     */
+    private List<ScheduleRequest> copyOccurrencesToDTO(List<ScheduleOccurrence> occurrences) {
+        Set<Long> scheduleIds = occurrences.stream().map(o -> o.getSchedule().getId()).collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, List<Long>> employeeIds = scheduleService.findEmployeeIdsBySchedule(scheduleIds);
+        Map<Long, List<Long>> petIds = scheduleService.findPetIdsBySchedule(scheduleIds);
+        List<ScheduleRequest> dtos = new ArrayList<>(occurrences.size());
+        for (ScheduleOccurrence occurrence : occurrences) {
+            Schedule s = occurrence.getSchedule();
+            ScheduleRequest dto = scheduleMapper.toDTO(s,
+                    employeeIds.getOrDefault(s.getId(), new ArrayList<>()),
+                    petIds.getOrDefault(s.getId(), new ArrayList<>()),
+                    occurrence.getExceptionDates());
+            dto.setDate(occurrence.getDate());
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    private static List<Long> recurringIds(List<Schedule> schedules) {
+        return schedules.stream().filter(s -> s.getRecurrence() != null).map(Schedule::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Converts a schedule whose employees and pets are already loaded, such as one that was just saved.
+     */
     private ScheduleRequest copyScheduleToDTO(Schedule s) {
-        ScheduleRequest dto = new ScheduleRequest();
-        BeanUtils.copyProperties(s, dto);
-        s.getEmployees().forEach(employee -> {dto.getEmployeeIds().add(employee.getId());});
-        s.getPets().forEach(pet -> {dto.getPetIds().add(pet.getId());});
-        return dto;
+        return scheduleMapper.toDTO(s);
     }
 }
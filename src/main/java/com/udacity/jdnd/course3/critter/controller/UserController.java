@@ -1,22 +1,31 @@
 package com.udacity.jdnd.course3.critter.controller;
 
 import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import com.udacity.jdnd.course3.critter.request.EmployeeAvailabilityRangeRequest;
 import com.udacity.jdnd.course3.critter.request.EmployeeRequest;
 import com.udacity.jdnd.course3.critter.request.EmployeeRequestDTO;
 import com.udacity.jdnd.course3.critter.entity.Customer;
 import com.udacity.jdnd.course3.critter.entity.Employee;
 import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.exceptions.CustomerNotFoundException;
+import com.udacity.jdnd.course3.critter.exceptions.InvalidDateRangeException;
 import com.udacity.jdnd.course3.critter.exceptions.MissingInfoException;
 import com.udacity.jdnd.course3.critter.exceptions.PetNotFoundException;
+import com.udacity.jdnd.course3.critter.mapper.CustomerMapper;
+import com.udacity.jdnd.course3.critter.mapper.EmployeeMapper;
 import com.udacity.jdnd.course3.critter.service.PetService;
 import com.udacity.jdnd.course3.critter.service.UserService;
 import com.udacity.jdnd.course3.critter.exceptions.EmployeeNotFoundException;
 import com.udacity.jdnd.course3.critter.service.ValidationService;
-import org.springframework.beans.BeanUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.transaction.Transactional;
+import java.io.IOException;
 import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,7 +39,8 @@ import java.util.stream.Collectors;
 @RequestMapping("/user")
 public class UserController {
 
-    private static final String []  PROPERTIES_TO_IGNORE_ON_COPY = { "id" };
+    // longest date range one availability request may cover
+    private static final int MAX_AVAILABILITY_RANGE_DAYS = 366;
 
     private UserService userService;
 
@@ -38,17 +48,27 @@ public class UserController {
 
     private ValidationService validationService;
 
-    public UserController(UserService userService, PetService petService, ValidationService validationService) {
+    private NdjsonWriter ndjsonWriter;
+
+    private CustomerMapper customerMapper;
+
+    private EmployeeMapper employeeMapper;
+
+    public UserController(UserService userService, PetService petService, ValidationService validationService,
+                          NdjsonWriter ndjsonWriter, CustomerMapper customerMapper, EmployeeMapper employeeMapper) {
         this.userService = userService;
         this.petService = petService;
         this.validationService = validationService;
+        this.ndjsonWriter = ndjsonWriter;
+        this.customerMapper = customerMapper;
+        this.employeeMapper = employeeMapper;
     }
 
     @PostMapping("/customer")
     public CustomerRequest saveCustomer(@RequestBody CustomerRequest customerRequest){
         Long id = Optional.ofNullable(customerRequest.getId()).orElse(Long.valueOf(-1));
         Customer c = userService.findCustomerById(id).orElseGet(Customer::new);
-        BeanUtils.copyProperties(customerRequest, c, PROPERTIES_TO_IGNORE_ON_COPY);
+        customerMapper.copyToEntity(customerRequest, c);
         List<Long> petIds = Optional.ofNullable(customerRequest.getPetIds()).orElseGet(ArrayList::new);
         c = userService.save(c, petIds);
         return copyCustomerToDTO(c);
@@ -56,26 +76,66 @@ public class UserController {
 
     @GetMapping("/customer")
     public List<CustomerRequest> getAllCustomers(){
-        List<Customer> customers = userService.getAllCustomers();
-        return copyCustomersToDTOs(customers);
+        return addPetIds(userService.getAllCustomers());
+    }
+
+    @GetMapping(value = "/customer", params = "limit")
+    public List<CustomerRequest> getCustomersPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        return addPetIds(userService.getCustomersAfter(after, limit));
+    }
+
+    @GetMapping("/customer/stream")
+    public void streamCustomers(HttpServletResponse response) throws IOException {
+        ndjsonWriter.write(response, sink ->
+                userService.forEachCustomerChunk(chunk -> addPetIds(chunk).forEach(sink)));
+    }
+
+    /**
+     * Finds customers by words of their notes.
+     *
+     * @return customer ids, best match first
+     */
+    @GetMapping("/customer/notes/search")
+    public List<Long> searchCustomerNotes(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return userService.searchCustomerNotes(q, limit);
+    }
+
+    @GetMapping("/customer/{customerId}")
+    public CustomerRequest getCustomer(@PathVariable long customerId) throws CustomerNotFoundException {
+        CustomerRequest customer = userService.findCustomerRequest(customerId)
+                .orElseThrow(() -> new CustomerNotFoundException("ID: " + customerId));
+        return addPetIds(Collections.singletonList(customer)).get(0);
     }
 
     @GetMapping("/customer/pet/{petId}")
     public CustomerRequest getOwnerByPet(@PathVariable long petId) throws PetNotFoundException{
-        Pet p = petService.getPet(petId).orElseThrow(() -> new PetNotFoundException("ID: " + petId));
-        return copyCustomerToDTO(p.getOwner());
+        CustomerRequest owner = userService.findOwnerRequestByPetId(petId)
+                .orElseThrow(() -> new PetNotFoundException("ID: " + petId));
+        return addPetIds(Collections.singletonList(owner)).get(0);
     }
 
     @PostMapping("/employee")
     public EmployeeRequest saveEmployee(@RequestBody EmployeeRequest employeeRequest) {
         Employee e = userService.findEmployee(employeeRequest.getId()).orElseGet(Employee::new);
-        BeanUtils.copyProperties(employeeRequest, e, PROPERTIES_TO_IGNORE_ON_COPY);
+        employeeMapper.copyToEntity(employeeRequest, e);
         e = userService.save(e);
         return copyEmployeeToDTO(e);
     }
 
+    /**
+     * Answers 304 Not Modified, reading only the version of the employee, when If-None-Match holds its current ETag.
+     */
     @GetMapping("/employee/{employeeId}")
-    public EmployeeRequest getEmployee(@PathVariable long employeeId) throws EmployeeNotFoundException {
+    public EmployeeRequest getEmployee(@PathVariable long employeeId, WebRequest request) throws EmployeeNotFoundException {
+        long version = userService.findEmployeeVersion(employeeId)
+                .orElseThrow(() -> new EmployeeNotFoundException("ID: " + employeeId));
+        if (request.checkNotModified(VersionETags.of(version))) {
+            return null;
+        }
+        return getEmployee(employeeId);
+    }
+
+    public EmployeeRequest getEmployee(long employeeId) throws EmployeeNotFoundException {
         Employee e = userService.findEmployee(employeeId).orElseThrow(() -> new EmployeeNotFoundException("ID: " + employeeId));
         return copyEmployeeToDTO(e);
     }
@@ -86,11 +146,23 @@ public class UserController {
         return employees.stream().map((e) -> {return copyEmployeeToDTO(e);}).collect(Collectors.toList());
     }
 
+    @GetMapping(value = "/employees", params = "limit")
+    public List<EmployeeRequest> getEmployeesPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        return userService.findEmployeesAfter(after, limit).stream().map(this::copyEmployeeToDTO).collect(Collectors.toList());
+    }
+
+    @GetMapping("/employees/stream")
+    public void streamEmployees(HttpServletResponse response) throws IOException {
+        ndjsonWriter.write(response, sink ->
+                userService.forEachEmployeeChunk(chunk -> chunk.stream().map(this::copyEmployeeToDTO).forEach(sink)));
+    }
+
     @Transactional
     @PutMapping("/employee/{employeeId}")
     public void setAvailability(@RequestBody Set<DayOfWeek> daysAvailable, @PathVariable long employeeId) throws EmployeeNotFoundException {
         Employee e = userService.findEmployee(employeeId).orElseThrow(() -> new EmployeeNotFoundException("ID: " + employeeId));
         e.setDaysAvailable(daysAvailable);
+        // saving through the service also refreshes the in-memory availability index
         userService.save(e);
     }
 
@@ -101,28 +173,41 @@ public class UserController {
         return employees.stream().map(this::copyEmployeeToDTO).collect(Collectors.toList());
     }
 
+    /**
+     * Finds the employees available for the skills on every day of a date range (both ends included),
+     * in one pass instead of one availability request per day.
+     *
+     * @return ids of the available employees keyed by date, for every date of the range
+     */
+    @GetMapping("/employee/availability/range")
+    public SortedMap<LocalDate, List<Long>> findEmployeesForServiceInRange(@RequestBody EmployeeAvailabilityRangeRequest rangeRequest)
+            throws MissingInfoException, InvalidDateRangeException {
+        validationService.validatePOJOAttributesNotNullOrEmpty(rangeRequest);
+        long days = ChronoUnit.DAYS.between(rangeRequest.getFrom(), rangeRequest.getTo()) + 1;
+        if (days < 1 || days > MAX_AVAILABILITY_RANGE_DAYS) {
+            throw new InvalidDateRangeException("Date range must cover 1 to " + MAX_AVAILABILITY_RANGE_DAYS
+                    + " days, got " + rangeRequest.getFrom() + " to " + rangeRequest.getTo());
+        }
+        return userService.findEmployeeIdsAvailable(rangeRequest.getSkills(), rangeRequest.getFrom(), rangeRequest.getTo());
+    }
+
     private EmployeeRequest copyEmployeeToDTO(Employee employee) {
-        EmployeeRequest dto = new EmployeeRequest();
-        BeanUtils.copyProperties(employee, dto);
-        return dto;
+        return employeeMapper.toDTO(employee);
     }
 
     private CustomerRequest copyCustomerToDTO(Customer c){
-        CustomerRequest dto = new CustomerRequest();
-        BeanUtils.copyProperties(c, dto);
-        c.getPets().forEach( pet -> {
-            dto.getPetIds().add(pet.getId());
-        });
-        return dto;
-    }
-
-    private List<CustomerRequest> copyCustomersToDTOs (List<Customer> customers) {
-        List dtos = new ArrayList<CustomerRequest>();
-        // convert to DTO
-        customers.forEach( c -> {
-            dtos.add(this.copyCustomerToDTO((Customer)c));
-        });
-        return dtos;
+        return customerMapper.toDTO(c, c.getPets().stream().map(Pet::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * Sets the pet ids of customers read as DTOs, with one query for all of them
+     * instead of initializing each customer's lazy pets collection.
+     */
+    private List<CustomerRequest> addPetIds(List<CustomerRequest> customers) {
+        Map<Long, List<Long>> petIds = userService.findPetIdsByOwner(
+                customers.stream().map(CustomerRequest::getId).collect(Collectors.toList()));
+        customers.forEach(c -> c.setPetIds(petIds.getOrDefault(c.getId(), new ArrayList<>())));
+        return customers;
     }
 
 }
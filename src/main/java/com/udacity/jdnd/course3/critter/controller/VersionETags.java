@@ -0,0 +1,33 @@
+package com.udacity.jdnd.course3.critter.controller;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.util.List;
+
+/**
+ * Strong ETags computed from entity versions, so a conditional GET is answered by reading versions
+ * instead of the entities.
+ *
+ * A single entity is tagged with its version. A list is tagged with its size and a hash of the id and
+ * version of every entity in it, so adding, removing or updating any of them changes the tag.
+ */
+final class VersionETags {
+
+    private VersionETags() {}
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param versions rows of [Long id, Long version] in a stable order
+     */
+    static String ofList(List<Object[]> versions) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Object[] row : versions) {
+            hasher.putLong((Long) row[0]).putLong((Long) row[1]);
+        }
+        return "\"" + versions.size() + "-" + hasher.hash() + "\"";
+    }
+}
@@ -6,8 +6,11 @@ import com.fasterxml.jackson.annotation.JsonView;
 import com.udacity.jdnd.course3.critter.filter.Views;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.LazyCollection;
 import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -21,11 +24,16 @@ public class Customer extends User {
 
     private String phoneNumber;
 
+    // loaded on first access (bytecode enhancement), like the notes of pets
+    @Basic(fetch = FetchType.LAZY)
     @Column(length=5000)
     private String notes;
 
+    // the pet owns the link, so adding a pet changes the version of the pet, not of the customer
     @OneToMany(fetch=FetchType.LAZY, cascade = CascadeType.ALL, mappedBy = "owner", orphanRemoval = true)
     @LazyCollection(LazyCollectionOption.TRUE)
+    @OptimisticLock(excluded = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer-pets")
     @JsonIgnoreProperties("owner")
     @JsonManagedReference
     private List<Pet> pets = new ArrayList<>();
@@ -0,0 +1,12 @@
+package com.udacity.jdnd.course3.critter.entity;
+
+import javax.persistence.Converter;
+import java.time.DayOfWeek;
+
+@Converter
+public class DayOfWeekSetConverter extends EnumSetConverter<DayOfWeek> {
+
+    public DayOfWeekSetConverter() {
+        super(DayOfWeek.class);
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.LazyCollection;
 import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.time.DayOfWeek;
@@ -16,26 +17,22 @@ import java.util.Set;
 @Entity
 @Getter
 @Setter
-@Table(name="employee")
+@Table(name="employee", indexes = @Index(name = "idx_employee_skills_days", columnList = "skills, days_available"))
 public class Employee extends User {
 
-    @ElementCollection
-    @CollectionTable(
-            name="employee_skill",
-            joinColumns = @JoinColumn(name="id"), uniqueConstraints = @UniqueConstraint(columnNames = {"ID", "SKILL"}))
-    @Column(name="skill")
+    @Convert(converter = EmployeeSkillSetConverter.class)
+    @Column(name="skills")
     private Set<EmployeeSkill> skills;
 
-    @ElementCollection
-    @CollectionTable(
-            name="day_of_week",
-            joinColumns = @JoinColumn(name="id"), uniqueConstraints = @UniqueConstraint(columnNames = {"ID", "DAY"}))
-    @Column(name="day")
+    @Convert(converter = DayOfWeekSetConverter.class)
+    @Column(name="days_available")
     private Set<DayOfWeek> daysAvailable;
 
+    // the schedule owns the link, so booking the employee does not change its version
     @ManyToMany(
             mappedBy = "employees")
     @LazyCollection(LazyCollectionOption.TRUE)
+    @OptimisticLock(excluded = true)
     @JsonManagedReference
     @JsonIgnoreProperties("schedules")
     private List<Schedule> schedulesList = new ArrayList<>();
@@ -0,0 +1,11 @@
+package com.udacity.jdnd.course3.critter.entity;
+
+import javax.persistence.Converter;
+
+@Converter
+public class EmployeeSkillSetConverter extends EnumSetConverter<EmployeeSkill> {
+
+    public EmployeeSkillSetConverter() {
+        super(EmployeeSkill.class);
+    }
+}
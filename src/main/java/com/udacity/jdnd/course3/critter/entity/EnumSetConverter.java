@@ -0,0 +1,32 @@
+package com.udacity.jdnd.course3.critter.entity;
+
+import com.udacity.jdnd.course3.critter.index.EnumMask;
+
+import javax.persistence.AttributeConverter;
+import java.util.Set;
+
+/**
+ * Stores a set of enum constants as a single integer column, one bit per ordinal.
+ *
+ * A null set is stored as 0, like an empty one, so the column always holds the mask the in-memory
+ * indexes use: a NULL would never match the IN lists of mask values that the SQL queries test.
+ * Old rows may still hold NULL, which is read as null.
+ */
+public abstract class EnumSetConverter<E extends Enum<E>> implements AttributeConverter<Set<E>, Integer> {
+
+    private final Class<E> type;
+
+    protected EnumSetConverter(Class<E> type) {
+        this.type = type;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(Set<E> values) {
+        return EnumMask.of(values);
+    }
+
+    @Override
+    public Set<E> convertToEntityAttribute(Integer mask) {
+        return mask == null ? null : EnumMask.toSet(mask, type);
+    }
+}
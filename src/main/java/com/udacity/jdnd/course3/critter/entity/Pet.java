@@ -5,12 +5,16 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.udacity.jdnd.course3.critter.filter.Views;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.LazyCollection;
 import org.hibernate.annotations.LazyCollectionOption;
 import org.hibernate.annotations.Nationalized;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -18,7 +22,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "pet")
+@Table(name = "pet", indexes = {
+        @Index(name = "idx_pet_customer", columnList = "customer_id"),
+        @Index(name = "idx_pet_type_birth_date", columnList = "type, birthDate"),
+        @Index(name = "idx_pet_birth_date", columnList = "birthDate, id"),
+        @Index(name = "idx_pet_name", columnList = "name, id")})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet")
 @Getter
 @Setter
 public class Pet {
@@ -26,6 +36,11 @@ public class Pet {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    // incremented by every update; also the ETag of the pet in GET /pet/{petId}
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     private PetType type;
 
     private String name;
@@ -39,12 +54,16 @@ public class Pet {
 
     private LocalDate birthDate;
 
+    // loaded on first access (bytecode enhancement), so lists of pets do not carry up to 5000 characters each
+    @Basic(fetch = FetchType.LAZY)
     @Column(length=5000)
     private String notes;
 
+    // the schedule owns the link, so booking the pet does not change its version
     @ManyToMany(
             mappedBy = "pets")
     @LazyCollection(LazyCollectionOption.TRUE)
+    @OptimisticLock(excluded = true)
     @JsonManagedReference
     @JsonIgnoreProperties("schedules")
     private List<Schedule> schedules = new ArrayList<>();
@@ -0,0 +1,22 @@
+package com.udacity.jdnd.course3.critter.entity;
+
+/**
+ * How often a recurring schedule repeats. A schedule repeating WEEKLY from a Tuesday takes place every Tuesday.
+ */
+public enum Recurrence {
+    DAILY(1),
+    WEEKLY(7);
+
+    private final int days;
+
+    Recurrence(int days) {
+        this.days = days;
+    }
+
+    /**
+     * @return number of days between two occurrences when repeating every interval periods
+     */
+    public long period(int interval) {
+        return (long) days * interval;
+    }
+}
@@ -4,7 +4,7 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.udacity.jdnd.course3.critter.filter.Views;
-import lombok.Data;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.LazyCollection;
@@ -12,25 +12,50 @@ import org.hibernate.annotations.LazyCollectionOption;
 
 import javax.persistence.*;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Set;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
 
 @Entity
 @Getter
 @Setter
-@Table(name="schedule")
+@Table(name="schedule", indexes = @Index(name = "idx_schedule_date", columnList = "date"))
 public class Schedule {
 
+    /**
+     * Bounds of a schedule booked for the whole day. LocalTime has no 24:00, so the day ends at 23:59:59.
+     */
+    public static final LocalTime DAY_START = LocalTime.MIDNIGHT;
+
+    public static final LocalTime DAY_END = LocalTime.of(23, 59, 59);
+
+    /**
+     * A series ends at most this many years after its first date, which bounds the occurrences a read or
+     * the solver walks through: a daily series has at most 3653.
+     */
+    public static final int MAX_RECURRENCE_YEARS = 10;
+
+    // pooled sequence: one round trip hands out 50 ids, which lets bulk inserts be JDBC batched
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "schedule_seq")
+    @SequenceGenerator(name = "schedule_seq", sequenceName = "schedule_seq", allocationSize = 50)
     private Long id;
 
+    // incremented by every update, including changes of its employees, pets and exception dates;
+    // the ETags of the schedule lists are computed from the versions of their schedules
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @ManyToMany
     @LazyCollection(LazyCollectionOption.TRUE)
     @JoinTable(
             name = "schedule_employee",
             joinColumns = { @JoinColumn(name = "schedule_id")},
-            inverseJoinColumns = { @JoinColumn(name = "employee_id")}
+            inverseJoinColumns = { @JoinColumn(name = "employee_id")},
+            indexes = {
+                    @Index(name = "idx_schedule_employee_schedule", columnList = "schedule_id, employee_id"),
+                    @Index(name = "idx_schedule_employee_employee", columnList = "employee_id, schedule_id")}
     )
     @JsonBackReference
     @JsonIgnoreProperties("schedules")
@@ -41,7 +66,10 @@ public class Schedule {
     @JoinTable(
             name = "schedule_pet",
             joinColumns = { @JoinColumn(name = "schedule_id")},
-            inverseJoinColumns = { @JoinColumn(name = "pet_id")}
+            inverseJoinColumns = { @JoinColumn(name = "pet_id")},
+            indexes = {
+                    @Index(name = "idx_schedule_pet_schedule", columnList = "schedule_id, pet_id"),
+                    @Index(name = "idx_schedule_pet_pet", columnList = "pet_id, schedule_id")}
     )
     @JsonBackReference
     @JsonIgnoreProperties("schedules")
@@ -49,13 +77,101 @@ public class Schedule {
 
     private LocalDate date;
 
-    @ElementCollection
-    @CollectionTable(
-            name="schedule_activities",
-            joinColumns = @JoinColumn(name="id"))//, uniqueConstraints = @UniqueConstraint(columnNames = {"ID", "SKILL"}))
+    // the employees and pets are booked from startTime (inclusive) to endTime (exclusive) on the date
+    @Column(name = "start_time")
+    private LocalTime startTime = DAY_START;
+
+    @Column(name = "end_time")
+    private LocalTime endTime = DAY_END;
+
+    @Convert(converter = EmployeeSkillSetConverter.class)
     @Column(name="activities")
     private Set<EmployeeSkill> activities;
 
+    // a recurring schedule is one row standing for an occurrence every recurrenceInterval days or weeks
+    // from date to recurrenceUntil, except on its exception dates; null for a single schedule
+    private Recurrence recurrence;
+
+    @Column(name = "recurrence_interval")
+    private int recurrenceInterval = 1;
+
+    @Column(name = "recurrence_until")
+    private LocalDate recurrenceUntil;
+
+    @ElementCollection
+    @CollectionTable(name = "schedule_exception", joinColumns = @JoinColumn(name = "schedule_id"))
+    @Column(name = "date")
+    private Set<LocalDate> exceptionDates = new HashSet<>();
+
+    // date of the last occurrence, so date range queries match series without knowing about recurrence
+    @Column(name = "last_date")
+    @Setter(AccessLevel.NONE)
+    private LocalDate lastDate;
+
+    @PrePersist
+    @PreUpdate
+    void updateLastDate() {
+        lastDate = lastOccurrence();
+    }
+
+    /**
+     * Finds the last date the schedule takes place on: the last occurrence on or before recurrenceUntil
+     * that is not cancelled by an exception date. Only the cancelled dates at the end of the series are visited.
+     *
+     * @return the last occurrence, or the date itself for a single schedule or a series without a valid end
+     */
+    public LocalDate lastOccurrence() {
+        if (recurrence == null || recurrenceUntil == null || recurrenceUntil.isBefore(date) || recurrenceInterval < 1) {
+            return date;
+        }
+        long period = recurrence.period(recurrenceInterval);
+        LocalDate last = date.plusDays(ChronoUnit.DAYS.between(date, recurrenceUntil) / period * period);
+        while (last.isAfter(date) && exceptionDates != null && exceptionDates.contains(last)) {
+            last = last.minusDays(period);
+        }
+        return last;
+    }
+
+    /**
+     * Lists the dates of the occurrences between from and to (both included) in order, computing each
+     * one when it is reached. The first one is found arithmetically, so earlier occurrences are never visited.
+     *
+     * @param cancelled dates on which the schedule does not take place, usually its exception dates
+     */
+    public Iterator<LocalDate> occurrencesBetween(LocalDate from, LocalDate to, Set<LocalDate> cancelled) {
+        LocalDate last = recurrence == null || recurrenceUntil == null ? date : recurrenceUntil;
+        LocalDate end = last.isBefore(to) ? last : to;
+        long period = recurrence == null ? 1 : recurrence.period(recurrenceInterval);
+        LocalDate first = date;
+        if (from.isAfter(date)) {
+            long periods = (ChronoUnit.DAYS.between(date, from) + period - 1) / period;
+            first = date.plusDays(periods * period);
+        }
+        LocalDate start = first;
+        return new Iterator<LocalDate>() {
+            private LocalDate next = skipCancelled(start);
+
+            @Override
+            public boolean hasNext() {
+                return !next.isAfter(end);
+            }
 
+            @Override
+            public LocalDate next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                LocalDate occurrence = next;
+                next = skipCancelled(occurrence.plusDays(period));
+                return occurrence;
+            }
 
+            private LocalDate skipCancelled(LocalDate candidate) {
+                while (!candidate.isAfter(end) && cancelled.contains(candidate)) {
+                    candidate = candidate.plusDays(period);
+                }
+                return candidate;
+            }
+        };
+    }
 }
@@ -2,8 +2,11 @@ package com.udacity.jdnd.course3.critter.entity;
 
 import com.fasterxml.jackson.annotation.JsonView;
 import com.udacity.jdnd.course3.critter.filter.Views;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Nationalized;
 
 import javax.persistence.*;
@@ -11,6 +14,8 @@ import javax.persistence.*;
 @Entity
 @Table(name = "user")
 @Inheritance(strategy = InheritanceType.JOINED)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 @Getter
 @Setter
 public class User {
@@ -18,6 +23,11 @@ public class User {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    // incremented by every update; also the ETag of the employee in GET /user/employee/{employeeId}
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @Column(length=500)
     private String name;
 }
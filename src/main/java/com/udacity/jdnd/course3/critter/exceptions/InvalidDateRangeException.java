@@ -0,0 +1,15 @@
+package com.udacity.jdnd.course3.critter.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class InvalidDateRangeException extends RuntimeException {
+
+    public InvalidDateRangeException() {
+    }
+
+    public InvalidDateRangeException(String message) {
+        super(message);
+    }
+}
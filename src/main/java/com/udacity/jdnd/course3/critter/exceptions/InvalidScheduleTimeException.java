@@ -0,0 +1,15 @@
+package com.udacity.jdnd.course3.critter.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class InvalidScheduleTimeException extends RuntimeException {
+
+    public InvalidScheduleTimeException() {
+    }
+
+    public InvalidScheduleTimeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.udacity.jdnd.course3.critter.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.PAYLOAD_TOO_LARGE)
+public class PlanTooLargeException extends RuntimeException {
+
+    public PlanTooLargeException() {
+    }
+
+    public PlanTooLargeException(String message) {
+        super(message);
+    }
+}
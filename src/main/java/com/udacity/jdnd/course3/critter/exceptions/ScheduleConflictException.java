@@ -0,0 +1,15 @@
+package com.udacity.jdnd.course3.critter.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class ScheduleConflictException extends RuntimeException {
+
+    public ScheduleConflictException() {
+    }
+
+    public ScheduleConflictException(String message) {
+        super(message);
+    }
+}
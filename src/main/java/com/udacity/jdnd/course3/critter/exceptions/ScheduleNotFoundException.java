@@ -0,0 +1,15 @@
+package com.udacity.jdnd.course3.critter.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.NOT_FOUND)
+public class ScheduleNotFoundException extends RuntimeException {
+
+    public ScheduleNotFoundException() {
+    }
+
+    public ScheduleNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,171 @@
+package com.udacity.jdnd.course3.critter.index;
+
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.repository.EmployeeManagedRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of employee skills and availability used to answer
+ * "which employees have ALL these skills on this day" without a database round trip.
+ *
+ * Each employee is stored as a pair of bitmasks (skills and days available) and every day
+ * of the week keeps a posting list of the employees available on it. A lookup scans only the
+ * posting list of the requested day and tests the skill mask with a single AND.
+ *
+ * The index is loaded once the application is ready and kept current by UserService.save(Employee).
+ * Changes made inside a transaction are seen by that transaction only until it commits, see PendingChanges.
+ */
+@Component
+public class EmployeeAvailabilityIndex {
+
+    /**
+     * Immutable snapshot of one employee so skills and days are always read as a consistent pair.
+     */
+    private static final class Entry {
+        private final int skills;
+        private final int days;
+
+        private Entry(int skills, int days) {
+            this.skills = skills;
+            this.days = days;
+        }
+
+        private boolean has(int requiredSkills, int day) {
+            return (days & day) != 0 && (skills & requiredSkills) == requiredSkills;
+        }
+    }
+
+    /**
+     * Receives the skills and days of one employee as bitmasks.
+     */
+    @FunctionalInterface
+    public interface EmployeeMasks {
+        void accept(long employeeId, int skills, int days);
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<DayOfWeek, Set<Long>> postings = new EnumMap<>(DayOfWeek.class);
+
+    @Autowired
+    EmployeeManagedRepository employeeManagedRepository;
+
+    public EmployeeAvailabilityIndex() {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            postings.put(day, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Loads the skills and availability of every employee from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        entries.clear();
+        postings.values().forEach(Set::clear);
+        for (Object[] row : employeeManagedRepository.findAllEmployeeAvailability()) {
+            put((Long) row[0], new Entry(EnumMask.of((Set<EmployeeSkill>) row[1]), EnumMask.of((Set<DayOfWeek>) row[2])));
+        }
+    }
+
+    /**
+     * Records the current skills and availability of an employee.
+     *
+     * @param employeeId id of a persisted employee
+     * @param skills skills of the employee, may be null
+     * @param daysAvailable days the employee works, may be null
+     */
+    public void update(Long employeeId, Set<EmployeeSkill> skills, Set<DayOfWeek> daysAvailable) {
+        PendingChanges.put(this, employeeId, new Entry(EnumMask.of(skills), EnumMask.of(daysAvailable)), this::apply);
+    }
+
+    /**
+     * Find employee IDs of the employees that have ALL the skills requested and work on the given day.
+     *
+     * @param skills skills every returned employee must have
+     * @param dayOfWeek day the employees must be available
+     * @return ids in ascending order
+     */
+    public List<Long> findEmployeeIdsWithAllSkillsOnDay(Set<EmployeeSkill> skills, DayOfWeek dayOfWeek) {
+        int required = EnumMask.of(skills);
+        int day = EnumMask.bit(dayOfWeek);
+        Map<Long, Entry> pending = PendingChanges.of(this);
+        List<Long> ids = new ArrayList<>();
+        for (Long id : postings.get(dayOfWeek)) {
+            // an employee changed by this transaction is tested with its pending entry below
+            Entry entry = pending.containsKey(id) ? null : entries.get(id);
+            if (entry != null && entry.has(required, day)) {
+                ids.add(id);
+            }
+        }
+        pending.forEach((id, entry) -> {
+            if (entry.has(required, day)) {
+                ids.add(id);
+            }
+        });
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Find the employees that have ALL the skills requested, grouped by the days they work,
+     * with a single pass over the index.
+     *
+     * @param skills skills every returned employee must have
+     * @return ids in ascending order for every day of the week; days nobody works map to an empty list
+     */
+    public Map<DayOfWeek, List<Long>> findEmployeeIdsWithAllSkillsByDay(Set<EmployeeSkill> skills) {
+        int required = EnumMask.of(skills);
+        Map<DayOfWeek, List<Long>> ids = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            ids.put(day, new ArrayList<>());
+        }
+        forEachEmployee((id, employeeSkills, days) -> {
+            if ((employeeSkills & required) != required) {
+                return;
+            }
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((days & EnumMask.bit(day)) != 0) {
+                    ids.get(day).add(id);
+                }
+            }
+        });
+        ids.values().forEach(Collections::sort);
+        return ids;
+    }
+
+    /**
+     * Passes the skills and days of every employee to the action.
+     */
+    public void forEachEmployee(EmployeeMasks action) {
+        Map<Long, Entry> pending = PendingChanges.of(this);
+        entries.forEach((id, entry) -> {
+            if (!pending.containsKey(id)) {
+                action.accept(id, entry.skills, entry.days);
+            }
+        });
+        pending.forEach((id, entry) -> action.accept(id, entry.skills, entry.days));
+    }
+
+    private synchronized void apply(Map<Long, Entry> changes) {
+        changes.forEach(this::put);
+    }
+
+    private void put(Long employeeId, Entry entry) {
+        entries.put(employeeId, entry);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((entry.days & EnumMask.bit(day)) != 0) {
+                postings.get(day).add(employeeId);
+            } else {
+                postings.get(day).remove(employeeId);
+            }
+        }
+    }
+}
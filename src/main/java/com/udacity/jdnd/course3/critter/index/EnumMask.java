@@ -0,0 +1,57 @@
+package com.udacity.jdnd.course3.critter.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converts sets of enum constants to and from int bitmasks, one bit per ordinal.
+ *
+ * Only usable for enums with at most 32 constants (EmployeeSkill and DayOfWeek).
+ */
+public final class EnumMask {
+
+    private EnumMask() {}
+
+    public static int of(Collection<? extends Enum<?>> values) {
+        int mask = 0;
+        if (values != null) {
+            for (Enum<?> value : values) {
+                mask |= bit(value);
+            }
+        }
+        return mask;
+    }
+
+    public static int bit(Enum<?> value) {
+        return 1 << value.ordinal();
+    }
+
+    public static <E extends Enum<E>> Set<E> toSet(int mask, Class<E> type) {
+        Set<E> values = EnumSet.noneOf(type);
+        for (E constant : type.getEnumConstants()) {
+            if ((mask & bit(constant)) != 0) {
+                values.add(constant);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Lists every mask over the constants of an enum that contains all bits of the required mask.
+     *
+     * @param required bits every returned mask must contain
+     * @param type enum the masks range over
+     * @return masks in ascending order
+     */
+    public static List<Integer> supersetsOf(int required, Class<? extends Enum<?>> type) {
+        int limit = 1 << type.getEnumConstants().length;
+        List<Integer> masks = new ArrayList<>();
+        for (int mask = required; mask < limit; mask = (mask + 1) | required) {
+            masks.add(mask);
+        }
+        return masks;
+    }
+}
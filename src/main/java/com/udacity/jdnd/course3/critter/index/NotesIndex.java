@@ -0,0 +1,352 @@
+package com.udacity.jdnd.course3.critter.index;
+
+import com.udacity.jdnd.course3.critter.repository.CustomerRepository;
+import com.udacity.jdnd.course3.critter.repository.PetRepository;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Embedded Lucene index of the pet and customer notes, used to search them by word instead of
+ * scanning the 5000 character columns with LIKE '%word%'.
+ *
+ * Every pet or customer with notes is one document. Notes are analyzed with the English analyzer,
+ * so "diabetes" also finds "diabetic", and hits are ranked by BM25.
+ *
+ * Changes are applied once the saving transaction commits, so notes that are rolled back are never
+ * found. Saves do not wait for them to become searchable: a background thread reopens the near real
+ * time reader at most critter.notes-index.refresh-interval-ms after a change, so concurrent saves share
+ * one reopen, and waitForChanges() blocks until every change applied so far is searchable. Changes are
+ * written to disk at most every critter.notes-index.commit-interval-ms. At start-up the index is rebuilt
+ * from the database if its document counts do not match, e.g. when it was deleted or changes were lost
+ * in a crash; rebuild() does the same on demand.
+ */
+@Component
+public class NotesIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(NotesIndex.class);
+
+    public enum Source {
+        PET, CUSTOMER
+    }
+
+    private static final String KEY = "key";
+    private static final String SOURCE = "source";
+    private static final String ID = "id";
+    private static final String NOTES = "notes";
+
+    // how soon a reader is reopened for a thread waiting for a change
+    private static final double MIN_STALE_SECONDS = 0.01;
+
+    private final String path;
+
+    private final long commitIntervalMillis;
+
+    private final long refreshIntervalMillis;
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+
+    private Directory directory;
+
+    private IndexWriter writer;
+
+    private SearcherManager searcherManager;
+
+    private ControlledRealTimeReopenThread<IndexSearcher> reopener;
+
+    private ScheduledExecutorService committer;
+
+    // changes share the read lock, a rebuild takes the write lock so it never sees them half applied
+    private final ReadWriteLock rebuilding = new ReentrantReadWriteLock();
+
+    // sequence number of the last change, that waitForChanges waits for
+    private final AtomicLong lastChange = new AtomicLong(-1);
+
+    @Autowired
+    PetRepository petRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /**
+     * @param path directory of the index; empty keeps the index in memory and rebuilds it at every start
+     */
+    public NotesIndex(@Value("${critter.notes-index.path:notes-index}") String path,
+                      @Value("${critter.notes-index.commit-interval-ms:1000}") long commitIntervalMillis,
+                      @Value("${critter.notes-index.refresh-interval-ms:100}") long refreshIntervalMillis) {
+        this.path = path;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = path.isEmpty() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(path));
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+        reopener = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+                Math.max(refreshIntervalMillis / 1000.0, MIN_STALE_SECONDS), MIN_STALE_SECONDS);
+        reopener.setName("notes-index-reopen");
+        reopener.setDaemon(true);
+        reopener.start();
+        committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notes-index-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commit, commitIntervalMillis, commitIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        committer.shutdownNow();
+        reopener.close();
+        rebuilding.writeLock().lock();
+        try {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        } finally {
+            rebuilding.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Blocks until every change applied so far can be found by search.
+     */
+    public void waitForChanges() {
+        try {
+            reopener.waitForGeneration(lastChange.get());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Rebuilds the index if it does not hold one document per pet and customer with notes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        Map<Source, Long> indexed = count();
+        if (indexed.get(Source.PET) != petRepository.countWithNotes()
+                || indexed.get(Source.CUSTOMER) != customerRepository.countWithNotes()) {
+            log.info("Notes index does not match the database ({}), rebuilding it", indexed);
+            rebuild();
+        }
+    }
+
+    /**
+     * Records the current notes of a pet or customer once the transaction commits, or right away outside
+     * of one. Null or empty notes remove it from the index.
+     */
+    public void update(Source source, Long id, String notes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(source, id, notes);
+                }
+            });
+        } else {
+            apply(source, id, notes);
+        }
+    }
+
+    /**
+     * Finds the pets or customers whose notes contain any word of the text, best match first.
+     *
+     * @param limit maximum number of ids returned
+     * @return ids ranked by relevance; empty if the text has no searchable word
+     */
+    public List<Long> search(Source source, String text, int limit) {
+        BooleanQuery.Builder words = new BooleanQuery.Builder();
+        int count = 0;
+        for (String term : analyze(text)) {
+            words.add(new TermQuery(new Term(NOTES, term)), BooleanClause.Occur.SHOULD);
+            count++;
+        }
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(words.build(), BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(SOURCE, source.name())), BooleanClause.Occur.FILTER)
+                .build();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                List<Long> ids = new ArrayList<>();
+                for (ScoreDoc hit : searcher.search(query, limit).scoreDocs) {
+                    ids.add(searcher.doc(hit.doc, Collections.singleton(ID)).getField(ID).numericValue().longValue());
+                }
+                return ids;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * @return number of indexed documents of each source
+     */
+    public Map<Source, Long> count() {
+        Map<Source, Long> counts = new EnumMap<>(Source.class);
+        waitForChanges();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (Source source : Source.values()) {
+                    counts.put(source, (long) searcher.count(new TermQuery(new Term(SOURCE, source.name()))));
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return counts;
+    }
+
+    /**
+     * Replaces the whole index with the notes currently stored in the database and commits it.
+     * Changes committed meanwhile wait for the rebuild and are applied after it.
+     *
+     * @return number of indexed documents of each source
+     */
+    public Map<Source, Long> rebuild() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        rebuilding.writeLock().lock();
+        try {
+            record(writer.deleteAll());
+            transaction.execute(status -> {
+                try (Stream<Object[]> pets = petRepository.streamNotes()) {
+                    pets.forEach(row -> add(Source.PET, (Long) row[0], (String) row[1]));
+                }
+                try (Stream<Object[]> customers = customerRepository.streamNotes()) {
+                    customers.forEach(row -> add(Source.CUSTOMER, (Long) row[0], (String) row[1]));
+                }
+                return null;
+            });
+            writer.commit();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            rebuilding.writeLock().unlock();
+        }
+        return count();
+    }
+
+    private void apply(Source source, Long id, String notes) {
+        rebuilding.readLock().lock();
+        try {
+            if (notes == null || notes.isEmpty()) {
+                record(writer.deleteDocuments(key(source, id)));
+            } else {
+                record(writer.updateDocument(key(source, id), document(source, id, notes)));
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            rebuilding.readLock().unlock();
+        }
+    }
+
+    private void add(Source source, Long id, String notes) {
+        try {
+            record(writer.addDocument(document(source, id, notes)));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private void record(long sequenceNumber) {
+        lastChange.accumulateAndGet(sequenceNumber, Math::max);
+    }
+
+    // shares the lock with changes but not with rebuild(), so a half rebuilt index is never committed
+    private void commit() {
+        rebuilding.readLock().lock();
+        try {
+            if (writer.isOpen() && writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException exception) {
+            log.warn("Could not commit the notes index", exception);
+        } finally {
+            rebuilding.readLock().unlock();
+        }
+    }
+
+    private static Term key(Source source, Long id) {
+        return new Term(KEY, source.name() + ":" + id);
+    }
+
+    private static Document document(Source source, Long id, String notes) {
+        Document document = new Document();
+        document.add(new StringField(KEY, source.name() + ":" + id, Field.Store.NO));
+        document.add(new StringField(SOURCE, source.name(), Field.Store.NO));
+        document.add(new StoredField(ID, id));
+        document.add(new TextField(NOTES, notes, Field.Store.NO));
+        return document;
+    }
+
+    private Set<String> analyze(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        try (TokenStream tokens = analyzer.tokenStream(NOTES, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokens.end();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,36 @@
+package com.udacity.jdnd.course3.critter.index;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint of the notes index: the read operation reports the number of indexed pets and
+ * customers, the write operation rebuilds the index from the database.
+ *
+ * The application has no authentication, so management.endpoints.web.exposure.include leaves the
+ * endpoint out and it is reachable over JMX only, when spring.jmx.enabled is set.
+ */
+@Component
+@Endpoint(id = "notesindex")
+public class NotesIndexEndpoint {
+
+    private final NotesIndex notesIndex;
+
+    public NotesIndexEndpoint(NotesIndex notesIndex) {
+        this.notesIndex = notesIndex;
+    }
+
+    @ReadOperation
+    public Map<NotesIndex.Source, Long> count() {
+        return notesIndex.count();
+    }
+
+    @WriteOperation
+    public Map<NotesIndex.Source, Long> rebuild() {
+        return notesIndex.rebuild();
+    }
+}
@@ -0,0 +1,75 @@
+package com.udacity.jdnd.course3.critter.index;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The entries a transaction changed in an in-memory index, bound to the transaction under the index.
+ *
+ * Only the transaction that made them sees them, layered over the shared entries by the index's queries.
+ * They are applied to the shared entries after it commits and dropped if it rolls back, so other threads
+ * never read uncommitted state.
+ */
+final class PendingChanges {
+
+    private PendingChanges() {}
+
+    /**
+     * @return the entries changed by the current transaction, by id; empty outside of one
+     */
+    @SuppressWarnings("unchecked")
+    static <V> Map<Long, V> of(Object index) {
+        Map<Long, V> changes = (Map<Long, V>) TransactionSynchronizationManager.getResource(index);
+        return changes == null ? Collections.emptyMap() : changes;
+    }
+
+    /**
+     * Records the new entry of an id for the current transaction, or applies it right away outside of one.
+     *
+     * @param apply applies changes to the shared entries, called once after commit with all of them
+     */
+    static <V> void put(Object index, Long id, V entry, Consumer<Map<Long, V>> apply) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.accept(Collections.singletonMap(id, entry));
+            return;
+        }
+        Map<Long, V> changes = of(index);
+        if (changes.isEmpty()) {
+            changes = bind(index, apply);
+        }
+        changes.put(id, entry);
+    }
+
+    private static <V> Map<Long, V> bind(Object index, Consumer<Map<Long, V>> apply) {
+        Map<Long, V> changes = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(index, changes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // a transaction started inside this one starts without its changes
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(index);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(index, changes);
+            }
+
+            @Override
+            public void afterCommit() {
+                apply.accept(changes);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(index);
+            }
+        });
+        return changes;
+    }
+}
@@ -0,0 +1,238 @@
+package com.udacity.jdnd.course3.critter.index;
+
+import com.google.common.collect.Iterables;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.repository.PetManagedRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory secondary index of pets by type, used to answer pet searches that filter on a type
+ * (the most common search at the front desk) without scanning the pet table.
+ *
+ * Every type keeps the name and birth date of its pets sorted three ways: by id, by (name, id) and by
+ * (birth date, id). A page is read in the order the database search uses: by name for a name prefix,
+ * else by birth date for a birth date range, else by id. It starts after the pet the previous page
+ * ended with and stops once past the prefix or range, testing the other filters on the way.
+ * Names are compared case-sensitively, like the database search.
+ *
+ * The index is optional (critter.pet.type-index.enabled); when it is off, searches always go to
+ * the database. It is loaded once the application is ready and kept current by PetService.save.
+ * Changes made inside a transaction are seen by that transaction only until it commits, see PendingChanges.
+ */
+@Component
+public class PetTypeIndex {
+
+    /**
+     * Immutable snapshot of the searchable fields of one pet.
+     */
+    private static final class Entry {
+        private final long id;
+        private final PetType type;
+        private final String name;
+        private final LocalDate birthDate;
+
+        private Entry(long id, PetType type, String name, LocalDate birthDate) {
+            this.id = id;
+            this.type = type;
+            this.name = name;
+            this.birthDate = birthDate;
+        }
+
+        private boolean matches(LocalDate bornFrom, LocalDate bornTo, String namePrefix) {
+            if ((bornFrom != null || bornTo != null) && birthDate == null) {
+                return false;
+            }
+            if ((bornFrom != null && birthDate.isBefore(bornFrom)) || (bornTo != null && birthDate.isAfter(bornTo))) {
+                return false;
+            }
+            return namePrefix == null || namePrefix.isEmpty() || (name != null && name.startsWith(namePrefix));
+        }
+    }
+
+    private static final Comparator<Entry> BY_NAME = Comparator.<Entry, String>comparing(entry -> entry.name)
+            .thenComparingLong(entry -> entry.id);
+
+    private static final Comparator<Entry> BY_BIRTH_DATE = Comparator.<Entry, LocalDate>comparing(entry -> entry.birthDate)
+            .thenComparingLong(entry -> entry.id);
+
+    private static final Comparator<Entry> BY_ID = Comparator.comparingLong(entry -> entry.id);
+
+    /**
+     * The pets of one type; the name and birth date orders leave out pets without one.
+     */
+    private static final class TypeEntries {
+        private final NavigableMap<Long, Entry> byId = new ConcurrentSkipListMap<>();
+        private final NavigableSet<Entry> byName = new ConcurrentSkipListSet<>(BY_NAME);
+        private final NavigableSet<Entry> byBirthDate = new ConcurrentSkipListSet<>(BY_BIRTH_DATE);
+
+        private void add(Entry entry) {
+            byId.put(entry.id, entry);
+            if (entry.name != null) {
+                byName.add(entry);
+            }
+            if (entry.birthDate != null) {
+                byBirthDate.add(entry);
+            }
+        }
+
+        private void remove(Entry entry) {
+            byId.remove(entry.id);
+            if (entry.name != null) {
+                byName.remove(entry);
+            }
+            if (entry.birthDate != null) {
+                byBirthDate.remove(entry);
+            }
+        }
+
+        private void clear() {
+            byId.clear();
+            byName.clear();
+            byBirthDate.clear();
+        }
+    }
+
+    private static final TypeEntries NO_CHANGES = new TypeEntries();
+
+    private final boolean enabled;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<PetType, TypeEntries> byType = new EnumMap<>(PetType.class);
+
+    @Autowired
+    PetManagedRepository petManagedRepository;
+
+    public PetTypeIndex(@Value("${critter.pet.type-index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        for (PetType type : PetType.values()) {
+            byType.put(type, new TypeEntries());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the type, name and birth date of every pet from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) {
+            return;
+        }
+        entries.clear();
+        byType.values().forEach(TypeEntries::clear);
+        for (Object[] row : petManagedRepository.findAllPetSearchFields()) {
+            put((Long) row[0], new Entry((Long) row[0], (PetType) row[1], (String) row[2], (LocalDate) row[3]));
+        }
+    }
+
+    /**
+     * Records the current searchable fields of a pet.
+     *
+     * @param petId id of a persisted pet
+     * @param type type of the pet; pets without one are left out of the index
+     */
+    public void update(Long petId, PetType type, String name, LocalDate birthDate) {
+        if (!enabled) {
+            return;
+        }
+        PendingChanges.put(this, petId, new Entry(petId, type, name, birthDate), this::apply);
+    }
+
+    /**
+     * Find the ids of one keyset page of the pets of a type that match the other filters.
+     *
+     * @param bornFrom earliest birth date, or null for no lower bound
+     * @param bornTo latest birth date, or null for no upper bound
+     * @param namePrefix start of the name, or null or empty for any name
+     * @param afterId the page starts after this pet in the search order; 0, or a pet without the name
+     *                or birth date the page is sorted by, starts at the first match
+     * @param limit maximum number of ids returned
+     * @return ids sorted by (name, id) with a name prefix, else by (birth date, id) with a birth date bound,
+     *         else by id
+     */
+    public List<Long> search(PetType type, LocalDate bornFrom, LocalDate bornTo, String namePrefix, long afterId, int limit) {
+        TypeEntries pets = byType.get(type);
+        Map<Long, Entry> pending = PendingChanges.of(this);
+        // the pets of the type changed by this transaction, merged into the committed ones below
+        TypeEntries changed = NO_CHANGES;
+        if (!pending.isEmpty()) {
+            changed = new TypeEntries();
+            pending.values().stream().filter(entry -> entry.type == type).forEach(changed::add);
+        }
+        Entry after = afterId > 0 ? pending.getOrDefault(afterId, entries.get(afterId)) : null;
+        Iterable<Entry> candidates;
+        if (namePrefix != null && !namePrefix.isEmpty()) {
+            Entry from = new Entry(Long.MIN_VALUE, type, namePrefix, null);
+            if (after != null && after.name != null && BY_NAME.compare(after, from) > 0) {
+                from = after;
+            }
+            candidates = merge(pets.byName.tailSet(from, false), changed.byName.tailSet(from, false), BY_NAME, pending);
+        } else if (bornFrom != null || bornTo != null) {
+            Entry from = new Entry(Long.MIN_VALUE, type, null, bornFrom == null ? LocalDate.MIN : bornFrom);
+            if (after != null && after.birthDate != null && BY_BIRTH_DATE.compare(after, from) > 0) {
+                from = after;
+            }
+            candidates = merge(pets.byBirthDate.tailSet(from, false), changed.byBirthDate.tailSet(from, false),
+                    BY_BIRTH_DATE, pending);
+        } else {
+            candidates = merge(pets.byId.tailMap(afterId, false).values(), changed.byId.tailMap(afterId, false).values(),
+                    BY_ID, pending);
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, 64));
+        for (Entry pet : candidates) {
+            // both sorted orders end with the prefix or range
+            if (namePrefix != null && !namePrefix.isEmpty() ? !pet.name.startsWith(namePrefix)
+                    : bornTo != null && pet.birthDate.isAfter(bornTo)) {
+                break;
+            }
+            if (pet.matches(bornFrom, bornTo, namePrefix)) {
+                ids.add(pet.id);
+                if (ids.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Merges the committed pets, leaving out those the transaction changed, with its changed ones.
+     */
+    private static Iterable<Entry> merge(Iterable<Entry> committed, Iterable<Entry> changed, Comparator<Entry> order,
+                                         Map<Long, Entry> pending) {
+        if (pending.isEmpty()) {
+            return committed;
+        }
+        return Iterables.mergeSorted(Arrays.asList(Iterables.filter(committed, entry -> !pending.containsKey(entry.id)),
+                changed), order);
+    }
+
+    private synchronized void apply(Map<Long, Entry> changes) {
+        changes.forEach(this::put);
+    }
+
+    private void put(Long petId, Entry entry) {
+        Entry previous = entries.put(petId, entry);
+        if (previous != null && previous.type != null) {
+            byType.get(previous.type).remove(previous);
+        }
+        if (entry.type != null) {
+            byType.get(entry.type).add(entry);
+        }
+    }
+}
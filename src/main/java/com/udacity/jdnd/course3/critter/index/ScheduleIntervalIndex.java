@@ -0,0 +1,724 @@
+package com.udacity.jdnd.course3.critter.index;
+
+import com.google.common.math.LongMath;
+import com.google.common.util.concurrent.Striped;
+import com.udacity.jdnd.course3.critter.entity.Employee;
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.Recurrence;
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+import com.udacity.jdnd.course3.critter.exceptions.InvalidScheduleTimeException;
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleConflictException;
+import com.udacity.jdnd.course3.critter.repository.ScheduleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory index of the time slots every employee and pet is booked for, used to reject
+ * overlapping schedules without a database round trip.
+ *
+ * Each employee and pet keeps the bookings of its single schedules in a map sorted by start. These
+ * never overlap, so a new slot [start, end) only has to be compared with the last booking starting
+ * before its end: a lookup costs O(log n) in the number of bookings.
+ *
+ * A recurring schedule is kept as its rule (first and last date, period and cancelled dates), and its
+ * occurrences are computed only for the dates a check or query looks at. A series conflicts with a single
+ * schedule falling on one of its dates, and with another series when both take place on a common date at
+ * overlapping times; that date is found arithmetically, so long series cost no more than short ones.
+ *
+ * Checking and booking a single schedule locks the (employee, date) and (pet, date) pairs of its slot and
+ * shares the lock of each employee and pet, so concurrent saves cannot both take the same slot, while saves
+ * for other employees, pets or dates never wait: two slots can only overlap on the same date. A series
+ * takes the lock of each of its employees and pets exclusively, as it may fall on any date of theirs.
+ * The keys are spread over critter.schedule.lock-stripes read/write locks, taken in stripe order so saves
+ * locking several keys cannot deadlock.
+ * A booking is made as soon as the schedule is saved and is released if the transaction rolls back,
+ * so a slot held by a transaction that is still running is already taken for everybody else.
+ * The index is loaded once the application is ready and kept current by ScheduleService.
+ */
+@Component
+public class ScheduleIntervalIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleIntervalIndex.class);
+
+    private static final String EMPLOYEE = "employee";
+
+    private static final String PET = "pet";
+
+    /**
+     * One schedule booked for an employee or pet. The schedule id is null while a batch is being checked.
+     */
+    private static final class Booking {
+        private final Long scheduleId;
+        private final Reservation reservation;
+
+        private Booking(Long scheduleId, Reservation reservation) {
+            this.scheduleId = scheduleId;
+            this.reservation = reservation;
+        }
+
+        private boolean isOf(Long scheduleId) {
+            return scheduleId != null && scheduleId.equals(this.scheduleId);
+        }
+    }
+
+    /**
+     * The bookings of one employee or pet.
+     */
+    private static final class Bookings {
+        // single schedules by start
+        private final NavigableMap<LocalDateTime, Booking> slots = new ConcurrentSkipListMap<>();
+        private final Set<Booking> series = ConcurrentHashMap.newKeySet();
+
+        private void add(Booking booking) {
+            Reservation reservation = booking.reservation;
+            if (reservation.recurring) {
+                series.add(booking);
+            } else if (reservation.occursOn(reservation.first)) {
+                slots.put(reservation.first.atTime(reservation.startTime), booking);
+            }
+        }
+
+        private void remove(Long scheduleId, Reservation reservation) {
+            if (reservation.recurring) {
+                series.removeIf(booking -> booking.reservation == reservation && Objects.equals(booking.scheduleId, scheduleId));
+                return;
+            }
+            LocalDateTime start = reservation.first.atTime(reservation.startTime);
+            Booking booking = slots.get(start);
+            if (booking != null && Objects.equals(booking.scheduleId, scheduleId)) {
+                slots.remove(start, booking);
+            }
+        }
+
+        /**
+         * Calls back with the start and end of every booked slot starting between from and to, included.
+         */
+        private void forEachSlot(LocalDate from, LocalDate to, BiConsumer<LocalDateTime, LocalDateTime> slot) {
+            slots.subMap(from.atStartOfDay(), to.plusDays(1).atStartOfDay()).forEach((start, booking) ->
+                    slot.accept(start, start.toLocalDate().atTime(booking.reservation.endTime)));
+            for (Booking booking : series) {
+                Reservation reservation = booking.reservation;
+                Iterator<LocalDate> dates = reservation.rule.occurrencesBetween(from, to, reservation.cancelled);
+                while (dates.hasNext()) {
+                    LocalDate date = dates.next();
+                    slot.accept(date.atTime(reservation.startTime), date.atTime(reservation.endTime));
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return slots.isEmpty() && series.isEmpty();
+        }
+
+        private int countOn(LocalDate date) {
+            int count = slots.subMap(date.atStartOfDay(), date.plusDays(1).atStartOfDay()).size();
+            for (Booking booking : series) {
+                if (booking.reservation.occursOn(date)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * The time slot and recurrence of one schedule and everybody booked for it, kept to release the
+     * schedule when it changes.
+     */
+    private static final class Reservation {
+        // a copy, so later changes of the schedule do not move a booking that is already made
+        private final Schedule rule;
+        private final boolean recurring;
+        private final LocalDate first;
+        private final LocalDate last;
+        private final long period;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+        private final Set<LocalDate> cancelled;
+        private final Set<Long> employeeIds = new LinkedHashSet<>();
+        private final Set<Long> petIds = new LinkedHashSet<>();
+
+        private Reservation(Schedule schedule) {
+            rule = new Schedule();
+            rule.setDate(schedule.getDate());
+            rule.setStartTime(schedule.getStartTime());
+            rule.setEndTime(schedule.getEndTime());
+            rule.setRecurrence(schedule.getRecurrence());
+            rule.setRecurrenceInterval(schedule.getRecurrenceInterval());
+            rule.setRecurrenceUntil(schedule.getRecurrenceUntil());
+            rule.setExceptionDates(new HashSet<>(schedule.getExceptionDates()));
+            recurring = rule.getRecurrence() != null;
+            first = rule.getDate();
+            last = rule.lastOccurrence();
+            period = recurring ? rule.getRecurrence().period(rule.getRecurrenceInterval()) : 1;
+            startTime = rule.getStartTime();
+            endTime = rule.getEndTime();
+            cancelled = rule.getExceptionDates();
+        }
+
+        private static Reservation of(Schedule schedule) throws InvalidScheduleTimeException {
+            if (schedule.getDate() == null || schedule.getStartTime() == null || schedule.getEndTime() == null
+                    || !schedule.getStartTime().isBefore(schedule.getEndTime())) {
+                throw new InvalidScheduleTimeException("Start time must be before end time, got "
+                        + schedule.getStartTime() + " - " + schedule.getEndTime());
+            }
+            if (schedule.getRecurrence() != null) {
+                checkRecurrence(schedule);
+            }
+            Reservation reservation = new Reservation(schedule);
+            for (Employee employee : schedule.getEmployees()) {
+                reservation.employeeIds.add(employee.getId());
+            }
+            for (Pet pet : schedule.getPets()) {
+                reservation.petIds.add(pet.getId());
+            }
+            return reservation;
+        }
+
+        private boolean occursOn(LocalDate date) {
+            return !date.isBefore(first) && !date.isAfter(last) && isPeriodFromFirst(date) && !cancelled.contains(date);
+        }
+
+        // whether the rule would fall on the date, leaving out its end and cancelled dates
+        private boolean isPeriodFromFirst(LocalDate date) {
+            return ChronoUnit.DAYS.between(first, date) % period == 0;
+        }
+
+        private boolean overlapsTimeOf(Reservation other) {
+            return startTime.isBefore(other.endTime) && other.startTime.isBefore(endTime);
+        }
+
+        /**
+         * Adds the keys a booking of this reservation locks, mapped to whether it locks them exclusively.
+         */
+        private void addLockKeys(Map<Object, Boolean> keys) {
+            for (Long employeeId : employeeIds) {
+                addLockKeys(keys, EMPLOYEE, employeeId);
+            }
+            for (Long petId : petIds) {
+                addLockKeys(keys, PET, petId);
+            }
+        }
+
+        private void addLockKeys(Map<Object, Boolean> keys, String kind, Long id) {
+            keys.merge(Arrays.asList(kind, id), recurring, Boolean::logicalOr);
+            if (!recurring) {
+                keys.put(Arrays.asList(kind, id, first), true);
+            }
+        }
+
+        private static void checkRecurrence(Schedule schedule) throws InvalidScheduleTimeException {
+            LocalDate until = schedule.getRecurrenceUntil();
+            if (until == null || until.isBefore(schedule.getDate()) || schedule.getRecurrenceInterval() < 1
+                    || until.isAfter(schedule.getDate().plusYears(Schedule.MAX_RECURRENCE_YEARS))) {
+                throw new InvalidScheduleTimeException("A recurring schedule repeats at least every 1 period until a date "
+                        + "on or at most " + Schedule.MAX_RECURRENCE_YEARS + " years after its own, got every "
+                        + schedule.getRecurrenceInterval() + " " + schedule.getRecurrence() + " until " + until);
+            }
+        }
+    }
+
+    private final Map<Long, Bookings> employeeBookings = new ConcurrentHashMap<>();
+
+    private final Map<Long, Bookings> petBookings = new ConcurrentHashMap<>();
+
+    private final Map<Long, Reservation> reservations = new ConcurrentHashMap<>();
+
+    private final Striped<ReadWriteLock> locks;
+
+    // bookings and queries share the read lock, loading takes the write lock to replace everything
+    private final ReadWriteLock loading = new ReentrantReadWriteLock();
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    public ScheduleIntervalIndex(@Value("${critter.schedule.lock-stripes:1024}") int lockStripes) {
+        this.locks = Striped.readWriteLock(lockStripes);
+    }
+
+    /**
+     * Loads the bookings of every schedule from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        loading.writeLock().lock();
+        try {
+            reload();
+        } finally {
+            loading.writeLock().unlock();
+        }
+    }
+
+    private void reload() {
+        employeeBookings.clear();
+        petBookings.clear();
+        reservations.clear();
+        Map<Long, Set<LocalDate>> exceptionDates = new HashMap<>();
+        for (Object[] row : scheduleRepository.findAllExceptionDates()) {
+            exceptionDates.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((LocalDate) row[1]);
+        }
+        Map<Long, Reservation> loaded = new LinkedHashMap<>();
+        for (Object[] row : scheduleRepository.findAllEmployeeBookings()) {
+            loaded.computeIfAbsent((Long) row[0], id -> new Reservation(scheduleOf(row, exceptionDates)))
+                    .employeeIds.add((Long) row[7]);
+        }
+        for (Object[] row : scheduleRepository.findAllPetBookings()) {
+            loaded.computeIfAbsent((Long) row[0], id -> new Reservation(scheduleOf(row, exceptionDates)))
+                    .petIds.add((Long) row[7]);
+        }
+        int overlapping = 0;
+        for (Map.Entry<Long, Reservation> entry : loaded.entrySet()) {
+            if (findConflict(entry.getKey(), entry.getValue()) != null) {
+                overlapping++;
+            }
+            reservations.put(entry.getKey(), entry.getValue());
+            add(entry.getKey(), entry.getValue());
+        }
+        if (overlapping > 0) {
+            log.warn("{} stored schedules overlap earlier bookings of the same employee or pet", overlapping);
+        }
+    }
+
+    /**
+     * Rebuilds the date, time slot and recurrence of a stored schedule from a booking row.
+     */
+    private static Schedule scheduleOf(Object[] row, Map<Long, Set<LocalDate>> exceptionDates) {
+        Schedule schedule = new Schedule();
+        schedule.setDate((LocalDate) row[1]);
+        schedule.setStartTime((LocalTime) row[2]);
+        schedule.setEndTime((LocalTime) row[3]);
+        schedule.setRecurrence((Recurrence) row[4]);
+        schedule.setRecurrenceInterval((Integer) row[5]);
+        schedule.setRecurrenceUntil((LocalDate) row[6]);
+        schedule.setExceptionDates(exceptionDates.getOrDefault((Long) row[0], Collections.emptySet()));
+        return schedule;
+    }
+
+    /**
+     * Keeps the employees that have fewer than the given number of schedules on a date.
+     * Bookings of transactions that have not committed yet already count.
+     *
+     * @param employeeIds employees to check
+     * @param capacity number of schedules that fills an employee's day
+     * @return the employees with room left, in the order given
+     */
+    public List<Long> findEmployeeIdsWithCapacity(List<Long> employeeIds, LocalDate date, int capacity) {
+        return whileLoaded(() -> {
+            List<Long> ids = new ArrayList<>(employeeIds.size());
+            for (Long employeeId : employeeIds) {
+                Bookings bookings = employeeBookings.get(employeeId);
+                if (bookings == null || bookings.countOn(date) < capacity) {
+                    ids.add(employeeId);
+                }
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Finds the dates of a range on which employees have capacity schedules or more, reading the
+     * bookings of each employee in the range once and computing the occurrences of series in the range only.
+     *
+     * @param employeeIds employees to check
+     * @param from first date of the range
+     * @param to last date of the range
+     * @param capacity number of schedules that fills an employee's day
+     * @return the full dates keyed by employee id; employees with no full date are absent
+     */
+    public Map<Long, Set<LocalDate>> findFullDays(Collection<Long> employeeIds, LocalDate from, LocalDate to, int capacity) {
+        return whileLoaded(() -> {
+            Map<Long, Set<LocalDate>> fullDays = new HashMap<>();
+            for (Long employeeId : employeeIds) {
+                Bookings bookings = employeeBookings.get(employeeId);
+                if (bookings == null) {
+                    continue;
+                }
+                Map<LocalDate, Integer> counts = new HashMap<>();
+                bookings.forEachSlot(from, to, (start, end) -> {
+                    if (counts.merge(start.toLocalDate(), 1, Integer::sum) == capacity) {
+                        fullDays.computeIfAbsent(employeeId, id -> new HashSet<>()).add(start.toLocalDate());
+                    }
+                });
+            }
+            return fullDays;
+        });
+    }
+
+    /**
+     * Copies the booked slots of employees in a date range.
+     *
+     * @param from first date of the range
+     * @param to last date of the range
+     * @return start to end of every slot starting in the range, keyed by employee id; employees without one are absent
+     */
+    public Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> findEmployeeBookings(Collection<Long> employeeIds,
+                                                                                    LocalDate from, LocalDate to) {
+        return whileLoaded(() -> {
+            Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> slots = new HashMap<>();
+            for (Long employeeId : employeeIds) {
+                Bookings bookings = employeeBookings.get(employeeId);
+                if (bookings == null) {
+                    continue;
+                }
+                bookings.forEachSlot(from, to, (start, end) ->
+                        slots.computeIfAbsent(employeeId, id -> new TreeMap<>()).put(start, end));
+            }
+            return slots;
+        });
+    }
+
+    /**
+     * Runs a query under the read lock of loading, so it never reads the maps half cleared by a reload.
+     */
+    private <T> T whileLoaded(Supplier<T> query) {
+        loading.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            loading.readLock().unlock();
+        }
+    }
+
+    /**
+     * Books the employees and pets of a schedule for its time slot and saves it.
+     *
+     * @param schedule new schedule, or existing one whose previous slot is released
+     * @param save saves the schedule and returns it with its id
+     * @return the saved schedule
+     * @throws ScheduleConflictException if an employee or pet is already booked at an overlapping time
+     * @throws InvalidScheduleTimeException if the slot does not start before it ends
+     */
+    public Schedule book(Schedule schedule, UnaryOperator<Schedule> save)
+            throws ScheduleConflictException, InvalidScheduleTimeException {
+        return bookAll(Collections.singletonList(schedule),
+                schedules -> Collections.singletonList(save.apply(schedules.get(0))),
+                (index, exception) -> {
+                    throw exception;
+                }).get(0);
+    }
+
+    /**
+     * Books the employees and pets of several schedules and saves the ones that could be booked.
+     * A schedule is rejected if it overlaps an existing booking or an earlier schedule of the list.
+     *
+     * @param save saves the accepted schedules and returns them, in the same order, with their ids
+     * @param rejected told the position and reason of every schedule that is not saved
+     * @return the saved schedules in list order
+     */
+    public List<Schedule> bookAll(List<Schedule> schedules, UnaryOperator<List<Schedule>> save,
+                                  BiConsumer<Integer, RuntimeException> rejected) {
+        List<Reservation> requested = new ArrayList<>(schedules.size());
+        List<InvalidScheduleTimeException> invalid = new ArrayList<>(schedules.size());
+        for (Schedule schedule : schedules) {
+            try {
+                requested.add(Reservation.of(schedule));
+                invalid.add(null);
+            } catch (InvalidScheduleTimeException exception) {
+                requested.add(null);
+                invalid.add(exception);
+            }
+        }
+
+        List<Lock> held = lock(schedules, requested);
+        try {
+            return bookLocked(schedules, requested, invalid, save, rejected);
+        } finally {
+            unlock(held);
+        }
+    }
+
+    private List<Schedule> bookLocked(List<Schedule> schedules, List<Reservation> requested, List<InvalidScheduleTimeException> invalid,
+                                      UnaryOperator<List<Schedule>> save, BiConsumer<Integer, RuntimeException> rejected) {
+        List<Schedule> accepted = new ArrayList<>(schedules.size());
+        List<Reservation> pending = new ArrayList<>(schedules.size());
+        try {
+            for (int i = 0; i < schedules.size(); i++) {
+                Schedule schedule = schedules.get(i);
+                Reservation reservation = requested.get(i);
+                if (reservation == null) {
+                    rejected.accept(i, invalid.get(i));
+                    continue;
+                }
+                String conflict = findConflict(schedule.getId(), reservation);
+                if (conflict != null) {
+                    rejected.accept(i, new ScheduleConflictException(conflict));
+                    continue;
+                }
+                // held without an id so the rest of the list is checked against it
+                add(null, reservation);
+                accepted.add(schedule);
+                pending.add(reservation);
+            }
+
+            List<Schedule> saved = accepted.isEmpty() ? accepted : save.apply(accepted);
+            for (int i = 0; i < saved.size(); i++) {
+                remove(null, pending.get(i));
+                reserve(saved.get(i).getId(), pending.get(i));
+            }
+            pending.clear();
+            return saved;
+        } finally {
+            if (!pending.isEmpty()) {
+                // saving failed: drop the held slots and put back those of existing schedules they replaced
+                pending.forEach(reservation -> remove(null, reservation));
+                for (Schedule schedule : accepted) {
+                    Reservation current = schedule.getId() == null ? null : reservations.get(schedule.getId());
+                    if (current != null) {
+                        add(schedule.getId(), current);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the booking of a schedule and restores the previous one if the transaction rolls back.
+     */
+    private void reserve(Long scheduleId, Reservation reservation) {
+        Reservation previous = reservations.put(scheduleId, reservation);
+        if (previous != null) {
+            remove(scheduleId, previous);
+        }
+        add(scheduleId, reservation);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(scheduleId, reservation, previous);
+                    }
+                }
+            });
+        }
+    }
+
+    private void restore(Long scheduleId, Reservation current, Reservation previous) {
+        Map<Object, Boolean> keys = new HashMap<>();
+        current.addLockKeys(keys);
+        if (previous != null) {
+            previous.addLockKeys(keys);
+        }
+        List<Lock> held = lockAll(keys);
+        try {
+            remove(scheduleId, current);
+            if (previous == null) {
+                reservations.remove(scheduleId);
+            } else {
+                reservations.put(scheduleId, previous);
+                add(scheduleId, previous);
+            }
+        } finally {
+            unlock(held);
+        }
+    }
+
+    /**
+     * Locks the pairs of the requested reservations and of the current reservations of the existing
+     * schedules they replace. A current reservation that changes while waiting is locked again.
+     */
+    private List<Lock> lock(List<Schedule> schedules, List<Reservation> requested) {
+        while (true) {
+            Map<Object, Boolean> keys = new HashMap<>();
+            Map<Long, Reservation> replaced = new HashMap<>();
+            for (int i = 0; i < schedules.size(); i++) {
+                if (requested.get(i) != null) {
+                    requested.get(i).addLockKeys(keys);
+                }
+                Long scheduleId = schedules.get(i).getId();
+                if (scheduleId != null) {
+                    Reservation current = reservations.get(scheduleId);
+                    replaced.put(scheduleId, current);
+                    if (current != null) {
+                        current.addLockKeys(keys);
+                    }
+                }
+            }
+            List<Lock> held = lockAll(keys);
+            if (replaced.entrySet().stream().allMatch(entry -> reservations.get(entry.getKey()) == entry.getValue())) {
+                return held;
+            }
+            unlock(held);
+        }
+    }
+
+    /**
+     * @param keys the keys to lock, mapped to whether they are locked exclusively
+     */
+    private List<Lock> lockAll(Map<Object, Boolean> keys) {
+        loading.readLock().lock();
+        // a stripe shared by several keys is locked once, exclusively if any of them needs it
+        Map<ReadWriteLock, Boolean> exclusive = new IdentityHashMap<>();
+        keys.forEach((key, write) -> exclusive.merge(locks.get(key), write, Boolean::logicalOr));
+        List<Lock> held = new ArrayList<>(exclusive.size());
+        // bulkGet returns the stripes in a fixed order
+        for (ReadWriteLock stripe : locks.bulkGet(keys.keySet())) {
+            Boolean write = exclusive.remove(stripe);
+            if (write != null) {
+                Lock lock = write ? stripe.writeLock() : stripe.readLock();
+                lock.lock();
+                held.add(lock);
+            }
+        }
+        return held;
+    }
+
+    private void unlock(List<Lock> held) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            held.get(i).unlock();
+        }
+        loading.readLock().unlock();
+    }
+
+    /**
+     * @param scheduleId schedule being saved, whose own bookings are ignored; null for a new schedule
+     * @return description of the first overlapping booking, or null if the slot is free for everybody
+     */
+    private String findConflict(Long scheduleId, Reservation reservation) {
+        for (Long employeeId : reservation.employeeIds) {
+            String conflict = findOverlap(employeeBookings.get(employeeId), scheduleId, reservation, "Employee " + employeeId);
+            if (conflict != null) {
+                return conflict;
+            }
+        }
+        for (Long petId : reservation.petIds) {
+            String conflict = findOverlap(petBookings.get(petId), scheduleId, reservation, "Pet " + petId);
+            if (conflict != null) {
+                return conflict;
+            }
+        }
+        return null;
+    }
+
+    private static String findOverlap(Bookings bookings, Long scheduleId, Reservation reservation, String who) {
+        if (bookings == null) {
+            return null;
+        }
+        if (!reservation.recurring) {
+            if (reservation.occursOn(reservation.first)) {
+                LocalDateTime start = reservation.first.atTime(reservation.startTime);
+                // single bookings do not overlap each other, so only the last one starting before the new slot ends can reach into it
+                Map.Entry<LocalDateTime, Booking> last = bookings.slots.lowerEntry(reservation.first.atTime(reservation.endTime));
+                while (last != null && last.getValue().isOf(scheduleId)) {
+                    last = bookings.slots.lowerEntry(last.getKey());
+                }
+                if (last != null && last.getKey().toLocalDate().atTime(last.getValue().reservation.endTime).isAfter(start)) {
+                    return describe(who, reservation, reservation.first, last.getValue());
+                }
+            }
+        } else {
+            for (Map.Entry<LocalDateTime, Booking> slot : bookings.slots
+                    .subMap(reservation.first.atStartOfDay(), reservation.last.plusDays(1).atStartOfDay()).entrySet()) {
+                Booking booking = slot.getValue();
+                LocalDate date = slot.getKey().toLocalDate();
+                if (!booking.isOf(scheduleId) && reservation.overlapsTimeOf(booking.reservation) && reservation.occursOn(date)) {
+                    return describe(who, reservation, date, booking);
+                }
+            }
+        }
+        for (Booking booking : bookings.series) {
+            if (!booking.isOf(scheduleId) && reservation.overlapsTimeOf(booking.reservation)) {
+                LocalDate date = firstCommonDate(reservation, booking.reservation);
+                if (date != null) {
+                    return describe(who, reservation, date, booking);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first date both reservations take place on. The dates on which both rules fall repeat
+     * every least common multiple of their periods, so once the first is found the others are stepped
+     * through only while they are cancelled in one of the reservations.
+     *
+     * @return the date, or null if they never take place on the same date
+     */
+    private static LocalDate firstCommonDate(Reservation a, Reservation b) {
+        LocalDate from = a.first.isAfter(b.first) ? a.first : b.first;
+        LocalDate to = a.last.isBefore(b.last) ? a.last : b.last;
+        if (from.isAfter(to)) {
+            return null;
+        }
+        // the dates of a from on fall on b's rule once every b.period / gcd of them, or never
+        long gcd = LongMath.gcd(a.period, b.period);
+        LocalDate date = a.first.plusDays((ChronoUnit.DAYS.between(a.first, from) + a.period - 1) / a.period * a.period);
+        for (long i = 0; i < b.period / gcd && !date.isAfter(to) && !b.isPeriodFromFirst(date); i++) {
+            date = date.plusDays(a.period);
+        }
+        if (date.isAfter(to) || !b.isPeriodFromFirst(date)) {
+            return null;
+        }
+        long common = a.period / gcd * b.period;
+        while (!date.isAfter(to) && (a.cancelled.contains(date) || b.cancelled.contains(date))) {
+            date = date.plusDays(common);
+        }
+        return date.isAfter(to) ? null : date;
+    }
+
+    private static String describe(String who, Reservation reservation, LocalDate date, Booking booking) {
+        String by = booking.scheduleId == null ? "an earlier schedule of the same request" : "schedule " + booking.scheduleId;
+        return who + " is already booked by " + by + " between " + date.atTime(reservation.startTime)
+                + " and " + date.atTime(reservation.endTime) + ".";
+    }
+
+    private void add(Long scheduleId, Reservation reservation) {
+        Booking booking = new Booking(scheduleId, reservation);
+        for (Long employeeId : reservation.employeeIds) {
+            add(employeeBookings, employeeId, booking);
+        }
+        for (Long petId : reservation.petIds) {
+            add(petBookings, petId, booking);
+        }
+    }
+
+    private static void add(Map<Long, Bookings> bookingsById, Long id, Booking booking) {
+        bookingsById.compute(id, (key, bookings) -> {
+            Bookings added = bookings == null ? new Bookings() : bookings;
+            added.add(booking);
+            return added;
+        });
+    }
+
+    private void remove(Long scheduleId, Reservation reservation) {
+        for (Long employeeId : reservation.employeeIds) {
+            remove(employeeBookings, employeeId, scheduleId, reservation);
+        }
+        for (Long petId : reservation.petIds) {
+            remove(petBookings, petId, scheduleId, reservation);
+        }
+    }
+
+    /**
+     * Drops the bookings of an employee or pet once the last one is removed. Single schedules on other
+     * dates of the same employee or pet only share its stripe lock, so adding and removing run in one
+     * compute of the map: an add either lands in the bookings before they are dropped, or creates new ones.
+     */
+    private static void remove(Map<Long, Bookings> bookingsById, Long id, Long scheduleId, Reservation reservation) {
+        bookingsById.computeIfPresent(id, (key, bookings) -> {
+            bookings.remove(scheduleId, reservation);
+            return bookings.isEmpty() ? null : bookings;
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.udacity.jdnd.course3.critter.mapper;
+
+import com.udacity.jdnd.course3.critter.entity.Customer;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Copies customer data between the entity and its DTO with plain getters and setters.
+ */
+@Component
+public class CustomerMapper {
+
+    /**
+     * Copies user input onto a new or existing customer. The id is never copied and pets are assigned by UserService.
+     */
+    public void copyToEntity(CustomerRequest dto, Customer customer) {
+        customer.setName(dto.getName());
+        customer.setPhoneNumber(dto.getPhoneNumber());
+        customer.setNotes(dto.getNotes());
+    }
+
+    /**
+     * @param petIds ids of the customer's pets, read by the caller so the lazy pets collection is not required
+     */
+    public CustomerRequest toDTO(Customer customer, List<Long> petIds) {
+        CustomerRequest dto = new CustomerRequest();
+        dto.setId(customer.getId());
+        dto.setName(customer.getName());
+        dto.setPhoneNumber(customer.getPhoneNumber());
+        dto.setNotes(customer.getNotes());
+        dto.setPetIds(petIds);
+        return dto;
+    }
+}
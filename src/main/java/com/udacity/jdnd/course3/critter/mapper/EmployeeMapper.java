@@ -0,0 +1,31 @@
+package com.udacity.jdnd.course3.critter.mapper;
+
+import com.udacity.jdnd.course3.critter.entity.Employee;
+import com.udacity.jdnd.course3.critter.request.EmployeeRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies employee data between the entity and its DTO with plain getters and setters.
+ * Skill and day sets are shared, not copied.
+ */
+@Component
+public class EmployeeMapper {
+
+    /**
+     * Copies user input onto a new or existing employee. The id is never copied.
+     */
+    public void copyToEntity(EmployeeRequest dto, Employee employee) {
+        employee.setName(dto.getName());
+        employee.setSkills(dto.getSkills());
+        employee.setDaysAvailable(dto.getDaysAvailable());
+    }
+
+    public EmployeeRequest toDTO(Employee employee) {
+        EmployeeRequest dto = new EmployeeRequest();
+        dto.setId(employee.getId());
+        dto.setName(employee.getName());
+        dto.setSkills(employee.getSkills());
+        dto.setDaysAvailable(employee.getDaysAvailable());
+        return dto;
+    }
+}
@@ -0,0 +1,32 @@
+package com.udacity.jdnd.course3.critter.mapper;
+
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies pet data between the entity and its DTO with plain getters and setters.
+ */
+@Component
+public class PetMapper {
+
+    /**
+     * Copies user input onto a new or existing pet. The id is never copied and the owner is set by PetService.
+     */
+    public void copyToEntity(PetRequest dto, Pet pet) {
+        pet.setType(dto.getType());
+        pet.setName(dto.getName());
+        pet.setBirthDate(dto.getBirthDate());
+        pet.setNotes(dto.getNotes());
+    }
+
+    public PetRequest toDTO(Pet pet) {
+        return new PetRequest(
+                pet.getId(),
+                pet.getType(),
+                pet.getName(),
+                pet.getOwner().getId(),
+                pet.getBirthDate(),
+                pet.getNotes());
+    }
+}
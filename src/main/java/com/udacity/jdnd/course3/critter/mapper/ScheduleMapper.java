@@ -0,0 +1,76 @@
+package com.udacity.jdnd.course3.critter.mapper;
+
+import com.udacity.jdnd.course3.critter.entity.Employee;
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Copies schedule data between the entity and its DTO with plain getters and setters.
+ * The activity set is shared, not copied.
+ */
+@Component
+public class ScheduleMapper {
+
+    /**
+     * Copies the date, times, activities and recurrence onto a new or existing schedule, and the exception
+     * dates when the DTO has them. The id is never copied; employees and pets are resolved from their ids by the caller.
+     */
+    public void copyToEntity(ScheduleRequest dto, Schedule schedule) {
+        schedule.setDate(dto.getDate());
+        schedule.setStartTime(dto.getStartTime());
+        schedule.setEndTime(dto.getEndTime());
+        schedule.setActivities(dto.getActivities());
+        schedule.setRecurrence(dto.getRecurrence());
+        schedule.setRecurrenceInterval(dto.getRecurrenceInterval());
+        schedule.setRecurrenceUntil(dto.getRecurrenceUntil());
+        // a request without exception dates keeps the cancelled occurrences of an existing series
+        if (dto.getExceptionDates() != null) {
+            schedule.getExceptionDates().clear();
+            schedule.getExceptionDates().addAll(dto.getExceptionDates());
+        }
+    }
+
+    /**
+     * @param employeeIds ids of the schedule's employees, read by the caller
+     * @param petIds ids of the schedule's pets, read by the caller
+     * @param exceptionDates cancelled occurrences of the schedule, read by the caller
+     */
+    public ScheduleRequest toDTO(Schedule schedule, List<Long> employeeIds, List<Long> petIds, Set<LocalDate> exceptionDates) {
+        ScheduleRequest dto = new ScheduleRequest();
+        dto.setId(schedule.getId());
+        dto.setDate(schedule.getDate());
+        dto.setStartTime(schedule.getStartTime());
+        dto.setEndTime(schedule.getEndTime());
+        dto.setActivities(schedule.getActivities());
+        dto.setRecurrence(schedule.getRecurrence());
+        dto.setRecurrenceInterval(schedule.getRecurrenceInterval());
+        dto.setRecurrenceUntil(schedule.getRecurrenceUntil());
+        dto.setExceptionDates(exceptionDates);
+        dto.setEmployeeIds(employeeIds);
+        dto.setPetIds(petIds);
+        return dto;
+    }
+
+    /**
+     * Converts a schedule whose employees, pets and exception dates are already loaded, such as one that was just saved.
+     */
+    public ScheduleRequest toDTO(Schedule schedule) {
+        List<Long> employeeIds = new ArrayList<>(schedule.getEmployees().size());
+        for (Employee employee : schedule.getEmployees()) {
+            employeeIds.add(employee.getId());
+        }
+        List<Long> petIds = new ArrayList<>(schedule.getPets().size());
+        for (Pet pet : schedule.getPets()) {
+            petIds.add(pet.getId());
+        }
+        return toDTO(schedule, employeeIds, petIds, new TreeSet<>(schedule.getExceptionDates()));
+    }
+}
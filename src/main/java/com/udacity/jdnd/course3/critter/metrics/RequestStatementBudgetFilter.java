@@ -0,0 +1,36 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements of each HTTP request against critter.sql.request-budget.
+ */
+@Component
+public class RequestStatementBudgetFilter extends OncePerRequestFilter {
+
+    private final StatementBudget statementBudget;
+
+    private final int budget;
+
+    public RequestStatementBudgetFilter(StatementBudget statementBudget,
+                                        @Value("${critter.sql.request-budget:50}") int budget) {
+        this.statementBudget = statementBudget;
+        this.budget = budget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (StatementBudget.Scope scope = statementBudget.open(request.getMethod() + " " + request.getRequestURI(), budget)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public method of PetService, UserService and ScheduleService as "critter.service",
+ * tagged with the service class, the method and the exception thrown ("none" on success).
+ *
+ * Calls a service makes to its own methods do not go through the proxy and are not timed separately.
+ */
+@Aspect
+@Component
+public class ServiceTimingAspect {
+
+    public static final String METRIC_NAME = "critter.service";
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.udacity.jdnd.course3.critter.service.PetService.*(..))" +
+            " || execution(public * com.udacity.jdnd.course3.critter.service.UserService.*(..))" +
+            " || execution(public * com.udacity.jdnd.course3.critter.service.ScheduleService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            exception = throwable.getClass().getSimpleName();
+            throw throwable;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Counts the SQL statements executed by the current thread inside named scopes, such as one
+ * HTTP request or one transactional method, and warns when a scope goes over its budget.
+ *
+ * Scopes nest: a statement counts towards every scope open on the thread. The first statement
+ * over budget is logged with the stack that issued it, which is usually enough to find an N+1
+ * loop over a lazy collection.
+ */
+@Component
+public class StatementBudget {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementBudget.class);
+
+    private final ThreadLocal<Deque<Scope>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Opens a scope on the current thread. It must be closed on the same thread, innermost first.
+     *
+     * @param name describes the scope in log messages, e.g. "GET /pet/1" or "PetService.save"
+     * @param budget most statements the scope may execute without a warning
+     */
+    public Scope open(String name, int budget) {
+        Scope scope = new Scope(name, budget);
+        scopes.get().push(scope);
+        return scope;
+    }
+
+    /**
+     * Counts one executed statement towards every open scope of the current thread.
+     */
+    void record(String sql) {
+        for (Scope scope : scopes.get()) {
+            scope.count++;
+            if (scope.count == scope.budget + 1) {
+                log.warn("{} exceeded its budget of {} SQL statements with: {}", scope.name, scope.budget, sql,
+                        new Throwable("Statement over budget"));
+            }
+        }
+    }
+
+    public final class Scope implements AutoCloseable {
+        private final String name;
+        private final int budget;
+        private int count;
+
+        private Scope(String name, int budget) {
+            this.name = name;
+            this.budget = budget;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getBudget() {
+            return budget;
+        }
+
+        public boolean isExceeded() {
+            return count > budget;
+        }
+
+        @Override
+        public void close() {
+            Deque<Scope> open = scopes.get();
+            if (open.peek() != this) {
+                throw new IllegalStateException("Statement scopes must be closed innermost first: " + name);
+            }
+            open.pop();
+            if (isExceeded()) {
+                log.warn("{} executed {} SQL statements, budget is {}", name, count, budget);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the SQL statements of each @Transactional method against critter.sql.transaction-budget.
+ *
+ * Runs outside the transaction advice so the statements flushed on commit are counted too.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TransactionStatementBudgetAspect {
+
+    private final StatementBudget statementBudget;
+
+    private final int budget;
+
+    public TransactionStatementBudgetAspect(StatementBudget statementBudget,
+                                            @Value("${critter.sql.transaction-budget:25}") int budget) {
+        this.statementBudget = statementBudget;
+        this.budget = budget;
+    }
+
+    @Around("@annotation(javax.transaction.Transactional)" +
+            " || @annotation(org.springframework.transaction.annotation.Transactional)")
+    public Object count(ProceedingJoinPoint joinPoint) throws Throwable {
+        String name = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        try (StatementBudget.Scope scope = statementBudget.open(name, budget)) {
+            return joinPoint.proceed();
+        }
+    }
+}
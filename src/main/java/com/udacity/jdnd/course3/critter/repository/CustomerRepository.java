@@ -1,14 +1,67 @@
 package com.udacity.jdnd.course3.critter.repository;
 
 import com.udacity.jdnd.course3.critter.entity.Customer;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     @Query(value = "SELECT * FROM Customer AS c INNER JOIN User AS u ON u.id = c.id INNER JOIN Pet AS p ON c.id = p.owner_id where p.id = :id", nativeQuery = true)
     Optional<Customer> findOptionalByPetId(@Param("id") Long id);
+
+    /**
+     * Reads the owner of a pet as a DTO without its pet ids.
+     */
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.CustomerRequest(c.id, c.name, c.phoneNumber, c.notes) " +
+            "FROM Pet p JOIN p.owner c WHERE p.id = :petId")
+    Optional<CustomerRequest> findRequestByPetId(@Param("petId") Long petId);
+
+    /**
+     * Reads a customer as a DTO without its pet ids.
+     */
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.CustomerRequest(c.id, c.name, c.phoneNumber, c.notes) " +
+            "FROM Customer c WHERE c.id = :id")
+    Optional<CustomerRequest> findRequestById(@Param("id") Long id);
+
+    /**
+     * Reads every customer as a DTO without its pet ids, which the caller adds with one query per batch.
+     */
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.CustomerRequest(c.id, c.name, c.phoneNumber, c.notes) " +
+            "FROM Customer c ORDER BY c.id")
+    List<CustomerRequest> findAllRequests();
+
+    /**
+     * Reads one keyset page of customers as DTOs without their pet ids.
+     */
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.CustomerRequest(c.id, c.name, c.phoneNumber, c.notes) " +
+            "FROM Customer c WHERE c.id > :after ORDER BY c.id")
+    List<CustomerRequest> findRequestsAfter(@Param("after") Long after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.CustomerRequest(c.id, c.name, c.phoneNumber, c.notes) " +
+            "FROM Customer c ORDER BY c.id")
+    Stream<CustomerRequest> streamAllRequests();
+
+    @Query("SELECT COUNT(c) FROM Customer c WHERE c.notes IS NOT NULL AND c.notes <> ''")
+    long countWithNotes();
+
+    /**
+     * Reads the notes of every customer that has some, to rebuild the notes index.
+     *
+     * @return rows of [Long id, String notes]
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c.id, c.notes FROM Customer c WHERE c.notes IS NOT NULL AND c.notes <> ''")
+    Stream<Object[]> streamNotes();
 }
@@ -1,12 +1,12 @@
 package com.udacity.jdnd.course3.critter.repository;
 
 import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.index.EnumMask;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
-import java.math.BigInteger;
 import java.time.DayOfWeek;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -18,42 +18,42 @@ public class EmployeeManagedRepository {
     EntityManager entityManager;
 
     /**
-     * Find employee IDs of the employees that have ALL the skills requested.
-     * This is done through the use of a native query grouping skills and counting instances.
+     * Find employee IDs of the employees that have ALL the skills requested on the given day.
      *
-     * The instances of the count should match the number of skills sent to the method.
+     * Skills and days are stored as bitmasks on the employee row, so "has all skills" is
+     * (skills AND required) = required. Bitwise operators differ between MySQL and H2, and
+     * neither can use an index for them, so the test is expanded into the (small) list of
+     * mask values that satisfy it: at most 32 skill masks and 64 day masks. The resulting
+     * IN lists are portable and are answered from the (skills, days_available) index.
      *
-     * NOTE - Hibernate does not have a way to execute a query to find
-     * all employees that have ALL skills.  The only way I could solve this
-     * problem was with a native query.
-     *
-     * @param skillsSet
-     * @return
+     * @param skillsSet skills every returned employee must have
+     * @param dayOfWeek day the employees must be available
+     * @return ids of the matching employees in ascending order
      */
     public List<Long> findEmployeeIdsWithAllSkillsOnDay(Set<EmployeeSkill> skillsSet, DayOfWeek dayOfWeek) {
-        // query to return a list of ids that include all the given skills.
-        String selectStmt = "select e.id " +
-                "FROM Employee AS e, Employee_Skill AS es, Day_of_week AS d " +
-                "WHERE e.id = es.id " +
-                "AND e.id = d.id " +
-                "AND es.skill in (" +
-                    skillsSet
-                        .stream()
-                        .map((skill) -> { return String.valueOf(skill.ordinal()); })
-                        .collect(Collectors.joining(",")) +
-                ") AND d.day = " + dayOfWeek.ordinal() + " " +
-                "GROUP BY e.id HAVING count(es.skill) = " + skillsSet.size();
-
-        // Create the query and set parameters
-        Query selectQuery = entityManager.createNativeQuery(selectStmt);
-
-        // execute the query
-        List<BigInteger> result = selectQuery.getResultList();
-
-        // Convert native result to Long from BigInteger to match Employee ID type.
+        String selectStmt = "SELECT e.id FROM employee AS e " +
+                "WHERE e.skills IN (:skillMasks) AND e.days_available IN (:dayMasks) ORDER BY e.id";
+
+        Query selectQuery = entityManager.createNativeQuery(selectStmt)
+                .setParameter("skillMasks", EnumMask.supersetsOf(EnumMask.of(skillsSet), EmployeeSkill.class))
+                .setParameter("dayMasks", EnumMask.supersetsOf(EnumMask.bit(dayOfWeek), DayOfWeek.class));
+
+        List<Number> result = selectQuery.getResultList();
+
+        // Convert native result to Long to match Employee ID type.
         return result.stream()
-                .map(BigInteger::longValue)
+                .map(Number::longValue)
                 .collect(Collectors.toList());
+    }
 
+    /**
+     * Find the skills and availability of every employee. Used to build the in-memory availability index.
+     *
+     * @return rows of [Long id, Set&lt;EmployeeSkill&gt; skills, Set&lt;DayOfWeek&gt; daysAvailable]
+     */
+    public List<Object[]> findAllEmployeeAvailability() {
+        return entityManager
+                .createQuery("SELECT e.id, e.skills, e.daysAvailable FROM Employee e", Object[].class)
+                .getResultList();
     }
 }
@@ -0,0 +1,113 @@
+package com.udacity.jdnd.course3.critter.repository;
+
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public class PetManagedRepository {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Finds one keyset page of the pets matching every filter given, as DTOs.
+     *
+     * Only the filters that are set are added to the query, so each combination has its own
+     * index-backed plan: type alone or with a birth date range uses idx_pet_type_birth_date, a birth
+     * date range alone idx_pet_birth_date and a name prefix idx_pet_name. The pets are sorted along the
+     * index, so a later page continues where the previous one ended instead of filtering the whole
+     * prefix or range again: by (name, id) with a name prefix, else by (birth date, id) with a birth date
+     * bound, else by id. The prefix is matched with LIKE, case-sensitively: the MySQL column has a binary
+     * collation (V6), like PetTypeIndex.
+     *
+     * @param type pet type, or null for any
+     * @param bornFrom earliest birth date, or null for no lower bound
+     * @param bornTo latest birth date, or null for no upper bound
+     * @param namePrefix start of the name, or null or empty for any name
+     * @param afterId the page starts after this pet in the search order; 0, or a pet without the name
+     *                or birth date the page is sorted by, starts at the first match
+     * @param limit maximum number of pets returned
+     * @return pets in search order
+     */
+    public List<PetRequest> search(PetType type, LocalDate bornFrom, LocalDate bornTo, String namePrefix, long afterId, int limit) {
+        boolean hasPrefix = namePrefix != null && !namePrefix.isEmpty();
+        String orderBy = hasPrefix ? "p.name" : bornFrom != null || bornTo != null ? "p.birthDate" : null;
+        Object afterValue = afterId > 0 && orderBy != null ? findSortValue(orderBy, afterId) : null;
+
+        StringBuilder jpql = new StringBuilder("SELECT new com.udacity.jdnd.course3.critter.request.PetRequest(" +
+                "p.id, p.type, p.name, p.owner.id, p.birthDate, p.notes) FROM Pet p WHERE 1 = 1");
+        // the first page has no keyset bound, which leaves the planner free to pick the filter's index
+        if (afterValue != null) {
+            // the first condition alone bounds the index range, the second skips the pets up to the previous page's last
+            jpql.append(" AND ").append(orderBy).append(" >= :afterValue AND (")
+                    .append(orderBy).append(" > :afterValue OR p.id > :after)");
+        } else if (afterId > 0 && orderBy == null) {
+            jpql.append(" AND p.id > :after");
+        }
+        if (type != null) {
+            jpql.append(" AND p.type = :type");
+        }
+        if (bornFrom != null) {
+            jpql.append(" AND p.birthDate >= :bornFrom");
+        }
+        if (bornTo != null) {
+            jpql.append(" AND p.birthDate <= :bornTo");
+        }
+        if (hasPrefix) {
+            jpql.append(" AND p.name LIKE :namePattern ESCAPE '!'");
+        }
+        jpql.append(orderBy == null ? " ORDER BY p.id" : " ORDER BY " + orderBy + ", p.id");
+
+        TypedQuery<PetRequest> query = entityManager.createQuery(jpql.toString(), PetRequest.class)
+                .setMaxResults(limit);
+        if (afterValue != null) {
+            query.setParameter("afterValue", afterValue);
+        }
+        if (afterValue != null || afterId > 0 && orderBy == null) {
+            query.setParameter("after", afterId);
+        }
+        if (type != null) {
+            query.setParameter("type", type);
+        }
+        if (bornFrom != null) {
+            query.setParameter("bornFrom", bornFrom);
+        }
+        if (bornTo != null) {
+            query.setParameter("bornTo", bornTo);
+        }
+        if (hasPrefix) {
+            // the prefix is matched literally: LIKE wildcards typed by the user are escaped
+            query.setParameter("namePattern", namePrefix.replaceAll("([!%_])", "!$1") + "%");
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * @param path p.name or p.birthDate
+     * @return the value of the pet, or null if it has none or does not exist
+     */
+    private Object findSortValue(String path, long petId) {
+        List<Object> values = entityManager.createQuery("SELECT " + path + " FROM Pet p WHERE p.id = :id", Object.class)
+                .setParameter("id", petId)
+                .getResultList();
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Find the type, name and birth date of every pet. Used to build the in-memory pet type index.
+     *
+     * @return rows of [Long id, PetType type, String name, LocalDate birthDate]
+     */
+    public List<Object[]> findAllPetSearchFields() {
+        return entityManager
+                .createQuery("SELECT p.id, p.type, p.name, p.birthDate FROM Pet p", Object[].class)
+                .getResultList();
+    }
+}
@@ -1,10 +1,86 @@
 package com.udacity.jdnd.course3.critter.repository;
 
 import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface PetRepository extends JpaRepository<Pet, Long> {
+
+    /**
+     * Served from the query cache until the pet table is written; the pets themselves come from the entity cache.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Pet> findByOwnerId(Long ownerId);
+
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.PetRequest(p.id, p.type, p.name, p.owner.id, p.birthDate, p.notes) " +
+            "FROM Pet p WHERE p.id = :id")
+    Optional<PetRequest> findRequestById(@Param("id") Long id);
+
+    @Query("SELECT p.version FROM Pet p WHERE p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Reads the pets of an owner as DTOs, served from the query cache until the pet table is written.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.PetRequest(p.id, p.type, p.name, p.owner.id, p.birthDate, p.notes) " +
+            "FROM Pet p WHERE p.owner.id = :ownerId ORDER BY p.id")
+    List<PetRequest> findRequestsByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.PetRequest(p.id, p.type, p.name, p.owner.id, p.birthDate, p.notes) " +
+            "FROM Pet p ORDER BY p.id")
+    List<PetRequest> findAllRequests();
+
+    /**
+     * Reads one keyset page of pets as DTOs. The owner id comes from the foreign key column,
+     * so neither the owner nor any managed pet is loaded.
+     */
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.PetRequest(p.id, p.type, p.name, p.owner.id, p.birthDate, p.notes) " +
+            "FROM Pet p WHERE p.id > :after ORDER BY p.id")
+    List<PetRequest> findRequestsAfter(@Param("after") Long after, Pageable pageable);
+
+    /**
+     * Reads the pets with the given ids as DTOs, without loading the owners or any managed pet.
+     */
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.PetRequest(p.id, p.type, p.name, p.owner.id, p.birthDate, p.notes) " +
+            "FROM Pet p WHERE p.id IN :ids ORDER BY p.id")
+    List<PetRequest> findRequestsByIds(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.udacity.jdnd.course3.critter.request.PetRequest(p.id, p.type, p.name, p.owner.id, p.birthDate, p.notes) " +
+            "FROM Pet p ORDER BY p.id")
+    Stream<PetRequest> streamAllRequests();
+
+    @Query("SELECT COUNT(p) FROM Pet p WHERE p.notes IS NOT NULL AND p.notes <> ''")
+    long countWithNotes();
+
+    /**
+     * Reads the notes of every pet that has some, to rebuild the notes index.
+     *
+     * @return rows of [Long id, String notes]
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id, p.notes FROM Pet p WHERE p.notes IS NOT NULL AND p.notes <> ''")
+    Stream<Object[]> streamNotes();
+
+    /**
+     * Reads the pet ids of several owners at once.
+     *
+     * @return rows of [Long ownerId, Long petId]
+     */
+    @Query("SELECT p.owner.id, p.id FROM Pet p WHERE p.owner.id IN :ownerIds ORDER BY p.id")
+    List<Object[]> findIdsByOwnerIds(@Param("ownerIds") Collection<Long> ownerIds);
 }
@@ -1,7 +1,120 @@
 package com.udacity.jdnd.course3.critter.repository;
 
 import com.udacity.jdnd.course3.critter.entity.Schedule;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * The date range lookups return every schedule with an occurrence that may fall in the range:
+ * single schedules dated in it and recurring schedules whose series overlaps it.
+ */
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
+
+    @Query("SELECT s FROM Schedule s JOIN s.pets p WHERE p.id = :petId AND s.date <= :to AND s.lastDate >= :from ORDER BY s.id")
+    List<Schedule> findByPetId(@Param("petId") Long petId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT s FROM Schedule s JOIN s.employees e WHERE e.id = :employeeId AND s.date <= :to AND s.lastDate >= :from ORDER BY s.id")
+    List<Schedule> findByEmployeeId(@Param("employeeId") Long employeeId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Finds the schedules of all pets of a customer in one statement (schedule_pet -> pet -> customer).
+     * A schedule with several pets of the same customer is returned once.
+     */
+    @Query("SELECT DISTINCT s FROM Schedule s JOIN s.pets p WHERE p.owner.id = :customerId AND s.date <= :to AND s.lastDate >= :from ORDER BY s.id")
+    List<Schedule> findByCustomerId(@Param("customerId") Long customerId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Reads the id and version of the schedules findByPetId returns, to compute the ETag of the list.
+     *
+     * @return rows of [Long scheduleId, Long version] in id order
+     */
+    @Query("SELECT s.id, s.version FROM Schedule s JOIN s.pets p WHERE p.id = :petId AND s.date <= :to AND s.lastDate >= :from ORDER BY s.id")
+    List<Object[]> findVersionsByPetId(@Param("petId") Long petId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * @return rows of [Long scheduleId, Long version] of the schedules findByEmployeeId returns, in id order
+     */
+    @Query("SELECT s.id, s.version FROM Schedule s JOIN s.employees e WHERE e.id = :employeeId AND s.date <= :to AND s.lastDate >= :from ORDER BY s.id")
+    List<Object[]> findVersionsByEmployeeId(@Param("employeeId") Long employeeId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * @return rows of [Long scheduleId, Long version] of the schedules findByCustomerId returns, in id order
+     */
+    @Query("SELECT DISTINCT s.id, s.version FROM Schedule s JOIN s.pets p WHERE p.owner.id = :customerId AND s.date <= :to AND s.lastDate >= :from ORDER BY s.id")
+    List<Object[]> findVersionsByCustomerId(@Param("customerId") Long customerId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * @return rows of [Long scheduleId, Long version] of every schedule, in id order
+     */
+    @Query("SELECT s.id, s.version FROM Schedule s ORDER BY s.id")
+    List<Object[]> findAllVersions();
+
+    /**
+     * Reads the schedule_employee join rows of several schedules at once.
+     *
+     * @return rows of [Long scheduleId, Long employeeId]
+     */
+    @Query("SELECT s.id, e.id FROM Schedule s JOIN s.employees e WHERE s.id IN :scheduleIds ORDER BY s.id, e.id")
+    List<Object[]> findEmployeeIdsByScheduleIds(@Param("scheduleIds") Collection<Long> scheduleIds);
+
+    /**
+     * Reads the schedule_pet join rows of several schedules at once.
+     *
+     * @return rows of [Long scheduleId, Long petId]
+     */
+    @Query("SELECT s.id, p.id FROM Schedule s JOIN s.pets p WHERE s.id IN :scheduleIds ORDER BY s.id, p.id")
+    List<Object[]> findPetIdsByScheduleIds(@Param("scheduleIds") Collection<Long> scheduleIds);
+
+    /**
+     * Reads the cancelled occurrences of several recurring schedules at once.
+     *
+     * @return rows of [Long scheduleId, LocalDate date]
+     */
+    @Query("SELECT s.id, x FROM Schedule s JOIN s.exceptionDates x WHERE s.id IN :scheduleIds")
+    List<Object[]> findExceptionDatesByScheduleIds(@Param("scheduleIds") Collection<Long> scheduleIds);
+
+    /**
+     * Reads the booked time slot and recurrence of every schedule once per employee, to load the interval index.
+     *
+     * @return rows of [Long scheduleId, LocalDate date, LocalTime startTime, LocalTime endTime,
+     *                  Recurrence recurrence, Integer recurrenceInterval, LocalDate recurrenceUntil, Long employeeId]
+     */
+    @Query("SELECT s.id, s.date, s.startTime, s.endTime, s.recurrence, s.recurrenceInterval, s.recurrenceUntil, e.id "
+            + "FROM Schedule s JOIN s.employees e ORDER BY s.id")
+    List<Object[]> findAllEmployeeBookings();
+
+    /**
+     * Reads the booked time slot and recurrence of every schedule once per pet, to load the interval index.
+     *
+     * @return rows of [Long scheduleId, LocalDate date, LocalTime startTime, LocalTime endTime,
+     *                  Recurrence recurrence, Integer recurrenceInterval, LocalDate recurrenceUntil, Long petId]
+     */
+    @Query("SELECT s.id, s.date, s.startTime, s.endTime, s.recurrence, s.recurrenceInterval, s.recurrenceUntil, p.id "
+            + "FROM Schedule s JOIN s.pets p ORDER BY s.id")
+    List<Object[]> findAllPetBookings();
+
+    /**
+     * Reads the cancelled occurrences of every recurring schedule, to load the interval index.
+     *
+     * @return rows of [Long scheduleId, LocalDate date]
+     */
+    @Query("SELECT s.id, x FROM Schedule s JOIN s.exceptionDates x")
+    List<Object[]> findAllExceptionDates();
+
+    List<Schedule> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s FROM Schedule s ORDER BY s.id")
+    Stream<Schedule> streamAll();
 }
@@ -1,6 +1,7 @@
 package com.udacity.jdnd.course3.critter.request;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,10 +11,18 @@ import java.util.List;
  * to the database directly.
  */
 @Data
+@NoArgsConstructor
 public class CustomerRequest {
     private Long id;
     private String name;
     private String phoneNumber;
     private String notes;
     private List<Long> petIds = new ArrayList<>();
+
+    public CustomerRequest(Long id, String name, String phoneNumber, String notes) {
+        this.id = id;
+        this.name = name;
+        this.phoneNumber = phoneNumber;
+        this.notes = notes;
+    }
 }
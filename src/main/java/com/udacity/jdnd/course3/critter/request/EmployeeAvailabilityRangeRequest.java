@@ -0,0 +1,40 @@
+package com.udacity.jdnd.course3.critter.request;
+
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Represents a request to find available employees by skills on every day of a date range.
+ * Does not map to the database directly.
+ */
+public class EmployeeAvailabilityRangeRequest {
+    private Set<EmployeeSkill> skills;
+    private LocalDate from;
+    private LocalDate to;
+
+    public Set<EmployeeSkill> getSkills() {
+        return skills;
+    }
+
+    public void setSkills(Set<EmployeeSkill> skills) {
+        this.skills = skills;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+}
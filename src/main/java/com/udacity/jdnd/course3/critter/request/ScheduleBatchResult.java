@@ -0,0 +1,43 @@
+package com.udacity.jdnd.course3.critter.request;
+
+/**
+ * Represents the outcome of one schedule of a bulk creation request. Exactly one of
+ * schedule (created) or error (rejected) is set. Does not map to the database directly.
+ */
+public class ScheduleBatchResult {
+    private int index;
+    private ScheduleRequest schedule;
+    private String error;
+
+    public ScheduleBatchResult() {}
+
+    public ScheduleBatchResult(int index, ScheduleRequest schedule, String error) {
+        this.index = index;
+        this.schedule = schedule;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public ScheduleRequest getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(ScheduleRequest schedule) {
+        this.schedule = schedule;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -1,8 +1,12 @@
 package com.udacity.jdnd.course3.critter.request;
 
 import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.entity.Recurrence;
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+import org.springframework.lang.Nullable;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -11,13 +15,22 @@ import java.util.Set;
 /**
  * Represents the form that schedule request and response data takes. Does not map
  * to the database directly.
+ *
+ * A request with a recurrence creates a recurring schedule. The schedule lookups by pet, employee and
+ * customer return one DTO per occurrence, carrying the id of the recurring schedule and the occurrence's date.
  */
 public class ScheduleRequest {
     private long id;
     private List<Long> employeeIds = new ArrayList<>();
     private List<Long> petIds = new ArrayList<>();
     private LocalDate date;
+    private LocalTime startTime = Schedule.DAY_START;
+    private LocalTime endTime = Schedule.DAY_END;
     private Set<EmployeeSkill> activities = new HashSet<>();
+    private Recurrence recurrence;
+    private int recurrenceInterval = 1;
+    private LocalDate recurrenceUntil;
+    private Set<LocalDate> exceptionDates = new HashSet<>();
 
     public long getId() {
         return id;
@@ -51,6 +64,22 @@ public class ScheduleRequest {
         this.date = date;
     }
 
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+
     public Set<EmployeeSkill> getActivities() {
         return activities;
     }
@@ -58,4 +87,45 @@ public class ScheduleRequest {
     public void setActivities(Set<EmployeeSkill> activities) {
         this.activities = activities;
     }
+
+    /**
+     * @return how often the schedule repeats, or null for a single schedule
+     */
+    @Nullable
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    public void setRecurrence(Recurrence recurrence) {
+        this.recurrence = recurrence;
+    }
+
+    public int getRecurrenceInterval() {
+        return recurrenceInterval;
+    }
+
+    public void setRecurrenceInterval(int recurrenceInterval) {
+        this.recurrenceInterval = recurrenceInterval;
+    }
+
+    @Nullable
+    public LocalDate getRecurrenceUntil() {
+        return recurrenceUntil;
+    }
+
+    public void setRecurrenceUntil(LocalDate recurrenceUntil) {
+        this.recurrenceUntil = recurrenceUntil;
+    }
+
+    /**
+     * @return dates on which a recurring schedule does not take place
+     */
+    @Nullable
+    public Set<LocalDate> getExceptionDates() {
+        return exceptionDates;
+    }
+
+    public void setExceptionDates(Set<LocalDate> exceptionDates) {
+        this.exceptionDates = exceptionDates;
+    }
 }
@@ -0,0 +1,83 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.google.common.collect.Lists;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves lists of ids to entities with as few queries as possible.
+ *
+ * Ids are de-duplicated and fetched in IN batches no larger than critter.batch.in-clause-size
+ * (1000 by default, the strictest limit among the common dialects). Missing ids are found in
+ * one pass over the request using a hash lookup of the fetched entities.
+ */
+@Component
+public class BulkIdResolver {
+
+    private final int inClauseSize;
+
+    public BulkIdResolver(@Value("${critter.batch.in-clause-size:1000}") int inClauseSize) {
+        this.inClauseSize = inClauseSize;
+    }
+
+    /**
+     * Fetches every entity with one of the given ids. Ids that do not exist are simply absent.
+     *
+     * @return the entities keyed by id
+     */
+    public <T> Map<Long, T> findAllById(JpaRepository<T, Long> repository, Collection<Long> ids, Function<T, Long> idOf) {
+        Map<Long, T> found = new HashMap<>();
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(new LinkedHashSet<>(ids)), inClauseSize)) {
+            repository.findAllById(chunk).forEach(entity -> found.put(idOf.apply(entity), entity));
+        }
+        return found;
+    }
+
+    /**
+     * Fetches the entities with the given ids, in the order requested, and fails if any is missing.
+     * Repeated ids are returned once.
+     *
+     * @param missing builds the exception to throw from the comma separated list of missing ids
+     */
+    public <T> List<T> resolveAll(JpaRepository<T, Long> repository, List<Long> ids, Function<T, Long> idOf,
+                                  Function<String, ? extends RuntimeException> missing) {
+        Map<Long, T> found = findAllById(repository, ids, idOf);
+        List<T> resolved = new ArrayList<>(found.size());
+        Set<Long> seen = new HashSet<>();
+        List<Long> notFound = new ArrayList<>();
+        for (Long id : ids) {
+            if (!seen.add(id)) {
+                continue;
+            }
+            T entity = found.get(id);
+            if (entity == null) {
+                notFound.add(id);
+            } else {
+                resolved.add(entity);
+            }
+        }
+        if (!notFound.isEmpty()) {
+            throw missing.apply(notFound.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+        }
+        return resolved;
+    }
+
+    /**
+     * Runs a query taking an IN list once per batch of ids and concatenates the results.
+     */
+    public <R> List<R> inChunks(Collection<Long> ids, Function<List<Long>, List<R>> query) {
+        if (ids.size() <= inClauseSize) {
+            return ids.isEmpty() ? Collections.emptyList() : query.apply(new ArrayList<>(ids));
+        }
+        List<R> results = new ArrayList<>();
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(ids), inClauseSize)) {
+            results.addAll(query.apply(chunk));
+        }
+        return results;
+    }
+}
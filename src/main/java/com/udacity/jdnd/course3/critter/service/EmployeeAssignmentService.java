@@ -0,0 +1,93 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+import com.udacity.jdnd.course3.critter.index.EmployeeAvailabilityIndex;
+import com.udacity.jdnd.course3.critter.index.ScheduleIntervalIndex;
+import com.udacity.jdnd.course3.critter.solver.EmployeeAssignmentSolver;
+import com.udacity.jdnd.course3.critter.solver.Roster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Picks employees for schedules that are not saved yet, from the in-memory availability and booking
+ * indexes. Nothing is booked here: the schedules are booked, and checked again, when they are saved.
+ */
+@Service
+public class EmployeeAssignmentService {
+
+    @Autowired
+    EmployeeAvailabilityIndex employeeAvailabilityIndex;
+
+    @Autowired
+    ScheduleIntervalIndex scheduleIntervalIndex;
+
+    private final EmployeeAssignmentSolver solver;
+
+    public EmployeeAssignmentService(@Value("${critter.solver.time-budget-ms:500}") long timeBudgetMillis,
+                                     @Value("${critter.schedule.daily-capacity:1}") int dailyCapacity) {
+        this.solver = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), timeBudgetMillis, dailyCapacity);
+    }
+
+    /**
+     * Finds employees for every schedule that together have all its activities, work on its date,
+     * are free for its time slot and have room left that day, spreading the work evenly.
+     * A recurring schedule gets the same employees for all its occurrences. Pets are not checked.
+     *
+     * @param schedules schedules with their date, times and activities set
+     * @return employee ids for every schedule in list order; empty for a schedule that cannot be covered
+     *         or has no date, activities, valid time slot or valid recurrence
+     */
+    public List<List<Long>> assignEmployees(List<Schedule> schedules) {
+        List<EmployeeAssignmentSolver.Slot> slots = new ArrayList<>();
+        List<Integer> solvable = new ArrayList<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (int i = 0; i < schedules.size(); i++) {
+            Schedule s = schedules.get(i);
+            if (s.getDate() == null || s.getActivities() == null || s.getActivities().isEmpty()
+                    || s.getStartTime() == null || s.getEndTime() == null || !s.getStartTime().isBefore(s.getEndTime())) {
+                continue;
+            }
+            if (s.getRecurrence() == null) {
+                slots.add(new EmployeeAssignmentSolver.Slot(s.getDate(), s.getStartTime(), s.getEndTime(), s.getActivities()));
+            } else if (s.getRecurrenceUntil() != null && !s.getRecurrenceUntil().isBefore(s.getDate()) && s.getRecurrenceInterval() >= 1
+                    && !s.getRecurrenceUntil().isAfter(s.getDate().plusYears(Schedule.MAX_RECURRENCE_YEARS))) {
+                // the same bounds as booking, so the solver never walks more than ten years of occurrences
+                slots.add(new EmployeeAssignmentSolver.Slot(s.getDate(), s.getStartTime(), s.getEndTime(), s.getActivities(),
+                        () -> s.occurrencesBetween(s.getDate(), s.getRecurrenceUntil(), s.getExceptionDates())));
+            } else {
+                continue;
+            }
+            solvable.add(i);
+            LocalDate last = s.lastOccurrence();
+            from = from == null || s.getDate().isBefore(from) ? s.getDate() : from;
+            to = to == null || last.isAfter(to) ? last : to;
+        }
+
+        List<List<Long>> employeeIds = new ArrayList<>(Collections.nCopies(schedules.size(), Collections.<Long>emptyList()));
+        if (slots.isEmpty()) {
+            return employeeIds;
+        }
+
+        Roster roster = new Roster();
+        employeeAvailabilityIndex.forEachEmployee(roster::addEmployee);
+        // whole weeks, so the workload of each week counts every booking in it
+        scheduleIntervalIndex.findEmployeeBookings(roster.getEmployeeIds(),
+                from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                to.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)))
+                .forEach((id, bookings) -> bookings.forEach((start, end) -> roster.addBooking(id, start, end)));
+
+        List<List<Long>> solved = solver.solve(slots, roster);
+        for (int i = 0; i < solved.size(); i++) {
+            employeeIds.set(solvable.get(i), solved.get(i));
+        }
+        return employeeIds;
+    }
+}
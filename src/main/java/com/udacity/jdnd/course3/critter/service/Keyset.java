@@ -0,0 +1,55 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.google.common.collect.Iterators;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Limits shared by the keyset paginated and streamed list endpoints.
+ *
+ * A page is requested as "the next limit rows with an id greater than after", so a client
+ * pages through a table by passing the last id it received as the next after.
+ */
+public final class Keyset {
+
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * Number of streamed entities converted (and detached) together, so their related ids
+     * can be read with one query per chunk.
+     */
+    public static final int STREAM_CHUNK_SIZE = 500;
+
+    private Keyset() {}
+
+    static Pageable limit(int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    /**
+     * Hands a stream of DTOs to the action in chunks, so their related ids can be read with one query per chunk.
+     */
+    static <T> void forEachChunk(Stream<T> stream, Consumer<List<T>> action) {
+        try (Stream<T> closing = stream) {
+            Iterators.partition(closing.iterator(), STREAM_CHUNK_SIZE).forEachRemaining(action);
+        }
+    }
+
+    /**
+     * Hands a stream of managed entities to the action in chunks and detaches every chunk once it
+     * has been handled, so the persistence context never holds more than one chunk.
+     */
+    static <T> void forEachChunk(Stream<T> stream, EntityManager entityManager, Consumer<List<T>> action) {
+        try (Stream<T> closing = stream) {
+            Iterators.partition(closing.iterator(), STREAM_CHUNK_SIZE).forEachRemaining(chunk -> {
+                action.accept(chunk);
+                chunk.forEach(entityManager::detach);
+            });
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleVersionConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.function.Supplier;
+
+/**
+ * Runs a read-modify-write of a schedule again when another request updated the schedule first,
+ * which its @Version column detects at commit.
+ *
+ * Every attempt must run in a transaction of its own, so call this outside of one. Between attempts
+ * the persistence context is cleared, as an open session in view would otherwise hand back the stale
+ * schedule.
+ */
+@Component
+public class OptimisticRetry {
+
+    @Value("${critter.schedule.optimistic-retries:3}")
+    int retries;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * @param what names what is updated in the error message, e.g. "Schedule 42"
+     * @param attempt reads, changes and saves the schedule in its own transaction
+     * @throws ScheduleVersionConflictException if every attempt lost to a concurrent update
+     */
+    public <T> T run(String what, Supplier<T> attempt) {
+        for (int i = 0; ; i++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException exception) {
+                if (i >= retries) {
+                    throw new ScheduleVersionConflictException(what + " was updated concurrently "
+                            + (retries + 1) + " times, try again.");
+                }
+                entityManager.clear();
+            }
+        }
+    }
+}
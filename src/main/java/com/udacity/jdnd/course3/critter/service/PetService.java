@@ -2,17 +2,31 @@ package com.udacity.jdnd.course3.critter.service;
 
 import com.udacity.jdnd.course3.critter.entity.Customer;
 import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.PetType;
 import com.udacity.jdnd.course3.critter.exceptions.CustomerNotFoundException;
+import com.udacity.jdnd.course3.critter.index.NotesIndex;
+import com.udacity.jdnd.course3.critter.index.PetTypeIndex;
 import com.udacity.jdnd.course3.critter.repository.CustomerRepository;
+import com.udacity.jdnd.course3.critter.repository.PetManagedRepository;
 import com.udacity.jdnd.course3.critter.repository.PetRepository;
 import com.udacity.jdnd.course3.critter.exceptions.PetNotFoundException;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PetService {
@@ -23,31 +37,117 @@ public class PetService {
     @Autowired
     CustomerRepository customerRepository;
 
+    @Autowired
+    PetManagedRepository petManagedRepository;
+
+    @Autowired
+    PetTypeIndex petTypeIndex;
+
+    @Autowired
+    NotesIndex notesIndex;
+
+    @Autowired
+    BulkIdResolver bulkIdResolver;
+
     public Optional<Pet> getPet(Long id) {
         return petRepository.findById(id);
     }
 
+    /**
+     * Reads a pet as a DTO, notes included, with one query and without loading the entity.
+     */
+    @Transactional(readOnly = true)
+    public Optional<PetRequest> getPetRequest(Long id) {
+        return petRepository.findRequestById(id);
+    }
+
+    /**
+     * Reads the version of a pet, without loading it.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersion(Long id) {
+        return petRepository.findVersionById(id);
+    }
+
     public List<Pet> findPetByOwner(Long ownerId) {
         return petRepository.findByOwnerId(ownerId);
     }
 
-    public List<Pet> findPets(List<Long> petIds) {
-        List<Pet> listOfPets = petRepository.findAllById(petIds);
-
-        if (petIds.size() != listOfPets.size()) {
-            List<Long> found = listOfPets.stream().map(p -> p.getId()).collect(Collectors.toList());
-            String missingPets = (String) petIds
-                    .stream()
-                    .filter( id -> !found.contains(id) )
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(", "));
-            throw new PetNotFoundException("Pet(s) with id(s) could not be found: " + missingPets);
+    public List<Pet> findPets(List<Long> petIds) throws PetNotFoundException {
+        return bulkIdResolver.resolveAll(petRepository, petIds, Pet::getId,
+                missing -> new PetNotFoundException("Could not find pet(s) with id(s): " + missing));
+    }
+
+    /**
+     * Fetches the pets with the given ids in IN batches; ids that do not exist are absent from the result.
+     */
+    public Map<Long, Pet> findPetsById(Collection<Long> petIds) {
+        return bulkIdResolver.findAllById(petRepository, petIds, Pet::getId);
+    }
+
+    /**
+     * Reads every pet as a DTO, without loading any entity.
+     */
+    @Transactional(readOnly = true)
+    public List<PetRequest> getAllPets() {
+        return petRepository.findAllRequests();
+    }
+
+    @Transactional(readOnly = true)
+    public List<PetRequest> findPetRequestsByOwner(Long ownerId) {
+        return petRepository.findRequestsByOwnerId(ownerId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PetRequest> getPetsAfter(long afterId, int limit) {
+        return petRepository.findRequestsAfter(afterId, Keyset.limit(limit));
+    }
+
+    /**
+     * Finds one keyset page of the pets matching every filter given. With a type and the pet type index
+     * enabled, the ids come from the index and only the page is read from the database.
+     *
+     * @param type pet type, or null for any
+     * @param bornFrom earliest birth date, or null for no lower bound
+     * @param bornTo latest birth date, or null for no upper bound
+     * @param namePrefix start of the name, case-sensitive, or null or empty for any name
+     * @param afterId id of the last pet of the previous page, or 0 for the first page
+     * @return pets sorted by (name, id) with a name prefix, else by (birth date, id) with a birth date bound, else by id
+     */
+    @Transactional(readOnly = true)
+    public List<PetRequest> searchPets(PetType type, LocalDate bornFrom, LocalDate bornTo, String namePrefix, long afterId, int limit) {
+        int pageSize = Keyset.limit(limit).getPageSize();
+        if (type != null && petTypeIndex.isEnabled()) {
+            List<Long> ids = petTypeIndex.search(type, bornFrom, bornTo, namePrefix, afterId, pageSize);
+            if (ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+            // read in id order, returned in the order of the index
+            Map<Long, PetRequest> pets = new HashMap<>();
+            petRepository.findRequestsByIds(ids).forEach(pet -> pets.put(pet.getId(), pet));
+            return ids.stream().map(pets::get).filter(Objects::nonNull).collect(Collectors.toList());
         }
-        return listOfPets;
+        return petManagedRepository.search(type, bornFrom, bornTo, namePrefix, afterId, pageSize);
+    }
+
+    /**
+     * Finds the pets whose notes contain any word of the text, using the notes index.
+     *
+     * @return pet ids, best match first
+     */
+    public List<Long> searchNotes(String text, int limit) {
+        return notesIndex.search(NotesIndex.Source.PET, text, Keyset.limit(limit).getPageSize());
     }
 
-    public List<Pet> getAllPets() {
-        return petRepository.findAll();
+    /**
+     * Streams every pet, in id order, to the action as a DTO. No entity is loaded,
+     * so memory use does not grow with the number of pets.
+     */
+    @Transactional(readOnly = true)
+    public void forEachPet(Consumer<PetRequest> action) {
+        try (Stream<PetRequest> pets = petRepository.streamAllRequests()) {
+            pets.forEach(action);
+        }
     }
 
     @Transactional
@@ -56,13 +156,16 @@ public class PetService {
         Customer owner = customerRepository.findById(ownerId)
                 .orElseThrow(() -> new CustomerNotFoundException("ID: " + ownerId));
 
-        // This line adds the owner of the pet and saves it
+        // The pet owns the relationship, so saving the pet is all that is written.
         p.setOwner(owner);
         p = petRepository.save(p);
+        petTypeIndex.update(p.getId(), p.getType(), p.getName(), p.getBirthDate());
+        notesIndex.update(NotesIndex.Source.PET, p.getId(), p.getNotes());
 
-        // This line updates the owner with the new pet and saves
-        owner.getPets().add(p);
-        customerRepository.save(owner);
+        // Keep the owner's pets in step only if they are already loaded; the owner itself has nothing to save.
+        if (Hibernate.isInitialized(owner.getPets()) && !owner.getPets().contains(p)) {
+            owner.getPets().add(p);
+        }
 
         return p;
     }
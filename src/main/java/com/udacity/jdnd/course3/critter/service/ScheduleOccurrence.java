@@ -0,0 +1,37 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * One date on which a schedule takes place: the date of a single schedule, or one occurrence of a recurring one.
+ */
+public final class ScheduleOccurrence {
+
+    private final Schedule schedule;
+    private final LocalDate date;
+    private final Set<LocalDate> exceptionDates;
+
+    public ScheduleOccurrence(Schedule schedule, LocalDate date, Set<LocalDate> exceptionDates) {
+        this.schedule = schedule;
+        this.date = date;
+        this.exceptionDates = exceptionDates;
+    }
+
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * @return the cancelled occurrences of the schedule, read with the occurrence so its lazy collection stays untouched
+     */
+    public Set<LocalDate> getExceptionDates() {
+        return exceptionDates;
+    }
+}
@@ -1,25 +1,39 @@
 package com.udacity.jdnd.course3.critter.service;
 
-import com.udacity.jdnd.course3.critter.entity.Customer;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import com.udacity.jdnd.course3.critter.entity.Employee;
 import com.udacity.jdnd.course3.critter.entity.Pet;
 import com.udacity.jdnd.course3.critter.entity.Schedule;
 import com.udacity.jdnd.course3.critter.exceptions.CustomerNotFoundException;
 import com.udacity.jdnd.course3.critter.exceptions.EmployeeNotFoundException;
+import com.udacity.jdnd.course3.critter.exceptions.InvalidScheduleTimeException;
 import com.udacity.jdnd.course3.critter.exceptions.PetNotFoundException;
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleConflictException;
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleNotFoundException;
+import com.udacity.jdnd.course3.critter.index.ScheduleIntervalIndex;
 import com.udacity.jdnd.course3.critter.repository.*;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
-import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Service
 public class ScheduleService {
 
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1000, 1, 1);
+
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
     @Autowired
     ScheduleRepository scheduleRepository;
 
@@ -38,56 +52,315 @@ public class ScheduleService {
     @Autowired
     CustomerRepository customerRepository;
 
+    @Autowired
+    BulkIdResolver bulkIdResolver;
+
+    @Autowired
+    ScheduleIntervalIndex scheduleIntervalIndex;
+
+    // most rows of one table a batch save sends in a single JDBC batch
+    @Value("${critter.schedule.batch-insert-size:1000}")
+    int batchInsertSize;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
     public Optional<Schedule> findSchedule(Long id) {
         return scheduleRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public List<Schedule> findAllSchedules() {
         return scheduleRepository.findAll();
     }
 
+    /**
+     * @return rows of [Long scheduleId, Long version] of every schedule, for the ETag of the schedule list
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> findAllScheduleVersions() {
+        return scheduleRepository.findAllVersions();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Schedule> findSchedulesAfter(long afterId, int limit) {
+        return scheduleRepository.findByIdGreaterThanOrderByIdAsc(afterId, Keyset.limit(limit));
+    }
+
+    /**
+     * Streams every schedule, in id order, to the action in detached chunks.
+     */
+    @Transactional(readOnly = true)
+    public void forEachScheduleChunk(Consumer<List<Schedule>> action) {
+        Keyset.forEachChunk(scheduleRepository.streamAll(), entityManager, action);
+    }
+
+    /**
+     * Saves a schedule after booking its employees and pets for its time slot.
+     *
+     * @throws ScheduleConflictException if an employee or pet is already booked at an overlapping time
+     * @throws InvalidScheduleTimeException if the time slot does not start before it ends
+     */
     @Transactional
     public Schedule save(Schedule s)
-            throws PetNotFoundException, EmployeeNotFoundException {
+            throws PetNotFoundException, EmployeeNotFoundException, ScheduleConflictException, InvalidScheduleTimeException {
 
-        s = scheduleRepository.save(s);
+        // Schedule owns both join tables, so saving it writes every schedule_employee and schedule_pet row.
+        s = scheduleIntervalIndex.book(s, scheduleRepository::save);
 
-        // save the schedule to employees
-        for (Employee employee : s.getEmployees()){
-            employee.getSchedulesList().add(s);
-            employeeRepository.save(employee);
+        // Keep inverse collections that are already loaded in step with the new rows, without loading
+        // the others or saving employees and pets that have nothing to persist. With bytecode enhancement
+        // the getter of a collection that was never read fails on a detached entity, so ask first.
+        for (Employee employee : s.getEmployees()) {
+            if (Hibernate.isPropertyInitialized(employee, "schedulesList")) {
+                addIfLoaded(employee.getSchedulesList(), s);
+            }
         }
-
-        // save the schedule to pets
         for (Pet pet : s.getPets()) {
-            pet.getSchedules().add(s);
-            petRepository.save(pet);
+            if (Hibernate.isPropertyInitialized(pet, "schedules")) {
+                addIfLoaded(pet.getSchedules(), s);
+            }
         }
 
         return s;
     }
 
-    public List<Schedule> findSchedulesForPet(long petId) {
-        Pet p = petRepository.findById(petId).orElseThrow(() -> new PetNotFoundException("ID: " + petId));
-        return p.getSchedules();
+    /**
+     * Saves new schedules in one transaction. With the pooled schedule id sequence, the schedule and
+     * join table inserts are sent as one JDBC batch per table of up to critter.schedule.batch-insert-size rows.
+     */
+    @Transactional
+    public List<Schedule> saveAll(List<Schedule> schedules) throws ScheduleConflictException, InvalidScheduleTimeException {
+        return saveAll(schedules, (index, exception) -> {
+            throw exception;
+        });
+    }
+
+    /**
+     * Saves the new schedules whose employees and pets are free for their time slot, in one transaction.
+     * A schedule overlapping a booking, or an earlier schedule of the list, is left out and reported.
+     *
+     * @param rejected told the position in the list and the reason of every schedule that is not saved
+     * @return the saved schedules in list order
+     */
+    @Transactional
+    public List<Schedule> saveAll(List<Schedule> schedules, BiConsumer<Integer, RuntimeException> rejected) {
+        // the rows of each table go out as one JDBC batch of up to batchInsertSize instead of
+        // hibernate.jdbc.batch_size, so they are flushed here, before the session's own size is restored
+        Session session = entityManager.unwrap(Session.class);
+        Integer jdbcBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchInsertSize);
+        try {
+            return scheduleIntervalIndex.bookAll(schedules, accepted -> {
+                List<Schedule> saved = scheduleRepository.saveAll(accepted);
+                entityManager.flush();
+                return saved;
+            }, rejected);
+        } finally {
+            session.setJdbcBatchSize(jdbcBatchSize);
+        }
+    }
+
+    /**
+     * Finds the occurrences of the schedules of a pet, optionally limited to a date range.
+     *
+     * @param from first date to include, or null for no lower bound
+     * @param to last date to include, or null for no upper bound
+     * @param afterId the occurrences on from of the schedules with an id up to this one are skipped, so a page
+     *                continues the previous one when given its last date as from and its last schedule id
+     * @param limit maximum number of occurrences returned, at most Keyset.MAX_LIMIT
+     * @return occurrences ordered by date, then schedule id
+     */
+    @Transactional(readOnly = true)
+    public List<ScheduleOccurrence> findSchedulesForPet(long petId, LocalDate from, LocalDate to, long afterId, int limit) {
+        List<Schedule> schedules = scheduleRepository.findByPetId(petId, lowerBound(from), upperBound(to));
+        // only look the pet up when there is nothing to return, to tell "no schedules" from "no pet"
+        if (schedules.isEmpty() && !petRepository.existsById(petId)) {
+            throw new PetNotFoundException("ID: " + petId);
+        }
+        return occurrencesBetween(schedules, lowerBound(from), upperBound(to), afterId, limit);
     }
 
-    public List<Schedule> findSchedulesForEmployee(long employeeId) {
-        Employee e = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new EmployeeNotFoundException("ID: " + employeeId));
-        return e.getSchedulesList();
+    /**
+     * Finds the occurrences of the schedules of an employee, optionally limited to a date range.
+     *
+     * @param from first date to include, or null for no lower bound
+     * @param to last date to include, or null for no upper bound
+     * @param afterId the occurrences on from of the schedules with an id up to this one are skipped, so a page
+     *                continues the previous one when given its last date as from and its last schedule id
+     * @param limit maximum number of occurrences returned, at most Keyset.MAX_LIMIT
+     * @return occurrences ordered by date, then schedule id
+     */
+    @Transactional(readOnly = true)
+    public List<ScheduleOccurrence> findSchedulesForEmployee(long employeeId, LocalDate from, LocalDate to, long afterId, int limit) {
+        List<Schedule> schedules = scheduleRepository.findByEmployeeId(employeeId, lowerBound(from), upperBound(to));
+        if (schedules.isEmpty() && !employeeRepository.existsById(employeeId)) {
+            throw new EmployeeNotFoundException("ID: " + employeeId);
+        }
+        return occurrencesBetween(schedules, lowerBound(from), upperBound(to), afterId, limit);
     }
 
-    public List<Schedule> findSchedulesForCustomer(long customerId) {
-        Customer c = customerRepository.findById(customerId)
-                .orElseThrow(() -> new CustomerNotFoundException("ID: " + customerId));
-        List<Schedule> customerSchedules = c.getPets()
-                .stream()
-                .map(Pet::getSchedules)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+    /**
+     * Finds the occurrences of the schedules of all pets of a customer with a single query, optionally
+     * limited to a date range.
+     *
+     * @param from first date to include, or null for no lower bound
+     * @param to last date to include, or null for no upper bound
+     * @param afterId the occurrences on from of the schedules with an id up to this one are skipped, so a page
+     *                continues the previous one when given its last date as from and its last schedule id
+     * @param limit maximum number of occurrences returned, at most Keyset.MAX_LIMIT
+     * @return occurrences ordered by date, then schedule id
+     */
+    @Transactional(readOnly = true)
+    public List<ScheduleOccurrence> findSchedulesForCustomer(long customerId, LocalDate from, LocalDate to, long afterId, int limit) {
+        List<Schedule> schedules = scheduleRepository.findByCustomerId(customerId, lowerBound(from), upperBound(to));
+        if (schedules.isEmpty() && !customerRepository.existsById(customerId)) {
+            throw new CustomerNotFoundException("ID: " + customerId);
+        }
+        return occurrencesBetween(schedules, lowerBound(from), upperBound(to), afterId, limit);
+    }
 
+    /**
+     * Reads the id and version of the schedules findSchedulesForPet expands, without loading them.
+     *
+     * @return rows of [Long scheduleId, Long version]; empty when the pet has none or does not exist
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> findScheduleVersionsForPet(long petId, LocalDate from, LocalDate to) {
+        return scheduleRepository.findVersionsByPetId(petId, lowerBound(from), upperBound(to));
+    }
 
-        return customerSchedules;
+    /**
+     * Reads the id and version of the schedules findSchedulesForEmployee expands, without loading them.
+     *
+     * @return rows of [Long scheduleId, Long version]; empty when the employee has none or does not exist
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> findScheduleVersionsForEmployee(long employeeId, LocalDate from, LocalDate to) {
+        return scheduleRepository.findVersionsByEmployeeId(employeeId, lowerBound(from), upperBound(to));
+    }
+
+    /**
+     * Reads the id and version of the schedules findSchedulesForCustomer expands, without loading them.
+     *
+     * @return rows of [Long scheduleId, Long version]; empty when the customer has none or does not exist
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> findScheduleVersionsForCustomer(long customerId, LocalDate from, LocalDate to) {
+        return scheduleRepository.findVersionsByCustomerId(customerId, lowerBound(from), upperBound(to));
+    }
+
+    /**
+     * Cancels one occurrence of a recurring schedule, which frees its employees and pets on that date.
+     *
+     * @throws ScheduleNotFoundException if there is no such schedule, or it is not recurring or does not take place on the date
+     */
+    @Transactional
+    public Schedule cancelOccurrence(long scheduleId, LocalDate date) throws ScheduleNotFoundException {
+        Schedule s = scheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new ScheduleNotFoundException("ID: " + scheduleId));
+        if (s.getRecurrence() == null || !s.occurrencesBetween(date, date, s.getExceptionDates()).hasNext()) {
+            throw new ScheduleNotFoundException("Schedule " + scheduleId + " has no recurring occurrence on " + date);
+        }
+        s.getExceptionDates().add(date);
+        return scheduleIntervalIndex.book(s, scheduleRepository::save);
+    }
+
+    /**
+     * Finds the cancelled occurrences of several recurring schedules with one query per IN batch.
+     *
+     * @return cancelled dates keyed by schedule id; schedules without any are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Set<LocalDate>> findExceptionDatesBySchedule(Collection<Long> scheduleIds) {
+        Map<Long, Set<LocalDate>> exceptionDates = new HashMap<>();
+        for (Object[] row : bulkIdResolver.inChunks(scheduleIds, scheduleRepository::findExceptionDatesByScheduleIds)) {
+            exceptionDates.computeIfAbsent((Long) row[0], id -> new TreeSet<>()).add((LocalDate) row[1]);
+        }
+        return exceptionDates;
+    }
+
+    /**
+     * Finds the employee ids of several schedules with one query per IN batch.
+     *
+     * @param scheduleIds ids of the schedules
+     * @return employee ids in ascending order keyed by schedule id; schedules without employees are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findEmployeeIdsBySchedule(Collection<Long> scheduleIds) {
+        return groupByScheduleId(bulkIdResolver.inChunks(scheduleIds, scheduleRepository::findEmployeeIdsByScheduleIds));
+    }
+
+    /**
+     * Finds the pet ids of several schedules with one query per IN batch.
+     *
+     * @param scheduleIds ids of the schedules
+     * @return pet ids in ascending order keyed by schedule id; schedules without pets are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findPetIdsBySchedule(Collection<Long> scheduleIds) {
+        return groupByScheduleId(bulkIdResolver.inChunks(scheduleIds, scheduleRepository::findPetIdsByScheduleIds));
+    }
+
+    /**
+     * Expands schedules into their first limit occurrences between from and to, by date then schedule id.
+     * Recurring schedules are stored once per series; their dates are merged as they are computed, so only
+     * the occurrences returned are ever built, and their cancelled dates are read with one query (none when
+     * every schedule is single).
+     */
+    private List<ScheduleOccurrence> occurrencesBetween(List<Schedule> schedules, LocalDate from, LocalDate to,
+                                                        long afterId, int limit) {
+        List<Long> recurringIds = new ArrayList<>();
+        for (Schedule s : schedules) {
+            if (s.getRecurrence() != null) {
+                recurringIds.add(s.getId());
+            }
+        }
+        Map<Long, Set<LocalDate>> exceptionDates = findExceptionDatesBySchedule(recurringIds);
+        Queue<PeekingIterator<ScheduleOccurrence>> next = new PriorityQueue<>(Math.max(1, schedules.size()),
+                Comparator.comparing((PeekingIterator<ScheduleOccurrence> dates) -> dates.peek().getDate())
+                        .thenComparing(dates -> dates.peek().getSchedule().getId()));
+        for (Schedule s : schedules) {
+            Set<LocalDate> cancelled = exceptionDates.getOrDefault(s.getId(), Collections.emptySet());
+            LocalDate start = s.getId() <= afterId ? from.plusDays(1) : from;
+            PeekingIterator<ScheduleOccurrence> dates = Iterators.peekingIterator(Iterators.transform(
+                    s.occurrencesBetween(start, to, cancelled), date -> new ScheduleOccurrence(s, date, cancelled)));
+            if (dates.hasNext()) {
+                next.add(dates);
+            }
+        }
+        int pageSize = Keyset.limit(limit).getPageSize();
+        List<ScheduleOccurrence> occurrences = new ArrayList<>(Math.min(pageSize, schedules.size()));
+        while (occurrences.size() < pageSize && !next.isEmpty()) {
+            PeekingIterator<ScheduleOccurrence> dates = next.poll();
+            occurrences.add(dates.next());
+            if (dates.hasNext()) {
+                next.add(dates);
+            }
+        }
+        return occurrences;
+    }
+
+    private static void addIfLoaded(List<Schedule> inverse, Schedule s) {
+        if (Hibernate.isInitialized(inverse) && !inverse.contains(s)) {
+            inverse.add(s);
+        }
+    }
+
+    // open bounds are replaced by the limits of the MySQL DATE type so every query has the same shape
+    private static LocalDate lowerBound(LocalDate from) {
+        return from == null ? EARLIEST_DATE : from;
+    }
+
+    private static LocalDate upperBound(LocalDate to) {
+        return to == null ? LATEST_DATE : to;
+    }
+
+    private static Map<Long, List<Long>> groupByScheduleId(List<Object[]> rows) {
+        Map<Long, List<Long>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return grouped;
     }
 }
@@ -5,21 +5,27 @@ import com.udacity.jdnd.course3.critter.entity.Employee;
 import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
 import com.udacity.jdnd.course3.critter.entity.Pet;
 import com.udacity.jdnd.course3.critter.exceptions.PetNotFoundException;
+import com.udacity.jdnd.course3.critter.index.EmployeeAvailabilityIndex;
+import com.udacity.jdnd.course3.critter.index.NotesIndex;
+import com.udacity.jdnd.course3.critter.index.ScheduleIntervalIndex;
 import com.udacity.jdnd.course3.critter.repository.CustomerRepository;
 import com.udacity.jdnd.course3.critter.repository.EmployeeManagedRepository;
 import com.udacity.jdnd.course3.critter.repository.EmployeeRepository;
 import com.udacity.jdnd.course3.critter.exceptions.CustomerNotFoundException;
 import com.udacity.jdnd.course3.critter.exceptions.EmployeeNotFoundException;
 import com.udacity.jdnd.course3.critter.repository.PetRepository;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class UserService {
@@ -33,65 +39,203 @@ public class UserService {
     @Autowired
     EmployeeManagedRepository employeeManagedRepository;
 
+    @Autowired
+    EmployeeAvailabilityIndex employeeAvailabilityIndex;
+
+    @Autowired
+    ScheduleIntervalIndex scheduleIntervalIndex;
+
+    @Autowired
+    NotesIndex notesIndex;
+
     @Autowired
     PetRepository petRepository;
 
+    @Autowired
+    BulkIdResolver bulkIdResolver;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    // number of schedules an employee can take on one day before dropping out of availability searches
+    @Value("${critter.schedule.daily-capacity:1}")
+    int dailyCapacity;
+
     public Optional<Customer> findCustomerById(Long id) {
         return customerRepository.findById(id);
     }
 
     @Transactional
     public Customer save(Customer c, List<Long> petIds) {
+        List<Pet> pets = bulkIdResolver.resolveAll(petRepository, petIds, Pet::getId,
+                missing -> new PetNotFoundException("Could not find pet(s) with id(s): " + missing));
         c.getPets().clear();
-        for (Long petId : petIds) {
-            Pet p = petRepository.findById(petId).orElseThrow(() -> new PetNotFoundException("ID: " + petId));
+        for (Pet p : pets) {
+            // the pet owns the relationship, so set its side for the link to be stored
+            p.setOwner(c);
             c.getPets().add(p);
         }
 
-        return customerRepository.save(c);
+        c = customerRepository.save(c);
+        notesIndex.update(NotesIndex.Source.CUSTOMER, c.getId(), c.getNotes());
+        return c;
+    }
+
+    /**
+     * Finds the customers whose notes contain any word of the text, using the notes index.
+     *
+     * @return customer ids, best match first
+     */
+    public List<Long> searchCustomerNotes(String text, int limit) {
+        return notesIndex.search(NotesIndex.Source.CUSTOMER, text, Keyset.limit(limit).getPageSize());
     }
 
     @Transactional
     public Employee save(Employee e) {
-        return employeeRepository.save(e);
+        e = employeeRepository.save(e);
+        employeeAvailabilityIndex.update(e.getId(), e.getSkills(), e.getDaysAvailable());
+        return e;
+    }
+
+    /**
+     * Reads every customer as a DTO, without loading any entity. Pet ids are left empty,
+     * see findPetIdsByOwner.
+     */
+    @Transactional(readOnly = true)
+    public List<CustomerRequest> getAllCustomers() {
+        return customerRepository.findAllRequests();
+    }
+
+    @Transactional(readOnly = true)
+    public List<CustomerRequest> getCustomersAfter(long afterId, int limit) {
+        return customerRepository.findRequestsAfter(afterId, Keyset.limit(limit));
+    }
+
+    /**
+     * Streams every customer, in id order, to the action in chunks of DTOs without pet ids.
+     */
+    @Transactional(readOnly = true)
+    public void forEachCustomerChunk(Consumer<List<CustomerRequest>> action) {
+        Keyset.forEachChunk(customerRepository.streamAllRequests(), action);
     }
 
-    public List<Customer> getAllCustomers() {
-        return customerRepository.findAll();
+    /**
+     * Finds the pet ids of several customers with one query per IN batch.
+     *
+     * @param customerIds ids of the customers
+     * @return pet ids in ascending order keyed by customer id; customers without pets are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findPetIdsByOwner(Collection<Long> customerIds) {
+        Map<Long, List<Long>> petIds = new HashMap<>();
+        for (Object[] row : bulkIdResolver.inChunks(customerIds, petRepository::findIdsByOwnerIds)) {
+            petIds.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+        return petIds;
     }
 
     public Optional<Employee> findEmployee(Long id) throws EmployeeNotFoundException {
         return employeeRepository.findById(id);
     }
 
+    /**
+     * Reads the version of an employee, without loading it.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findEmployeeVersion(Long id) {
+        return employeeRepository.findVersionById(id);
+    }
+
+    /**
+     * Reads a customer as a DTO without its pet ids, with its notes.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CustomerRequest> findCustomerRequest(Long customerId) {
+        return customerRepository.findRequestById(customerId);
+    }
+
+    /**
+     * Reads the owner of a pet as a DTO without its pet ids, see findPetIdsByOwner.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CustomerRequest> findOwnerRequestByPetId(Long petId) {
+        return customerRepository.findRequestByPetId(petId);
+    }
+
     public Customer findOwnerByPetId(Long id) throws CustomerNotFoundException {
         return customerRepository.findOptionalByPetId(id).orElseThrow(() -> new EmployeeNotFoundException("ID: " + id));
     }
 
+    /**
+     * Finds the employees with all the skills who work on the date and still have room for a schedule
+     * that day (fewer than critter.schedule.daily-capacity schedules).
+     */
+    @Transactional(readOnly = true)
     public List<Employee> findEmployeesAvailable(Set<EmployeeSkill> skills, LocalDate date) {
-        // if there is more than one skill Hibernate does not support queries on @EnumeratedCollections
-        // So get the ids of the employees with all skills and then pull just those employees from the database.
-        List<Long> employeeIdsWithAllSkillsOnDay = employeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay(skills, date.getDayOfWeek());
-        List<Employee> employees = employeeRepository.findAllById(employeeIdsWithAllSkillsOnDay);
+        // the ids of the employees with all skills come from the in-memory availability index,
+        // the ones whose day is already full are dropped using the in-memory schedule bookings,
+        // then just those employees are pulled from the database.
+        List<Long> employeeIdsWithAllSkillsOnDay = employeeAvailabilityIndex.findEmployeeIdsWithAllSkillsOnDay(skills, date.getDayOfWeek());
+        List<Long> employeeIdsWithCapacity = scheduleIntervalIndex.findEmployeeIdsWithCapacity(employeeIdsWithAllSkillsOnDay, date, dailyCapacity);
+        List<Employee> employees = employeeRepository.findAllById(employeeIdsWithCapacity);
         return employees;
     }
 
-    public List<Employee> findAllEmployees(List<Long> employeeIds) throws EmployeeNotFoundException {
-        List<Employee> employees = employeeRepository.findAllById(employeeIds);
-
-        if (employeeIds.size() != employees.size()) {
-            List<Long> found = employees.stream().map(e -> e.getId()).collect(Collectors.toList());
-            String missingEmployees = (String) employeeIds
-                    .stream()
-                    .filter( id -> !found.contains(id) )
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(", "));
-            throw new EmployeeNotFoundException("Employee(s) with id(s) could not be found: " + missingEmployees);
+    /**
+     * Finds, for every date of a range, the ids of the employees with all the skills who work on that day
+     * of the week and still have room for a schedule. Answered from the in-memory indexes, without a query.
+     *
+     * @param from first date of the range
+     * @param to last date of the range, not before from
+     * @return employee ids in ascending order for every date of the range, in date order
+     */
+    @Transactional(readOnly = true)
+    public SortedMap<LocalDate, List<Long>> findEmployeeIdsAvailable(Set<EmployeeSkill> skills, LocalDate from, LocalDate to) {
+        Map<DayOfWeek, List<Long>> employeeIdsByDay = employeeAvailabilityIndex.findEmployeeIdsWithAllSkillsByDay(skills);
+        Set<Long> candidates = new HashSet<>();
+        employeeIdsByDay.values().forEach(candidates::addAll);
+        Map<Long, Set<LocalDate>> fullDays = scheduleIntervalIndex.findFullDays(candidates, from, to, dailyCapacity);
+
+        SortedMap<LocalDate, List<Long>> available = new TreeMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            List<Long> ids = new ArrayList<>();
+            for (Long id : employeeIdsByDay.get(date.getDayOfWeek())) {
+                if (!fullDays.getOrDefault(id, Collections.emptySet()).contains(date)) {
+                    ids.add(id);
+                }
+            }
+            available.put(date, ids);
         }
-        return employees;
+        return available;
     }
 
+    public List<Employee> findAllEmployees(List<Long> employeeIds) throws EmployeeNotFoundException {
+        return bulkIdResolver.resolveAll(employeeRepository, employeeIds, Employee::getId,
+                missing -> new EmployeeNotFoundException("Could not find employee(s) with id(s): " + missing));
+    }
+
+    /**
+     * Fetches the employees with the given ids in IN batches; ids that do not exist are absent from the result.
+     */
+    public Map<Long, Employee> findEmployeesById(Collection<Long> employeeIds) {
+        return bulkIdResolver.findAllById(employeeRepository, employeeIds, Employee::getId);
+    }
+
+    @Transactional(readOnly = true)
     public List<Employee> findAllEmployees() {
         return employeeRepository.findAll();
     }
+
+    @Transactional(readOnly = true)
+    public List<Employee> findEmployeesAfter(long afterId, int limit) {
+        return employeeRepository.findByIdGreaterThanOrderByIdAsc(afterId, Keyset.limit(limit));
+    }
+
+    /**
+     * Streams every employee, in id order, to the action in detached chunks.
+     */
+    @Transactional(readOnly = true)
+    public void forEachEmployeeChunk(Consumer<List<Employee>> action) {
+        Keyset.forEachChunk(employeeRepository.streamAll(), entityManager, action);
+    }
 }
@@ -1,47 +1,119 @@
 package com.udacity.jdnd.course3.critter.service;
 
 import com.udacity.jdnd.course3.critter.exceptions.MissingInfoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
 @Service
 public class ValidationService {
 
+    private static final Logger log = LoggerFactory.getLogger(ValidationService.class);
+
+    /**
+     * One compiled validator per POJO class, built the first time that class is validated.
+     */
+    private static final ClassValue<PojoValidator> VALIDATORS = new ClassValue<PojoValidator>() {
+        @Override
+        protected PojoValidator computeValue(Class<?> type) {
+            return PojoValidator.compile(type);
+        }
+    };
+
     /**
      * Validates any plain old java object (POJO) by checking each attributes
      * with a get method is not null or if a Collection (List or Set) is not empty.
+     * Optional attributes, whose getter is annotated @Nullable, are not checked.
+     *
+     * The getters of each class are looked up once and kept as method handles, so a valid
+     * object is checked without reflection or allocation.
      *
      * @param pojo "plain old java object" with getters for each data attribute to validate
      * @throws MissingInfoException with list of attributes that are missing data
      */
     public void validatePOJOAttributesNotNullOrEmpty(Object pojo) throws MissingInfoException {
-        String missing = "";
-        Method[] methods = pojo.getClass().getMethods();
-        for (Method method : methods) {
-            try {
-                if (method.getName().startsWith("get")) {
-                    Object o = method.invoke(pojo);
-
-                    // if not valid (null or empty list/set) get the field name for exception message.
-                    if ((o == null) ||
-                            (o instanceof List && ((List) o).size() == 0) ||
-                            (o instanceof Set && ((Set) o).size() == 0)) {
-                        String name = method.getName().substring(3);
-                        name = name.substring(0, 1).toUpperCase() + name.substring(1);
-                        missing += (missing.length() > 0) ? ", " + name : name;
-                    }
+        VALIDATORS.get(pojo.getClass()).validate(pojo);
+    }
+
+    /**
+     * The getters of one class that can hold missing data, with the attribute names used in the message.
+     *
+     * getClass() and getters returning primitives are left out because they can never be null or empty,
+     * and @Nullable getters because their attribute is optional. A getter that cannot be read, or that
+     * throws, is logged and skipped, so its attribute is never reported as missing.
+     */
+    private static final class PojoValidator {
+
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final String[] names;
+        private final MethodHandle[] getters;
+
+        private PojoValidator(String[] names, MethodHandle[] getters) {
+            this.names = names;
+            this.getters = getters;
+        }
+
+        private static PojoValidator compile(Class<?> type) {
+            List<String> names = new ArrayList<>();
+            List<MethodHandle> getters = new ArrayList<>();
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            for (Method method : type.getMethods()) {
+                if (!method.getName().startsWith("get")
+                        || method.getParameterCount() != 0
+                        || method.getReturnType().isPrimitive()
+                        || method.isAnnotationPresent(Nullable.class)
+                        || method.getDeclaringClass() == Object.class) {
+                    continue;
                 }
-            } catch (IllegalAccessException | InvocationTargetException exception) {
-                System.out.println(exception.getMessage());
+                try {
+                    getters.add(lookup.unreflect(method).asType(GETTER_TYPE));
+                } catch (IllegalAccessException exception) {
+                    log.warn("Cannot read {} to validate {}, skipping it", method, type.getName(), exception);
+                    continue;
+                }
+                String name = method.getName().substring(3);
+                names.add(name.substring(0, 1).toUpperCase() + name.substring(1));
             }
+            return new PojoValidator(names.toArray(new String[0]), getters.toArray(new MethodHandle[0]));
         }
-        if (missing.length() > 0) {
-            throw new MissingInfoException("Parameters of missing requests: " + missing + ".");
+
+        private void validate(Object pojo) throws MissingInfoException {
+            StringBuilder missing = null;
+            for (int i = 0; i < getters.length; i++) {
+                Object o;
+                try {
+                    o = (Object) getters[i].invokeExact(pojo);
+                } catch (Error error) {
+                    throw error;
+                } catch (Throwable exception) {
+                    log.warn("Reading {} of {} failed, skipping it", names[i], pojo.getClass().getName(), exception);
+                    continue;
+                }
+
+                // if not valid (null or empty list/set) add the field name to the exception message.
+                if ((o == null) ||
+                        (o instanceof List && ((List) o).size() == 0) ||
+                        (o instanceof Set && ((Set) o).size() == 0)) {
+                    if (missing == null) {
+                        missing = new StringBuilder(names[i]);
+                    } else {
+                        missing.append(", ").append(names[i]);
+                    }
+                }
+            }
+            if (missing != null) {
+                throw new MissingInfoException("Parameters of missing requests: " + missing + ".");
+            }
         }
     }
-
 }
@@ -0,0 +1,552 @@
+package com.udacity.jdnd.course3.critter.solver;
+
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.index.EnumMask;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Picks employees for time slots so that every slot is covered by employees who together have all
+ * its activities, work on its day of the week, are free for its whole time and have not reached
+ * their daily capacity. Among the employees that fit, the ones with the fewest bookings in the
+ * week are preferred, which spreads the workload.
+ *
+ * A recurring slot keeps the same employees on every occurrence, so recurring slots are planned first,
+ * in list order: each one gets a free single employee with all its activities, or else a greedily built
+ * team, among the employees that work on and are free for every occurrence, fewest bookings over the
+ * series first. Its occurrences are then booked, so the searches of the dates below work around them.
+ *
+ * Dates do not constrain each other, so each date is searched as its own fork/join task. The search
+ * of a date is a depth-first search over its slots, most constrained first, that tries the free
+ * single employees from least to most loaded, then a greedily built team, then leaving the slot
+ * unassigned. Its first descent is the greedy solution; the rest of the search only runs while some
+ * slots are unassigned and looks for assignments covering more slots.
+ *
+ * The dates of a week are searched apart, so each one only balances against the bookings made before
+ * solving. A final pass balances the weeks: it moves a slot's employee to a free one with at least two
+ * fewer bookings in the week, as long as some employee can be moved.
+ *
+ * Every step checks the time budget. When it runs out the best assignment found so far is returned:
+ * during a first descent that is the greedy choices made so far, leaving the remaining slots of the
+ * date unassigned.
+ */
+public class EmployeeAssignmentSolver {
+
+    /**
+     * A time slot [startTime, endTime) on a date, or on every date of a series, that needs employees with
+     * all the activities.
+     */
+    public static final class Slot {
+        private final LocalDate date;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+        private final Set<EmployeeSkill> activities;
+        // null for a slot on its date only
+        private final Iterable<LocalDate> occurrences;
+
+        // seconds of the day and skill mask, as the search compares them
+        private final int start;
+        private final int end;
+        private final int mask;
+
+        public Slot(LocalDate date, LocalTime startTime, LocalTime endTime, Set<EmployeeSkill> activities) {
+            this(date, startTime, endTime, activities, null);
+        }
+
+        /**
+         * @param date first occurrence
+         * @param occurrences every date the slot takes place on, in order; iterated several times while solving
+         */
+        public Slot(LocalDate date, LocalTime startTime, LocalTime endTime, Set<EmployeeSkill> activities,
+                    Iterable<LocalDate> occurrences) {
+            this.date = date;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.activities = activities;
+            this.occurrences = occurrences;
+            this.start = startTime.toSecondOfDay();
+            this.end = endTime.toSecondOfDay();
+            this.mask = EnumMask.of(activities);
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public LocalTime getStartTime() {
+            return startTime;
+        }
+
+        public LocalTime getEndTime() {
+            return endTime;
+        }
+
+        public Set<EmployeeSkill> getActivities() {
+            return activities;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    private final long timeBudgetNanos;
+
+    private final int dailyCapacity;
+
+    /**
+     * @param pool runs the search of each date
+     * @param timeBudgetMillis time after which the best assignment found so far is returned
+     * @param dailyCapacity number of slots that fills an employee's day, counting existing bookings
+     */
+    public EmployeeAssignmentSolver(ForkJoinPool pool, long timeBudgetMillis, int dailyCapacity) {
+        this.pool = pool;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.dailyCapacity = dailyCapacity;
+    }
+
+    /**
+     * @return for every slot, in list order, the ids of its employees in ascending order;
+     *         empty for a slot that could not be covered
+     */
+    public List<List<Long>> solve(List<Slot> slots, Roster roster) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        List<List<Long>> employeeIds = new ArrayList<>(slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            employeeIds.add(Collections.emptyList());
+        }
+        // the occurrences of recurring slots are booked on a copy, the caller's roster is left as it was
+        Roster booked = new Roster(roster);
+        planSeries(slots, booked, deadline, employeeIds);
+
+        Map<LocalDate, List<Integer>> slotsByDate = new TreeMap<>();
+        for (int i = 0; i < slots.size(); i++) {
+            if (slots.get(i).occurrences == null) {
+                slotsByDate.computeIfAbsent(slots.get(i).date, date -> new ArrayList<>()).add(i);
+            }
+        }
+        List<DaySearch> searches = new ArrayList<>(slotsByDate.size());
+        slotsByDate.forEach((date, indexes) -> searches.add(new DaySearch(date, indexes, slots, booked, deadline)));
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(searches);
+            }
+        });
+        balanceWeeks(searches, booked, deadline);
+
+        for (DaySearch search : searches) {
+            search.collect(employeeIds);
+        }
+        return employeeIds;
+    }
+
+    /**
+     * Covers the recurring slots in list order and books every occurrence of their employees. Slots
+     * left when time is up stay unassigned.
+     */
+    private void planSeries(List<Slot> slots, Roster roster, long deadline, List<List<Long>> employeeIds) {
+        for (int i = 0; i < slots.size() && System.nanoTime() <= deadline; i++) {
+            Slot slot = slots.get(i);
+            if (slot.occurrences == null) {
+                continue;
+            }
+            List<Long> team = seriesTeam(slot, roster);
+            for (Long id : team) {
+                for (LocalDate date : slot.occurrences) {
+                    roster.addBooking(id, date.atTime(slot.startTime), date.atTime(slot.endTime));
+                }
+            }
+            employeeIds.set(i, team);
+        }
+    }
+
+    /**
+     * @return the ids of the employees for every occurrence of a recurring slot in ascending order, or
+     *         an empty list if no team is free for all of them
+     */
+    private List<Long> seriesTeam(Slot slot, Roster roster) {
+        LocalDate last = slot.date;
+        for (LocalDate date : slot.occurrences) {
+            last = date;
+        }
+        Map<Long, Integer> loads = new HashMap<>();
+        List<Long> free = new ArrayList<>();
+        for (Long id : new TreeSet<>(roster.getEmployeeIds())) {
+            if ((roster.getSkills(id) & slot.mask) != 0 && isFreeForSeries(id, slot, roster)) {
+                free.add(id);
+                loads.put(id, roster.getBookings(id).subMap(slot.date.atStartOfDay(), last.plusDays(1).atStartOfDay()).size());
+            }
+        }
+        free.sort(Comparator.comparingInt(loads::get));
+
+        for (Long id : free) {
+            if ((roster.getSkills(id) & slot.mask) == slot.mask) {
+                return Collections.singletonList(id);
+            }
+        }
+        List<Long> team = new ArrayList<>();
+        int missing = slot.mask;
+        while (missing != 0) {
+            Long pick = null;
+            int covered = 0;
+            // the least loaded employee covering most missing activities, as free is ordered by load
+            for (Long id : free) {
+                int covers = Integer.bitCount(roster.getSkills(id) & missing);
+                if (covers > covered && !team.contains(id)) {
+                    pick = id;
+                    covered = covers;
+                }
+            }
+            if (pick == null) {
+                return Collections.emptyList();
+            }
+            team.add(pick);
+            missing &= ~roster.getSkills(pick);
+        }
+        Collections.sort(team);
+        return team;
+    }
+
+    private boolean isFreeForSeries(long id, Slot slot, Roster roster) {
+        NavigableMap<LocalDateTime, LocalDateTime> bookings = roster.getBookings(id);
+        for (LocalDate date : slot.occurrences) {
+            if ((roster.getDays(id) & EnumMask.bit(date.getDayOfWeek())) == 0
+                    || bookings.subMap(date.atStartOfDay(), date.plusDays(1).atStartOfDay()).size() >= dailyCapacity) {
+                return false;
+            }
+            Map.Entry<LocalDateTime, LocalDateTime> previous = bookings.lowerEntry(date.atTime(slot.endTime));
+            if (previous != null && previous.getValue().isAfter(date.atTime(slot.startTime))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves slots to less loaded employees until no move lowers the load of the busiest employee of
+     * a move by two or more, or time is up. Every move lowers the sum of the squared weekly loads,
+     * so the pass ends.
+     */
+    private static void balanceWeeks(List<DaySearch> searches, Roster roster, long deadline) {
+        Map<LocalDate, Map<Long, Integer>> weekLoads = new HashMap<>();
+        for (DaySearch search : searches) {
+            search.countBest(weekLoads.computeIfAbsent(search.weekStart, week -> countBookings(roster, week)));
+        }
+        boolean moved = true;
+        while (moved && System.nanoTime() <= deadline) {
+            moved = false;
+            for (DaySearch search : searches) {
+                moved |= search.rebalance(weekLoads.get(search.weekStart), deadline);
+            }
+        }
+    }
+
+    private static Map<Long, Integer> countBookings(Roster roster, LocalDate weekStart) {
+        Map<Long, Integer> loads = new HashMap<>();
+        for (Long id : roster.getEmployeeIds()) {
+            int booked = roster.getBookings(id).subMap(weekStart.atStartOfDay(), weekStart.plusWeeks(1).atStartOfDay()).size();
+            if (booked > 0) {
+                loads.put(id, booked);
+            }
+        }
+        return loads;
+    }
+
+    /**
+     * Searches the assignment of the slots of one date.
+     */
+    private final class DaySearch extends RecursiveAction {
+
+        private final LocalDate date;
+        private final LocalDate weekStart;
+        private final List<Slot> slots;
+        private final Roster roster;
+        private final long deadline;
+
+        // slots of the date, most constrained first
+        private int[] order;
+
+        // the employees working on the date
+        private long[] ids;
+        private int[] skills;
+        private int[] weekLoad;
+        private int[] dayLoad;
+        private List<TreeMap<Integer, Integer>> busy;
+
+        // employee indexes of each slot (in search order) on the current path, and of the best leaf so far
+        private int[][] current;
+        private int[][] best;
+        private int assigned;
+        private int bestAssigned = -1;
+        private long nodes;
+
+        private DaySearch(LocalDate date, List<Integer> slotIndexes, List<Slot> slots, Roster roster, long deadline) {
+            this.date = date;
+            this.weekStart = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            this.slots = slots;
+            this.roster = roster;
+            this.deadline = deadline;
+            this.order = slotIndexes.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        @Override
+        protected void compute() {
+            current = new int[order.length][];
+            best = new int[order.length][];
+            if (System.nanoTime() > deadline) {
+                return;
+            }
+            loadEmployees();
+            orderSlots();
+            search(0);
+            // the search left the bookings as they were; the week balancing starts from the best assignment
+            for (int depth = 0; depth < order.length; depth++) {
+                if (best[depth] != null) {
+                    book(best[depth], slots.get(order[depth]), 1);
+                }
+            }
+        }
+
+        private void loadEmployees() {
+            int day = EnumMask.bit(date.getDayOfWeek());
+            List<Long> working = new ArrayList<>();
+            for (Long id : roster.getEmployeeIds()) {
+                if ((roster.getDays(id) & day) != 0) {
+                    working.add(id);
+                }
+            }
+            Collections.sort(working);
+            int n = working.size();
+            ids = new long[n];
+            skills = new int[n];
+            weekLoad = new int[n];
+            dayLoad = new int[n];
+            busy = new ArrayList<>(n);
+            for (int e = 0; e < n; e++) {
+                long id = working.get(e);
+                ids[e] = id;
+                skills[e] = roster.getSkills(id);
+                NavigableMap<LocalDateTime, LocalDateTime> bookings = roster.getBookings(id);
+                weekLoad[e] = bookings.subMap(weekStart.atStartOfDay(), weekStart.plusWeeks(1).atStartOfDay()).size();
+                TreeMap<Integer, Integer> dayBookings = new TreeMap<>();
+                bookings.subMap(date.atStartOfDay(), date.plusDays(1).atStartOfDay()).forEach((start, end) ->
+                        dayBookings.put(start.toLocalTime().toSecondOfDay(),
+                                end.toLocalDate().isAfter(date) ? Integer.MAX_VALUE : end.toLocalTime().toSecondOfDay()));
+                dayLoad[e] = dayBookings.size();
+                busy.add(dayBookings);
+            }
+        }
+
+        // slots few employees could ever take go first, then by start time
+        private void orderSlots() {
+            Map<Integer, Integer> candidates = new HashMap<>();
+            Integer[] boxed = Arrays.stream(order).boxed().toArray(Integer[]::new);
+            for (int i : order) {
+                candidates.computeIfAbsent(slots.get(i).mask, this::countQualified);
+            }
+            Arrays.sort(boxed, Comparator.<Integer>comparingInt(i -> candidates.get(slots.get(i).mask))
+                    .thenComparingInt(i -> slots.get(i).start)
+                    .thenComparingInt(i -> i));
+            order = Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+        }
+
+        private int countQualified(int activities) {
+            int count = 0;
+            for (int skill : skills) {
+                if ((skill & activities) == activities) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return true to stop the whole search: every slot is covered or time is up
+         */
+        private boolean search(int depth) {
+            if (depth == order.length) {
+                if (assigned > bestAssigned) {
+                    bestAssigned = assigned;
+                    best = current.clone();
+                }
+                return bestAssigned == order.length || System.nanoTime() > deadline;
+            }
+            if (assigned + (order.length - depth) <= bestAssigned) {
+                return false;
+            }
+            if ((++nodes & 255) == 0 && System.nanoTime() > deadline) {
+                if (bestAssigned < 0) {
+                    // out of time in the first descent: keep the greedy choices made so far
+                    bestAssigned = assigned;
+                    best = current.clone();
+                }
+                return true;
+            }
+            Slot slot = slots.get(order[depth]);
+            for (int[] team : teams(slot)) {
+                book(team, slot, 1);
+                current[depth] = team;
+                assigned++;
+                boolean stop = search(depth + 1);
+                assigned--;
+                current[depth] = null;
+                book(team, slot, -1);
+                if (stop) {
+                    return true;
+                }
+            }
+            return search(depth + 1);
+        }
+
+        /**
+         * Teams that can take the slot, best first: each free employee with all the activities, least
+         * loaded first, or else one team built greedily from the employees covering most missing activities.
+         */
+        private List<int[]> teams(Slot slot) {
+            List<Integer> singles = new ArrayList<>();
+            for (int e = 0; e < ids.length; e++) {
+                if ((skills[e] & slot.mask) == slot.mask && isFree(e, slot)) {
+                    singles.add(e);
+                }
+            }
+            if (!singles.isEmpty()) {
+                singles.sort(Comparator.<Integer>comparingInt(e -> weekLoad[e]).thenComparingInt(e -> e));
+                List<int[]> teams = new ArrayList<>(singles.size());
+                for (int e : singles) {
+                    teams.add(new int[] {e});
+                }
+                return teams;
+            }
+
+            List<Integer> team = new ArrayList<>();
+            int missing = slot.mask;
+            while (missing != 0) {
+                int pick = -1;
+                int covered = 0;
+                for (int e = 0; e < ids.length; e++) {
+                    int covers = Integer.bitCount(skills[e] & missing);
+                    if (covers > 0 && (covers > covered || covers == covered && weekLoad[e] < weekLoad[pick])
+                            && !team.contains(e) && isFree(e, slot)) {
+                        pick = e;
+                        covered = covers;
+                    }
+                }
+                if (pick < 0) {
+                    return Collections.emptyList();
+                }
+                team.add(pick);
+                missing &= ~skills[pick];
+            }
+            return Collections.singletonList(team.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        private boolean contains(int[] team, int e) {
+            for (int member : team) {
+                if (member == e) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isFree(int e, Slot slot) {
+            if (dayLoad[e] >= dailyCapacity) {
+                return false;
+            }
+            Map.Entry<Integer, Integer> last = busy.get(e).lowerEntry(slot.end);
+            return last == null || last.getValue() <= slot.start;
+        }
+
+        private void book(int[] team, Slot slot, int delta) {
+            for (int e : team) {
+                weekLoad[e] += delta;
+                dayLoad[e] += delta;
+                if (delta > 0) {
+                    busy.get(e).put(slot.start, slot.end);
+                } else {
+                    busy.get(e).remove(slot.start);
+                }
+            }
+        }
+
+        /**
+         * Adds the employees of the best assignment to the bookings of the week.
+         */
+        private void countBest(Map<Long, Integer> weekLoad) {
+            for (int[] team : best) {
+                if (team != null) {
+                    for (int e : team) {
+                        weekLoad.merge(ids[e], 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gives the slots of the best assignment, one team member at a time, to a free employee that keeps
+         * the team covering all activities and has at least two fewer bookings in the week.
+         *
+         * @return true if a slot was moved
+         */
+        private boolean rebalance(Map<Long, Integer> weekLoad, long deadline) {
+            boolean moved = false;
+            for (int depth = 0; depth < order.length; depth++) {
+                int[] team = best[depth];
+                if (team == null) {
+                    continue;
+                }
+                if (System.nanoTime() > deadline) {
+                    return moved;
+                }
+                Slot slot = slots.get(order[depth]);
+                for (int k = 0; k < team.length; k++) {
+                    int others = 0;
+                    for (int j = 0; j < team.length; j++) {
+                        others |= j == k ? 0 : skills[team[j]];
+                    }
+                    int from = team[k];
+                    int to = -1;
+                    int toLoad = weekLoad.getOrDefault(ids[from], 0) - 1;
+                    for (int e = 0; e < ids.length; e++) {
+                        int load = weekLoad.getOrDefault(ids[e], 0);
+                        if (load < toLoad && ((others | skills[e]) & slot.mask) == slot.mask
+                                && !contains(team, e) && isFree(e, slot)) {
+                            to = e;
+                            toLoad = load;
+                        }
+                    }
+                    if (to >= 0) {
+                        book(new int[] {from}, slot, -1);
+                        book(new int[] {to}, slot, 1);
+                        weekLoad.merge(ids[from], -1, Integer::sum);
+                        weekLoad.merge(ids[to], 1, Integer::sum);
+                        team[k] = to;
+                        moved = true;
+                    }
+                }
+            }
+            return moved;
+        }
+
+        private void collect(List<List<Long>> employeeIds) {
+            for (int depth = 0; depth < order.length; depth++) {
+                if (best[depth] == null) {
+                    continue;
+                }
+                List<Long> team = new ArrayList<>(best[depth].length);
+                for (int e : best[depth]) {
+                    team.add(ids[e]);
+                }
+                Collections.sort(team);
+                employeeIds.set(order[depth], team);
+            }
+        }
+    }
+}
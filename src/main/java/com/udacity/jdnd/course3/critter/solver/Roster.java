@@ -0,0 +1,61 @@
+package com.udacity.jdnd.course3.critter.solver;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The employees a solver may assign: their skills and working days as bitmasks (see EnumMask)
+ * and the time slots they are already booked for. Filled before solving and only read while solving.
+ */
+public final class Roster {
+
+    private final Map<Long, Integer> skills = new HashMap<>();
+
+    private final Map<Long, Integer> days = new HashMap<>();
+
+    private final Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> bookings = new HashMap<>();
+
+    public Roster() {
+    }
+
+    /**
+     * Copies the employees and bookings of another roster, so bookings can be added without changing it.
+     */
+    Roster(Roster roster) {
+        skills.putAll(roster.skills);
+        days.putAll(roster.days);
+        roster.bookings.forEach((id, slots) -> bookings.put(id, new TreeMap<>(slots)));
+    }
+
+    /**
+     * @param skills mask of the employee's skills
+     * @param days mask of the days of the week the employee works
+     */
+    public void addEmployee(long employeeId, int skills, int days) {
+        this.skills.put(employeeId, skills);
+        this.days.put(employeeId, days);
+    }
+
+    /**
+     * Records that an employee is busy from start (inclusive) to end (exclusive).
+     */
+    public void addBooking(long employeeId, LocalDateTime start, LocalDateTime end) {
+        bookings.computeIfAbsent(employeeId, id -> new TreeMap<>()).put(start, end);
+    }
+
+    public Set<Long> getEmployeeIds() {
+        return skills.keySet();
+    }
+
+    public int getSkills(long employeeId) {
+        return skills.get(employeeId);
+    }
+
+    public int getDays(long employeeId) {
+        return days.get(employeeId);
+    }
+
+    public NavigableMap<LocalDateTime, LocalDateTime> getBookings(long employeeId) {
+        return bookings.getOrDefault(employeeId, Collections.emptyNavigableMap());
+    }
+}
@@ -0,0 +1,73 @@
+-- Initial schema. Every secondary index backs a query the application runs:
+--   idx_employee_skills_days        EmployeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay (skills IN .. AND days_available IN ..)
+--   idx_pet_customer                PetRepository.findByOwnerId, findIdsByOwnerIds
+--   idx_schedule_date               date range filter of the schedule lookups
+--   idx_schedule_*_schedule         employee / pet ids of a page of schedules (ScheduleRepository.find*IdsByScheduleIds)
+--   idx_schedule_*_employee / _pet  schedules of one employee / pet (ScheduleRepository.findByEmployeeId, findByPetId)
+
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE schedule_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE user (
+    id BIGINT NOT NULL,
+    name VARCHAR(500),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE customer (
+    id BIGINT NOT NULL,
+    phone_number VARCHAR(255),
+    notes VARCHAR(5000),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE employee (
+    id BIGINT NOT NULL,
+    skills INTEGER,
+    days_available INTEGER,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE pet (
+    id BIGINT NOT NULL,
+    type INTEGER,
+    name VARCHAR(255),
+    customer_id BIGINT,
+    birth_date DATE,
+    notes VARCHAR(5000),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE schedule (
+    id BIGINT NOT NULL,
+    date DATE,
+    activities INTEGER,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE schedule_employee (
+    schedule_id BIGINT NOT NULL,
+    employee_id BIGINT NOT NULL
+);
+
+CREATE TABLE schedule_pet (
+    schedule_id BIGINT NOT NULL,
+    pet_id BIGINT NOT NULL
+);
+
+CREATE INDEX idx_employee_skills_days ON employee (skills, days_available);
+CREATE INDEX idx_pet_customer ON pet (customer_id);
+CREATE INDEX idx_schedule_date ON schedule (date);
+CREATE INDEX idx_schedule_employee_schedule ON schedule_employee (schedule_id, employee_id);
+CREATE INDEX idx_schedule_employee_employee ON schedule_employee (employee_id, schedule_id);
+CREATE INDEX idx_schedule_pet_schedule ON schedule_pet (schedule_id, pet_id);
+CREATE INDEX idx_schedule_pet_pet ON schedule_pet (pet_id, schedule_id);
+
+-- Foreign keys are added after the indexes so they reuse them instead of creating their own
+ALTER TABLE customer ADD CONSTRAINT fk_customer_user FOREIGN KEY (id) REFERENCES user (id);
+ALTER TABLE employee ADD CONSTRAINT fk_employee_user FOREIGN KEY (id) REFERENCES user (id);
+ALTER TABLE pet ADD CONSTRAINT fk_pet_customer FOREIGN KEY (customer_id) REFERENCES customer (id);
+ALTER TABLE schedule_employee ADD CONSTRAINT fk_schedule_employee_schedule FOREIGN KEY (schedule_id) REFERENCES schedule (id);
+ALTER TABLE schedule_employee ADD CONSTRAINT fk_schedule_employee_employee FOREIGN KEY (employee_id) REFERENCES employee (id);
+ALTER TABLE schedule_pet ADD CONSTRAINT fk_schedule_pet_schedule FOREIGN KEY (schedule_id) REFERENCES schedule (id);
+ALTER TABLE schedule_pet ADD CONSTRAINT fk_schedule_pet_pet FOREIGN KEY (pet_id) REFERENCES pet (id);
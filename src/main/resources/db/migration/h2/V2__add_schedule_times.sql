@@ -0,0 +1,5 @@
+-- Schedules are booked for a time slot [start_time, end_time) of their date.
+-- Existing schedules take the whole day.
+
+ALTER TABLE schedule ADD COLUMN start_time TIME DEFAULT '00:00:00' NOT NULL;
+ALTER TABLE schedule ADD COLUMN end_time TIME DEFAULT '23:59:59' NOT NULL;
@@ -0,0 +1,19 @@
+-- A recurring schedule is stored as one row that repeats every recurrence_interval days or weeks
+-- (recurrence 0 = DAILY, 1 = WEEKLY) from its date until recurrence_until. Occurrences that were
+-- cancelled are listed in schedule_exception. last_date is the date of the last occurrence (the
+-- date itself for a single schedule), so date range lookups match a series with
+-- date <= :to AND last_date >= :from.
+
+ALTER TABLE schedule ADD COLUMN recurrence INTEGER;
+ALTER TABLE schedule ADD COLUMN recurrence_interval INTEGER DEFAULT 1 NOT NULL;
+ALTER TABLE schedule ADD COLUMN recurrence_until DATE;
+ALTER TABLE schedule ADD COLUMN last_date DATE;
+UPDATE schedule SET last_date = date;
+
+CREATE TABLE schedule_exception (
+    schedule_id BIGINT NOT NULL,
+    date DATE NOT NULL,
+    PRIMARY KEY (schedule_id, date)
+);
+
+ALTER TABLE schedule_exception ADD CONSTRAINT fk_schedule_exception_schedule FOREIGN KEY (schedule_id) REFERENCES schedule (id);
@@ -0,0 +1,8 @@
+-- Indexes of the pet search (PetManagedRepository.search):
+--   idx_pet_type_birth_date   type, optionally with a birth date range
+--   idx_pet_birth_date        birth date range alone
+--   idx_pet_name              name prefix (LIKE 'prefix%')
+
+CREATE INDEX idx_pet_type_birth_date ON pet (type, birth_date);
+CREATE INDEX idx_pet_birth_date ON pet (birth_date);
+CREATE INDEX idx_pet_name ON pet (name);
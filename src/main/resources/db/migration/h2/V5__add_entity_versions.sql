@@ -0,0 +1,6 @@
+-- Optimistic lock versions of pets, users (customers and employees) and schedules. Every update of a
+-- row increments its version, which the GET endpoints also use as the ETag of the row.
+
+ALTER TABLE pet ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE user ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE schedule ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,7 @@
+-- Later pages of a name prefix or birth date search continue after the last pet of the previous page,
+-- sorted by (name, id) or (birth_date, id): the indexes hold the id so such a page is a single range scan.
+
+DROP INDEX idx_pet_name;
+CREATE INDEX idx_pet_name ON pet (name, id);
+DROP INDEX idx_pet_birth_date;
+CREATE INDEX idx_pet_birth_date ON pet (birth_date, id);
@@ -0,0 +1,6 @@
+-- Schedules are booked for a time slot [start_time, end_time) of their date.
+-- Existing schedules take the whole day.
+
+ALTER TABLE schedule
+    ADD COLUMN start_time TIME NOT NULL DEFAULT '00:00:00',
+    ADD COLUMN end_time TIME NOT NULL DEFAULT '23:59:59';
@@ -0,0 +1,10 @@
+-- Later pages of a name prefix or birth date search continue after the last pet of the previous page,
+-- sorted by (name, id) or (birth_date, id): the indexes hold the id so such a page is a single range scan.
+-- Names are compared case-sensitively, as by H2 and the in-memory PetTypeIndex, so a prefix matches the
+-- same pets and pages sort the same way on every path.
+
+ALTER TABLE pet MODIFY name VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin;
+DROP INDEX idx_pet_name ON pet;
+CREATE INDEX idx_pet_name ON pet (name, id);
+DROP INDEX idx_pet_birth_date ON pet;
+CREATE INDEX idx_pet_birth_date ON pet (birth_date, id);
@@ -0,0 +1,8 @@
+-- Employees without skills or days hold the mask 0 instead of NULL, which never matched the IN lists of
+-- EmployeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay while the in-memory index read it as 0.
+
+UPDATE employee SET skills = 0 WHERE skills IS NULL;
+UPDATE employee SET days_available = 0 WHERE days_available IS NULL;
+ALTER TABLE employee
+    MODIFY skills INTEGER NOT NULL DEFAULT 0,
+    MODIFY days_available INTEGER NOT NULL DEFAULT 0;
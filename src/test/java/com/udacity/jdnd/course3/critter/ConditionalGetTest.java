@@ -0,0 +1,158 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.controller.PetController;
+import com.udacity.jdnd.course3.critter.controller.ScheduleController;
+import com.udacity.jdnd.course3.critter.controller.UserController;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.entity.Recurrence;
+import com.udacity.jdnd.course3.critter.metrics.StatementBudget;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import com.udacity.jdnd.course3.critter.request.EmployeeRequest;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that GET requests carrying the current ETag in If-None-Match get 304 from one version query,
+ * and that every update of a pet, employee or schedule changes the ETag of the responses showing it.
+ *
+ * Runs without a test transaction so every update commits and increments its version.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:critter-conditional-get")
+@AutoConfigureMockMvc
+public class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private PetController petController;
+
+    @Autowired
+    private ScheduleController scheduleController;
+
+    @Autowired
+    private StatementBudget statementBudget;
+
+    @Test
+    public void testPetAndEmployeeETagsFollowVersions() throws Exception {
+        PetRequest pet = petController.savePet(createPet(createCustomer()));
+        String petETag = assertNotModifiedUntilChanged("/pet/" + pet.getId());
+        pet.setName("Renamed");
+        petController.savePet(pet);
+        Assertions.assertNotEquals(petETag, assertNotModifiedUntilChanged("/pet/" + pet.getId()));
+
+        Long employeeId = createEmployee();
+        String employeeETag = assertNotModifiedUntilChanged("/user/employee/" + employeeId);
+        userController.setAvailability(Sets.newHashSet(DayOfWeek.MONDAY), employeeId);
+        Assertions.assertNotEquals(employeeETag, assertNotModifiedUntilChanged("/user/employee/" + employeeId));
+    }
+
+    @Test
+    public void testScheduleListETagsFollowVersions() throws Exception {
+        Long customerId = createCustomer();
+        Long petId = petController.savePet(createPet(customerId)).getId();
+        Long employeeId = createEmployee();
+        ScheduleRequest weekly = createSchedule(employeeId, petId, LocalDate.of(2020, 2, 3));
+        weekly.setRecurrence(Recurrence.WEEKLY);
+        weekly.setRecurrenceUntil(LocalDate.of(2020, 3, 2));
+        weekly = scheduleController.createSchedule(weekly);
+
+        String employeeList = "/schedule/employee/" + employeeId;
+        String[] lists = {"/schedule", employeeList, "/schedule/pet/" + petId, "/schedule/customer/" + customerId};
+        String[] eTags = new String[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            eTags[i] = assertNotModifiedUntilChanged(lists[i]);
+        }
+
+        // a new schedule and a cancelled occurrence both change every list showing the schedule
+        scheduleController.createSchedule(createSchedule(employeeId, petId, LocalDate.of(2020, 2, 4)));
+        for (int i = 0; i < lists.length; i++) {
+            String eTag = assertNotModifiedUntilChanged(lists[i]);
+            Assertions.assertNotEquals(eTags[i], eTag, lists[i]);
+            eTags[i] = eTag;
+        }
+        scheduleController.cancelOccurrence(weekly.getId(), LocalDate.of(2020, 2, 10));
+        Assertions.assertNotEquals(eTags[1], assertNotModifiedUntilChanged(employeeList));
+
+        // a date range is a list of its own
+        Assertions.assertNotEquals(eTags[1], assertNotModifiedUntilChanged(employeeList + "?from=2020-02-04&to=2020-02-04"));
+
+        // an empty list is never answered 304, so an unknown pet is still reported
+        String empty = mockMvc.perform(get("/schedule/pet/-1?from=2020-01-01&to=2020-01-01"))
+                .andExpect(status().isNotFound())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNull(empty);
+    }
+
+    /**
+     * GETs a resource, then GETs it again with the ETag received and expects 304 from a single statement.
+     *
+     * @return the current ETag of the resource
+     */
+    private String assertNotModifiedUntilChanged(String uri) throws Exception {
+        MvcResult full = mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn();
+        String eTag = full.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(eTag, uri);
+        Assertions.assertFalse(full.getResponse().getContentAsString().isEmpty(), uri);
+
+        try (StatementBudget.Scope scope = statementBudget.open("conditional GET", 1)) {
+            mockMvc.perform(get(uri).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+            Assertions.assertEquals(1, scope.getCount(), uri);
+        }
+        return eTag;
+    }
+
+    private Long createCustomer() {
+        CustomerRequest customer = new CustomerRequest();
+        customer.setName("Polling owner");
+        customer.setPhoneNumber("123-456-789");
+        return userController.saveCustomer(customer).getId();
+    }
+
+    private static PetRequest createPet(Long ownerId) {
+        PetRequest pet = new PetRequest();
+        pet.setName("Polled pet");
+        pet.setType(PetType.DOG);
+        pet.setOwnerId(ownerId);
+        return pet;
+    }
+
+    private Long createEmployee() {
+        EmployeeRequest employee = new EmployeeRequest();
+        employee.setName("Polled employee");
+        employee.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+        return userController.saveEmployee(employee).getId();
+    }
+
+    private static ScheduleRequest createSchedule(Long employeeId, Long petId, LocalDate date) {
+        ScheduleRequest request = new ScheduleRequest();
+        request.setEmployeeIds(Lists.newArrayList(employeeId));
+        request.setPetIds(Lists.newArrayList(petId));
+        request.setDate(date);
+        request.setActivities(Sets.newHashSet(EmployeeSkill.WALKING));
+        return request;
+    }
+}
@@ -9,19 +9,39 @@ import com.udacity.jdnd.course3.critter.entity.*;
 import com.udacity.jdnd.course3.critter.controller.PetController;
 import com.udacity.jdnd.course3.critter.controller.ScheduleController;
 import com.udacity.jdnd.course3.critter.exceptions.EmployeeNotFoundException;
+import com.udacity.jdnd.course3.critter.exceptions.InvalidDateRangeException;
+import com.udacity.jdnd.course3.critter.exceptions.InvalidScheduleTimeException;
 import com.udacity.jdnd.course3.critter.exceptions.PetNotFoundException;
+import com.udacity.jdnd.course3.critter.exceptions.PlanTooLargeException;
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleConflictException;
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleNotFoundException;
+import com.udacity.jdnd.course3.critter.index.EmployeeAvailabilityIndex;
+import com.udacity.jdnd.course3.critter.index.ScheduleIntervalIndex;
+import com.udacity.jdnd.course3.critter.metrics.StatementBudget;
+import com.udacity.jdnd.course3.critter.repository.EmployeeManagedRepository;
+import com.udacity.jdnd.course3.critter.repository.PetManagedRepository;
+import com.udacity.jdnd.course3.critter.service.Keyset;
 import com.udacity.jdnd.course3.critter.service.PetService;
 import com.udacity.jdnd.course3.critter.service.UserService;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -56,12 +76,30 @@ public class CritterFunctionalTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private EmployeeManagedRepository employeeManagedRepository;
+
+    @Autowired
+    private PetManagedRepository petManagedRepository;
+
+    @Autowired
+    private EmployeeAvailabilityIndex employeeAvailabilityIndex;
+
+    @Autowired
+    private ScheduleIntervalIndex scheduleIntervalIndex;
+
+    @Autowired
+    private StatementBudget statementBudget;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Test
     @Order(1)
     public void testCreateCustomer(){
         CustomerRequest customerRequest = createCustomerDTO();
         CustomerRequest newCustomer = userController.saveCustomer(customerRequest);
-        CustomerRequest retrievedCustomer = userController.getAllCustomers().get(0);
+        CustomerRequest retrievedCustomer = assertMaxStatements(2, () -> userController.getAllCustomers()).get(0);
         Assertions.assertEquals(newCustomer.getName(), customerRequest.getName());
         Assertions.assertEquals(newCustomer.getId(), retrievedCustomer.getId());
         Assertions.assertTrue(retrievedCustomer.getId() > 0);
@@ -72,7 +110,7 @@ public class CritterFunctionalTest {
     public void testCreateEmployee(){
         EmployeeRequest employeeRequest = createEmployeeDTO();
         EmployeeRequest newEmployee = userController.saveEmployee(employeeRequest);
-        EmployeeRequest retrievedEmployee = userController.getEmployee(newEmployee.getId());
+        EmployeeRequest retrievedEmployee = assertMaxStatements(1, () -> userController.getEmployee(newEmployee.getId()));
         Assertions.assertEquals(employeeRequest.getSkills(), newEmployee.getSkills());
         Assertions.assertEquals(newEmployee.getId(), retrievedEmployee.getId());
         Assertions.assertTrue(retrievedEmployee.getId() > 0);
@@ -89,17 +127,17 @@ public class CritterFunctionalTest {
         PetRequest newPet = petController.savePet(petRequest);
 
         //make sure pet contains customer id
-        PetRequest retrievedPet = petController.getPet(newPet.getId());
+        PetRequest retrievedPet = assertMaxStatements(1, () -> petController.getPet(newPet.getId()));
         Assertions.assertEquals(retrievedPet.getId(), newPet.getId());
         Assertions.assertEquals(retrievedPet.getOwnerId(), newCustomer.getId());
 
         //make sure you can retrieve pets by owner
-        List<PetRequest> pets = petController.getPetsByOwner(newCustomer.getId());
+        List<PetRequest> pets = assertMaxStatements(2, () -> petController.getPetsByOwner(newCustomer.getId()));
         Assertions.assertEquals(newPet.getId(), pets.get(0).getId());
         Assertions.assertEquals(newPet.getName(), pets.get(0).getName());
 
         //check to make sure customer now also contains pet
-        CustomerRequest retrievedCustomer = userController.getAllCustomers().get(0);
+        CustomerRequest retrievedCustomer = assertMaxStatements(2, () -> userController.getAllCustomers()).get(0);
         Assertions.assertTrue(retrievedCustomer.getPetIds() != null && retrievedCustomer.getPetIds().size() > 0);
         Assertions.assertEquals(retrievedCustomer.getPetIds().get(0), retrievedPet.getId());
     }
@@ -117,7 +155,7 @@ public class CritterFunctionalTest {
         petRequest.setName("DogName");
         PetRequest newPet2 = petController.savePet(petRequest);
 
-        List<PetRequest> pets = petController.getPetsByOwner(newCustomer.getId());
+        List<PetRequest> pets = assertMaxStatements(2, () -> petController.getPetsByOwner(newCustomer.getId()));
         Assertions.assertEquals(pets.size(), 2);
         Assertions.assertEquals(pets.get(0).getOwnerId(), newCustomer.getId());
         Assertions.assertEquals(pets.get(0).getId(), newPet.getId());
@@ -133,7 +171,7 @@ public class CritterFunctionalTest {
         petRequest.setOwnerId(newCustomer.getId());
         PetRequest newPet = petController.savePet(petRequest);
 
-        CustomerRequest owner = userController.getOwnerByPet(newPet.getId());
+        CustomerRequest owner = assertMaxStatements(2, () -> userController.getOwnerByPet(newPet.getId()));
         Assertions.assertEquals(owner.getId(), newCustomer.getId());
         Assertions.assertEquals(owner.getPetIds().get(0), newPet.getId());
     }
@@ -176,7 +214,7 @@ public class CritterFunctionalTest {
         er1.setDate(LocalDate.of(2019, 12, 25)); //wednesday
         er1.setSkills(Sets.newHashSet(EmployeeSkill.PETTING));
 
-        Set<Long> eIds1 = userController.findEmployeesForService(er1).stream().map(EmployeeRequest::getId).collect(Collectors.toSet());
+        Set<Long> eIds1 = assertMaxStatements(1, () -> userController.findEmployeesForService(er1)).stream().map(EmployeeRequest::getId).collect(Collectors.toSet());
         Set<Long> eIds1expected = Sets.newHashSet(emp1n.getId(), emp2n.getId());
         Assertions.assertEquals(eIds1, eIds1expected);
 
@@ -185,7 +223,7 @@ public class CritterFunctionalTest {
         er2.setDate(LocalDate.of(2019, 12, 27)); //friday
         er2.setSkills(Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.SHAVING));
 
-        Set<Long> eIds2 = userController.findEmployeesForService(er2).stream().map(EmployeeRequest::getId).collect(Collectors.toSet());
+        Set<Long> eIds2 = assertMaxStatements(1, () -> userController.findEmployeesForService(er2)).stream().map(EmployeeRequest::getId).collect(Collectors.toSet());
         Set<Long> eIds2expected = Sets.newHashSet(emp3n.getId());
         Assertions.assertEquals(eIds2, eIds2expected);
     }
@@ -207,7 +245,7 @@ public class CritterFunctionalTest {
         Set<EmployeeSkill> skillSet =  Sets.newHashSet(EmployeeSkill.PETTING);
 
         scheduleController.createSchedule(createScheduleDTO(petList, employeeList, date, skillSet));
-        ScheduleRequest scheduleRequest = scheduleController.getAllSchedules().get(0);
+        ScheduleRequest scheduleRequest = assertMaxStatements(3, () -> scheduleController.getAllSchedules()).get(0);
 
         Assertions.assertEquals(scheduleRequest.getActivities(), skillSet);
         Assertions.assertEquals(scheduleRequest.getDate(), date);
@@ -237,31 +275,39 @@ public class CritterFunctionalTest {
          */
 
         //Employee 1 in is both schedule 1 and 3
-        List<ScheduleRequest> scheds1e = scheduleController.getScheduleForEmployee(sched1.getEmployeeIds().get(0));
+        List<ScheduleRequest> scheds1e = assertMaxStatements(3, () -> scheduleController.getScheduleForEmployee(sched1.getEmployeeIds().get(0), null, null));
         compareSchedules(sched1, scheds1e.get(0));
         compareSchedules(sched3, scheds1e.get(1));
 
         //Employee 2 is only in schedule 2
-        List<ScheduleRequest> scheds2e = scheduleController.getScheduleForEmployee(sched2.getEmployeeIds().get(0));
+        List<ScheduleRequest> scheds2e = scheduleController.getScheduleForEmployee(sched2.getEmployeeIds().get(0), null, null);
         compareSchedules(sched2, scheds2e.get(0));
 
         //Pet 1 is only in schedule 1
-        List<ScheduleRequest> scheds1p = scheduleController.getScheduleForPet(sched1.getPetIds().get(0));
+        List<ScheduleRequest> scheds1p = scheduleController.getScheduleForPet(sched1.getPetIds().get(0), null, null);
         compareSchedules(sched1, scheds1p.get(0));
 
         //Pet from schedule 2 is in both schedules 2 and 3
-        List<ScheduleRequest> scheds2p = scheduleController.getScheduleForPet(sched2.getPetIds().get(0));
+        List<ScheduleRequest> scheds2p = assertMaxStatements(3, () -> scheduleController.getScheduleForPet(sched2.getPetIds().get(0), null, null));
         compareSchedules(sched2, scheds2p.get(0));
         compareSchedules(sched3, scheds2p.get(1));
 
         //Owner of the first pet will only be in schedule 1
-        List<ScheduleRequest> scheds1c = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(sched1.getPetIds().get(0)).getId());
+        List<ScheduleRequest> scheds1c = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(sched1.getPetIds().get(0)).getId(), null, null);
         compareSchedules(sched1, scheds1c.get(0));
 
         //Owner of pet from schedule 2 will be in both schedules 2 and 3
-        List<ScheduleRequest> scheds2c = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(sched2.getPetIds().get(0)).getId());
+        List<ScheduleRequest> scheds2c = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(sched2.getPetIds().get(0)).getId(), null, null);
         compareSchedules(sched2, scheds2c.get(0));
         compareSchedules(sched3, scheds2c.get(1));
+
+        //Only schedule 3 of that owner is in 2020
+        Long owner2 = userController.getOwnerByPet(sched2.getPetIds().get(0)).getId();
+        List<ScheduleRequest> scheds2c2020 = assertMaxStatements(3, () -> scheduleController.getScheduleForCustomer(owner2, LocalDate.of(2020, 1, 1), null));
+        Assertions.assertEquals(1, scheds2c2020.size());
+        compareSchedules(sched3, scheds2c2020.get(0));
+        Assertions.assertEquals(1, scheduleController.getScheduleForPet(sched2.getPetIds().get(0), null, LocalDate.of(2019, 12, 31)).size());
+        Assertions.assertEquals(0, scheduleController.getScheduleForEmployee(sched1.getEmployeeIds().get(0), LocalDate.of(2019, 12, 26), LocalDate.of(2020, 3, 22)).size());
     }
 
     @Test
@@ -338,6 +384,515 @@ public class CritterFunctionalTest {
         Assertions.assertEquals(expectedMessage, actualMessage);
     }
 
+    @Test
+    @DisplayName("Additional Test: bitmask availability query agrees with the in-memory index")
+    @Order(12)
+    public void testAvailabilityQueryMatchesIndex() {
+        EmployeeRequest emp1 = createEmployeeDTO();
+        EmployeeRequest emp2 = createEmployeeDTO();
+        emp1.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY, DayOfWeek.THURSDAY));
+        emp2.setDaysAvailable(Sets.newHashSet(DayOfWeek.THURSDAY));
+        emp1.setSkills(Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.MEDICATING, EmployeeSkill.SHAVING));
+        emp2.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+        EmployeeRequest emp1n = userController.saveEmployee(emp1);
+        EmployeeRequest emp2n = userController.saveEmployee(emp2);
+        // no skills at all is stored as the empty mask, which the index and the query both match
+        EmployeeRequest emp3 = createEmployeeDTO();
+        emp3.setSkills(null);
+        emp3.setDaysAvailable(Sets.newHashSet(DayOfWeek.THURSDAY));
+        EmployeeRequest emp3n = userController.saveEmployee(emp3);
+
+        Set<EmployeeSkill> walking = Sets.newHashSet(EmployeeSkill.WALKING);
+        Set<EmployeeSkill> walkingAndMedicating = Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.MEDICATING);
+        for (Set<EmployeeSkill> skills : Lists.newArrayList(Collections.<EmployeeSkill>emptySet(), walking, walkingAndMedicating)) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                Assertions.assertEquals(
+                        Sets.newHashSet(employeeAvailabilityIndex.findEmployeeIdsWithAllSkillsOnDay(skills, day)),
+                        Sets.newHashSet(employeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay(skills, day)));
+            }
+        }
+        Assertions.assertEquals(Lists.newArrayList(emp1n.getId(), emp2n.getId()),
+                employeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay(walking, DayOfWeek.THURSDAY));
+        Assertions.assertEquals(Lists.newArrayList(emp1n.getId()),
+                employeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay(walkingAndMedicating, DayOfWeek.THURSDAY));
+        Assertions.assertTrue(employeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay(
+                Collections.emptySet(), DayOfWeek.THURSDAY).contains(emp3n.getId()));
+    }
+
+    @Test
+    @DisplayName("Additional Test: keyset pages and NDJSON stream of pets")
+    @Order(13)
+    public void testPetKeysetPaginationAndStream() throws Exception {
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        List<Long> petIds = IntStream.range(0, 3)
+                .mapToObj(i -> createPetDTO())
+                .map(p -> {
+                    p.setOwnerId(customer.getId());
+                    return petController.savePet(p).getId();
+                }).collect(Collectors.toList());
+
+        List<PetRequest> firstPage = petController.getPetsPage(petIds.get(0) - 1, 2);
+        Assertions.assertEquals(petIds.subList(0, 2), firstPage.stream().map(PetRequest::getId).collect(Collectors.toList()));
+        List<PetRequest> secondPage = petController.getPetsPage(firstPage.get(1).getId(), 2);
+        Assertions.assertEquals(petIds.subList(2, 3), secondPage.stream().map(PetRequest::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(customer.getId(), secondPage.get(0).getOwnerId());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        petController.streamPets(response);
+        Assertions.assertEquals("application/x-ndjson", response.getContentType());
+        Assertions.assertEquals(petController.getPets().size(), response.getContentAsString().split("\n").length);
+    }
+
+    @Test
+    @DisplayName("Additional Test: bulk schedule creation reports failures per item")
+    @Order(14)
+    public void testCreateSchedulesInBatch() {
+        EmployeeRequest employee = userController.saveEmployee(createEmployeeDTO());
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        PetRequest petTemp = createPetDTO();
+        petTemp.setOwnerId(customer.getId());
+        PetRequest pet = petController.savePet(petTemp);
+
+        LocalDate date = LocalDate.of(2019, 12, 25);
+        Set<EmployeeSkill> skillSet = Sets.newHashSet(EmployeeSkill.PETTING);
+        List<ScheduleRequest> requests = Lists.newArrayList(
+                createScheduleDTO(Lists.newArrayList(pet.getId()), Lists.newArrayList(employee.getId()), date, skillSet),
+                createScheduleDTO(Lists.newArrayList(pet.getId(), 1000L), Lists.newArrayList(employee.getId()), date, skillSet),
+                createScheduleDTO(Lists.newArrayList(pet.getId()), new ArrayList<>(), date, skillSet),
+                createScheduleDTO(Lists.newArrayList(pet.getId()), Lists.newArrayList(employee.getId()), date.plusDays(1), skillSet));
+
+        List<ScheduleBatchResult> results = scheduleController.createSchedules(requests);
+
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertNull(results.get(0).getError());
+        Assertions.assertEquals("Could not find pet(s) with id(s): 1000", results.get(1).getError());
+        Assertions.assertEquals("Parameters of missing requests: EmployeeIds.", results.get(2).getError());
+        Assertions.assertNull(results.get(3).getError());
+        compareSchedules(requests.get(0), results.get(0).getSchedule());
+        compareSchedules(requests.get(3), results.get(3).getSchedule());
+        Assertions.assertEquals(2, scheduleController.getScheduleForPet(pet.getId(), null, null).size());
+    }
+
+    @Test
+    @DisplayName("Additional Test: employees and pets cannot be booked for overlapping time slots")
+    @Order(15)
+    public void testOverlappingSchedulesAreRejected() {
+        EmployeeRequest employee = userController.saveEmployee(createEmployeeDTO());
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        PetRequest petTemp = createPetDTO();
+        petTemp.setOwnerId(customer.getId());
+        Long pet1 = petController.savePet(petTemp).getId();
+        Long pet2 = petController.savePet(petTemp).getId();
+
+        LocalDate date = LocalDate.of(2019, 12, 25);
+        Set<EmployeeSkill> skillSet = Sets.newHashSet(EmployeeSkill.PETTING);
+        ScheduleRequest nineToTen = createScheduleDTO(Lists.newArrayList(pet1), Lists.newArrayList(employee.getId()), date, skillSet);
+        nineToTen.setStartTime(LocalTime.of(9, 0));
+        nineToTen.setEndTime(LocalTime.of(10, 0));
+        ScheduleRequest saved = scheduleController.createSchedule(nineToTen);
+        Assertions.assertEquals(LocalTime.of(9, 0), saved.getStartTime());
+        Assertions.assertEquals(LocalTime.of(10, 0), saved.getEndTime());
+
+        // back to back is fine, end times are exclusive
+        ScheduleRequest tenToEleven = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()), date, skillSet);
+        tenToEleven.setStartTime(LocalTime.of(10, 0));
+        tenToEleven.setEndTime(LocalTime.of(11, 0));
+        scheduleController.createSchedule(tenToEleven);
+
+        // the employee is booked, even though the pet is free
+        ScheduleRequest overlapping = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()), date, skillSet);
+        overlapping.setStartTime(LocalTime.of(9, 30));
+        overlapping.setEndTime(LocalTime.of(10, 30));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(overlapping));
+
+        // a schedule without times takes the whole day of its pet
+        Long otherEmployee = userController.saveEmployee(createEmployeeDTO()).getId();
+        ScheduleRequest wholeDay = createScheduleDTO(Lists.newArrayList(pet1), Lists.newArrayList(otherEmployee), date, skillSet);
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(wholeDay));
+        wholeDay.setDate(date.plusDays(1));
+        scheduleController.createSchedule(wholeDay);
+
+        // a schedule can be moved within its own slot
+        saved.setEndTime(LocalTime.of(9, 45));
+        Assertions.assertEquals(LocalTime.of(9, 45), scheduleController.createSchedule(saved).getEndTime());
+
+        overlapping.setEndTime(LocalTime.of(9, 30));
+        Assertions.assertThrows(InvalidScheduleTimeException.class, () -> scheduleController.createSchedule(overlapping));
+
+        // in a batch, only the item overlapping an earlier one is rejected
+        ScheduleRequest batch1 = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()), date.plusDays(2), skillSet);
+        ScheduleRequest batch2 = createScheduleDTO(Lists.newArrayList(pet1), Lists.newArrayList(employee.getId()), date.plusDays(2), skillSet);
+        List<ScheduleBatchResult> results = scheduleController.createSchedules(Lists.newArrayList(batch1, batch2));
+        Assertions.assertNull(results.get(0).getError());
+        Assertions.assertNotNull(results.get(0).getSchedule());
+        Assertions.assertTrue(results.get(1).getError().startsWith("Employee " + employee.getId() + " is already booked"));
+        Assertions.assertNull(results.get(1).getSchedule());
+        Assertions.assertEquals(3, scheduleController.getScheduleForEmployee(employee.getId(), null, null).size());
+    }
+
+    @Test
+    @DisplayName("Additional Test: availability search leaves out employees already booked that day")
+    @Order(16)
+    public void testBookedEmployeesAreNotAvailable() {
+        EmployeeRequest emp1 = createEmployeeDTO();
+        EmployeeRequest emp2 = createEmployeeDTO();
+        emp1.setDaysAvailable(Sets.newHashSet(DayOfWeek.WEDNESDAY));
+        emp2.setDaysAvailable(Sets.newHashSet(DayOfWeek.WEDNESDAY));
+        Long emp1Id = userController.saveEmployee(emp1).getId();
+        Long emp2Id = userController.saveEmployee(emp2).getId();
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        PetRequest petTemp = createPetDTO();
+        petTemp.setOwnerId(customer.getId());
+        Long petId = petController.savePet(petTemp).getId();
+
+        LocalDate booked = LocalDate.of(2019, 12, 25); //wednesday
+        ScheduleRequest schedule = createScheduleDTO(Lists.newArrayList(petId), Lists.newArrayList(emp1Id), booked, Sets.newHashSet(EmployeeSkill.PETTING));
+        schedule.setStartTime(LocalTime.of(9, 0));
+        schedule.setEndTime(LocalTime.of(10, 0));
+        scheduleController.createSchedule(schedule);
+
+        EmployeeRequestDTO request = createEmployeeRequestDTO();
+        request.setSkills(Sets.newHashSet(EmployeeSkill.PETTING));
+        Set<Long> available = assertMaxStatements(1, () -> userController.findEmployeesForService(request))
+                .stream().map(EmployeeRequest::getId).collect(Collectors.toSet());
+        Assertions.assertFalse(available.contains(emp1Id));
+        Assertions.assertTrue(available.contains(emp2Id));
+
+        // a week later nobody is booked
+        request.setDate(booked.plusWeeks(1));
+        available = userController.findEmployeesForService(request).stream().map(EmployeeRequest::getId).collect(Collectors.toSet());
+        Assertions.assertTrue(available.containsAll(Lists.newArrayList(emp1Id, emp2Id)));
+
+        // with room for two schedules a day the booked employee is still available
+        List<Long> candidates = employeeAvailabilityIndex.findEmployeeIdsWithAllSkillsOnDay(
+                Sets.newHashSet(EmployeeSkill.PETTING), DayOfWeek.WEDNESDAY);
+        Assertions.assertFalse(scheduleIntervalIndex.findEmployeeIdsWithCapacity(candidates, booked, 1).contains(emp1Id));
+        Assertions.assertTrue(scheduleIntervalIndex.findEmployeeIdsWithCapacity(candidates, booked, 2).contains(emp1Id));
+    }
+
+    @Test
+    @DisplayName("Additional Test: availability over a date range matches one search per day")
+    @Order(17)
+    public void testFindEmployeesForServiceInRange() {
+        EmployeeRequest emp1 = createEmployeeDTO();
+        EmployeeRequest emp2 = createEmployeeDTO();
+        emp1.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY));
+        emp2.setDaysAvailable(Sets.newHashSet(DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY));
+        emp1.setSkills(Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.FEEDING));
+        emp2.setSkills(Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.FEEDING, EmployeeSkill.SHAVING));
+        Long emp1Id = userController.saveEmployee(emp1).getId();
+        Long emp2Id = userController.saveEmployee(emp2).getId();
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        PetRequest petTemp = createPetDTO();
+        petTemp.setOwnerId(customer.getId());
+        Long petId = petController.savePet(petTemp).getId();
+
+        LocalDate from = LocalDate.of(2019, 12, 23); //monday
+        LocalDate to = LocalDate.of(2020, 1, 19);
+        // emp2 is fully booked on the first wednesday of the range
+        scheduleController.createSchedule(createScheduleDTO(Lists.newArrayList(petId), Lists.newArrayList(emp2Id),
+                LocalDate.of(2019, 12, 25), Sets.newHashSet(EmployeeSkill.WALKING)));
+
+        EmployeeAvailabilityRangeRequest rangeRequest = new EmployeeAvailabilityRangeRequest();
+        rangeRequest.setSkills(Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.FEEDING));
+        rangeRequest.setFrom(from);
+        rangeRequest.setTo(to);
+        Map<LocalDate, List<Long>> available = assertMaxStatements(0, () -> userController.findEmployeesForServiceInRange(rangeRequest));
+
+        Assertions.assertEquals(28, available.size());
+        Assertions.assertEquals(from, available.keySet().iterator().next());
+        for (Map.Entry<LocalDate, List<Long>> day : available.entrySet()) {
+            EmployeeRequestDTO single = new EmployeeRequestDTO();
+            single.setSkills(rangeRequest.getSkills());
+            single.setDate(day.getKey());
+            Set<Long> expected = userController.findEmployeesForService(single).stream().map(EmployeeRequest::getId).collect(Collectors.toSet());
+            Assertions.assertEquals(expected, Sets.newHashSet(day.getValue()), day.getKey().toString());
+        }
+        Assertions.assertEquals(Lists.newArrayList(emp1Id), available.get(LocalDate.of(2019, 12, 25)));
+        Assertions.assertEquals(Lists.newArrayList(emp1Id, emp2Id), available.get(LocalDate.of(2020, 1, 1)));
+        Assertions.assertEquals(Lists.newArrayList(emp2Id), available.get(LocalDate.of(2019, 12, 27)));
+
+        rangeRequest.setTo(from.minusDays(1));
+        Assertions.assertThrows(InvalidDateRangeException.class, () -> userController.findEmployeesForServiceInRange(rangeRequest));
+    }
+
+    @Test
+    @DisplayName("Additional Test: employees are picked automatically for one schedule or a whole plan")
+    @Order(18)
+    public void testAutoAssignAndPlanSchedules() {
+        EmployeeRequest walker = createEmployeeDTO();
+        walker.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+        walker.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY));
+        EmployeeRequest shaver = createEmployeeDTO();
+        shaver.setSkills(Sets.newHashSet(EmployeeSkill.SHAVING));
+        shaver.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY));
+        Long walkerId = userController.saveEmployee(walker).getId();
+        Long shaverId = userController.saveEmployee(shaver).getId();
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        PetRequest petTemp = createPetDTO();
+        petTemp.setOwnerId(customer.getId());
+        Long pet1 = petController.savePet(petTemp).getId();
+        Long pet2 = petController.savePet(petTemp).getId();
+
+        LocalDate monday = LocalDate.of(2019, 12, 23);
+        ScheduleRequest walk = createScheduleDTO(Lists.newArrayList(pet1), new ArrayList<>(), monday, Sets.newHashSet(EmployeeSkill.WALKING));
+        Assertions.assertEquals(Lists.newArrayList(walkerId), scheduleController.createSchedule(walk, true).getEmployeeIds());
+
+        // the only walker is fully booked that day
+        ScheduleRequest secondWalk = createScheduleDTO(Lists.newArrayList(pet2), new ArrayList<>(), monday, Sets.newHashSet(EmployeeSkill.WALKING));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(secondWalk, true));
+
+        List<ScheduleRequest> requests = Lists.newArrayList(
+                createScheduleDTO(Lists.newArrayList(pet1), new ArrayList<>(), monday.plusWeeks(1), Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.SHAVING)),
+                createScheduleDTO(Lists.newArrayList(pet2), new ArrayList<>(), monday.plusDays(1), Sets.newHashSet(EmployeeSkill.WALKING)),
+                createScheduleDTO(new ArrayList<>(), new ArrayList<>(), monday.plusWeeks(2), Sets.newHashSet(EmployeeSkill.WALKING)));
+        List<ScheduleBatchResult> planned = scheduleController.planSchedules(requests, true);
+
+        Assertions.assertNull(planned.get(0).getError());
+        Assertions.assertEquals(Lists.newArrayList(walkerId, shaverId), planned.get(0).getSchedule().getEmployeeIds());
+        Assertions.assertNotEquals(0, planned.get(0).getSchedule().getId());
+        Assertions.assertTrue(planned.get(1).getError().startsWith("No available employees"));
+        Assertions.assertEquals("Parameters of missing requests: PetIds.", planned.get(2).getError());
+        Assertions.assertEquals(2, scheduleController.getScheduleForEmployee(walkerId, null, null).size());
+
+        // more schedules than critter.solver.max-plan-size are refused before solving
+        Assertions.assertThrows(PlanTooLargeException.class,
+                () -> scheduleController.planSchedules(Collections.nCopies(5001, walk), false));
+    }
+
+    @Test
+    @Order(19)
+    public void testRecurringSchedules() {
+        EmployeeRequest employee = userController.saveEmployee(createEmployeeDTO());
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        PetRequest petTemp = createPetDTO();
+        petTemp.setOwnerId(customer.getId());
+        Long pet1 = petController.savePet(petTemp).getId();
+        Long pet2 = petController.savePet(petTemp).getId();
+
+        // a walk every Tuesday of the first quarter, stored as one schedule
+        LocalDate firstTuesday = LocalDate.of(2020, 1, 7);
+        ScheduleRequest weekly = createScheduleDTO(Lists.newArrayList(pet1), Lists.newArrayList(employee.getId()),
+                firstTuesday, Sets.newHashSet(EmployeeSkill.WALKING));
+        weekly.setStartTime(LocalTime.of(9, 0));
+        weekly.setEndTime(LocalTime.of(10, 0));
+        weekly.setRecurrence(Recurrence.WEEKLY);
+        weekly.setRecurrenceUntil(LocalDate.of(2020, 3, 31));
+        ScheduleRequest series = scheduleController.createSchedule(weekly);
+        Assertions.assertEquals(Recurrence.WEEKLY, series.getRecurrence());
+
+        LocalDate february = LocalDate.of(2020, 2, 1);
+        LocalDate endOfFebruary = LocalDate.of(2020, 2, 29);
+        List<ScheduleRequest> occurrences = assertMaxStatements(4,
+                () -> scheduleController.getScheduleForPet(pet1, february, endOfFebruary));
+        Assertions.assertEquals(Lists.newArrayList(LocalDate.of(2020, 2, 4), LocalDate.of(2020, 2, 11),
+                        LocalDate.of(2020, 2, 18), LocalDate.of(2020, 2, 25)),
+                occurrences.stream().map(ScheduleRequest::getDate).collect(Collectors.toList()));
+        occurrences.forEach(o -> Assertions.assertEquals(series.getId(), o.getId()));
+        Assertions.assertEquals(13, scheduleController.getScheduleForEmployee(employee.getId(), null, null).size());
+
+        // pages continue from the last date and schedule id received
+        List<LocalDate> paged = new ArrayList<>();
+        List<ScheduleRequest> page = scheduleController.getScheduleForPet(pet1, null, null, 0, 5);
+        while (!page.isEmpty()) {
+            page.forEach(o -> paged.add(o.getDate()));
+            ScheduleRequest last = page.get(page.size() - 1);
+            page = scheduleController.getScheduleForPet(pet1, last.getDate(), null, last.getId(), 5);
+        }
+        Assertions.assertEquals(13, paged.size());
+        Assertions.assertEquals(LocalDate.of(2020, 3, 31), paged.get(12));
+        Assertions.assertEquals(paged.stream().sorted().distinct().collect(Collectors.toList()), paged);
+
+        // every occurrence is booked
+        ScheduleRequest overlapping = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()),
+                LocalDate.of(2020, 2, 11), Sets.newHashSet(EmployeeSkill.WALKING));
+        overlapping.setStartTime(LocalTime.of(9, 30));
+        overlapping.setEndTime(LocalTime.of(10, 30));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(overlapping));
+
+        // cancelling one occurrence frees the employee on that date only
+        ScheduleRequest cancelled = scheduleController.cancelOccurrence(series.getId(), LocalDate.of(2020, 2, 11));
+        Assertions.assertEquals(Sets.newHashSet(LocalDate.of(2020, 2, 11)), cancelled.getExceptionDates());
+        scheduleController.createSchedule(overlapping);
+        Assertions.assertEquals(3, scheduleController.getScheduleForPet(pet1, february, endOfFebruary).size());
+        Assertions.assertEquals(4, scheduleController.getScheduleForEmployee(employee.getId(), february, endOfFebruary).size());
+        Assertions.assertThrows(ScheduleNotFoundException.class,
+                () -> scheduleController.cancelOccurrence(series.getId(), LocalDate.of(2020, 2, 12)));
+
+        // series are checked by their rules: ten years of daily walks are booked and conflict on their last day
+        ScheduleRequest daily = createScheduleDTO(Lists.newArrayList(pet1), Lists.newArrayList(employee.getId()),
+                LocalDate.of(2021, 1, 1), Sets.newHashSet(EmployeeSkill.WALKING));
+        daily.setStartTime(LocalTime.of(8, 0));
+        daily.setEndTime(LocalTime.of(9, 0));
+        daily.setRecurrence(Recurrence.DAILY);
+        daily.setRecurrenceUntil(LocalDate.of(2030, 12, 31));
+        scheduleController.createSchedule(daily);
+        ScheduleRequest lastDay = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()),
+                LocalDate.of(2030, 12, 31), Sets.newHashSet(EmployeeSkill.WALKING));
+        lastDay.setStartTime(LocalTime.of(8, 30));
+        lastDay.setEndTime(LocalTime.of(9, 30));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(lastDay));
+        // an open-ended read returns at most one page of the series, in date order
+        List<ScheduleRequest> firstPage = scheduleController.getScheduleForEmployee(employee.getId(), LocalDate.of(2021, 1, 1), null);
+        Assertions.assertEquals(Keyset.MAX_LIMIT, firstPage.size());
+        Assertions.assertEquals(LocalDate.of(2021, 1, 1).plusDays(Keyset.MAX_LIMIT - 1), firstPage.get(Keyset.MAX_LIMIT - 1).getDate());
+        Assertions.assertEquals(Keyset.MAX_LIMIT, scheduleController.getScheduleForEmployee(employee.getId(),
+                LocalDate.of(2021, 1, 1), null, 0, Integer.MAX_VALUE).size());
+        // and a series ends within ten years of its first date
+        daily.setDate(LocalDate.of(2041, 1, 1));
+        daily.setRecurrenceUntil(LocalDate.of(9999, 12, 31));
+        Assertions.assertThrows(InvalidScheduleTimeException.class, () -> scheduleController.createSchedule(daily));
+
+        // a weekly series ending on a monday takes place last on the tuesday before
+        ScheduleRequest tuesdays = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()),
+                LocalDate.of(2031, 1, 7), Sets.newHashSet(EmployeeSkill.WALKING));
+        tuesdays.setStartTime(LocalTime.of(8, 0));
+        tuesdays.setEndTime(LocalTime.of(9, 0));
+        tuesdays.setRecurrence(Recurrence.WEEKLY);
+        tuesdays.setRecurrenceUntil(LocalDate.of(2031, 1, 27));
+        Long tuesdaysId = scheduleController.createSchedule(tuesdays).getId();
+        entityManager.flush();
+        Assertions.assertEquals(LocalDate.of(2031, 1, 21), entityManager.find(Schedule.class, tuesdaysId).getLastDate());
+        scheduleController.cancelOccurrence(tuesdaysId, LocalDate.of(2031, 1, 21));
+        entityManager.flush();
+        Assertions.assertEquals(LocalDate.of(2031, 1, 14), entityManager.find(Schedule.class, tuesdaysId).getLastDate());
+
+        // two series conflict on a common date, unless it is cancelled in one of them
+        ScheduleRequest week = createScheduleDTO(Lists.newArrayList(pet1), Lists.newArrayList(employee.getId()),
+                LocalDate.of(2031, 1, 5), Sets.newHashSet(EmployeeSkill.WALKING));
+        week.setStartTime(LocalTime.of(8, 30));
+        week.setEndTime(LocalTime.of(9, 30));
+        week.setRecurrence(Recurrence.DAILY);
+        week.setRecurrenceUntil(LocalDate.of(2031, 1, 10));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(week));
+        week.setExceptionDates(Sets.newHashSet(LocalDate.of(2031, 1, 7)));
+        scheduleController.createSchedule(week);
+
+        // updating a series without exception dates keeps its cancelled occurrences
+        tuesdays.setId(tuesdaysId);
+        tuesdays.setEndTime(LocalTime.of(8, 20));
+        tuesdays.setExceptionDates(null);
+        ScheduleRequest updated = scheduleController.createSchedule(tuesdays);
+        Assertions.assertEquals(Sets.newHashSet(LocalDate.of(2031, 1, 21)), updated.getExceptionDates());
+        ScheduleRequest cancelledTuesday = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()),
+                LocalDate.of(2031, 1, 21), Sets.newHashSet(EmployeeSkill.WALKING));
+        cancelledTuesday.setStartTime(LocalTime.of(8, 0));
+        cancelledTuesday.setEndTime(LocalTime.of(9, 0));
+        scheduleController.createSchedule(cancelledTuesday);
+
+        ScheduleRequest endless = createScheduleDTO(Lists.newArrayList(pet2), Lists.newArrayList(employee.getId()),
+                LocalDate.of(2020, 6, 2), Sets.newHashSet(EmployeeSkill.WALKING));
+        endless.setRecurrence(Recurrence.DAILY);
+        Assertions.assertThrows(InvalidScheduleTimeException.class, () -> scheduleController.createSchedule(endless));
+    }
+
+    @Test
+    @Order(20)
+    public void testSearchPets() {
+        CustomerRequest customer = userController.saveCustomer(createCustomerDTO());
+        Long max = savePet(customer, "Max", PetType.DOG, LocalDate.of(2015, 3, 1));
+        Long mia = savePet(customer, "Mia", PetType.CAT, LocalDate.of(2016, 1, 1));
+        Long maya = savePet(customer, "Maya", PetType.DOG, LocalDate.of(2019, 6, 1));
+        Long rex = savePet(customer, "Rex", PetType.DOG, LocalDate.of(2012, 1, 1));
+        Long wildcard = savePet(customer, "M%x", PetType.DOG, null);
+        // only look at the pets of this test: searches sorted by id start after the pets saved before,
+        // no other pet has a birth date or a name starting with M
+        long after = max - 1;
+
+        Assertions.assertEquals(Lists.newArrayList(max, maya, rex, wildcard),
+                petIds(petController.searchPets(PetType.DOG, null, null, null, after, 100)));
+        Assertions.assertEquals(Lists.newArrayList(max, maya),
+                petIds(petController.searchPets(PetType.DOG, LocalDate.of(2014, 1, 1), null, null, after, 100)));
+        Assertions.assertEquals(Lists.newArrayList(max, mia),
+                petIds(petController.searchPets(null, LocalDate.of(2015, 1, 1), LocalDate.of(2018, 12, 31), null, 0, 100)));
+        Assertions.assertEquals(Lists.newArrayList(max, maya),
+                petIds(petController.searchPets(null, null, null, "Ma", 0, 100)));
+        // wildcards in the prefix are matched literally
+        Assertions.assertEquals(Lists.newArrayList(wildcard),
+                petIds(petController.searchPets(null, null, null, "M%", 0, 100)));
+        // names are matched case-sensitively by the database and by the pet type index
+        Assertions.assertEquals(Collections.emptyList(), petIds(petController.searchPets(null, null, null, "ma", 0, 100)));
+        Assertions.assertEquals(Collections.emptyList(), petIds(petController.searchPets(PetType.DOG, null, null, "ma", 0, 100)));
+        Assertions.assertEquals(Lists.newArrayList(max, maya), petIds(petController.searchPets(PetType.DOG, null, null, "Ma", 0, 100)));
+
+        // pages follow each other through the last id received
+        List<PetRequest> firstPage = petController.searchPets(PetType.DOG, null, null, null, after, 2);
+        Assertions.assertEquals(Lists.newArrayList(max, maya), petIds(firstPage));
+        Assertions.assertEquals(Lists.newArrayList(rex, wildcard),
+                petIds(petController.searchPets(PetType.DOG, null, null, null, firstPage.get(1).getId(), 2)));
+
+        // name and birth date searches are sorted, and paged, by name or birth date, then id
+        List<PetRequest> byName = petController.searchPets(null, null, null, "M", 0, 2);
+        Assertions.assertEquals(Lists.newArrayList(wildcard, max), petIds(byName));
+        Assertions.assertEquals(Lists.newArrayList(maya, mia),
+                petIds(petController.searchPets(null, null, null, "M", byName.get(1).getId(), 2)));
+        List<PetRequest> byBirthDate = petController.searchPets(null, LocalDate.of(2010, 1, 1), null, null, 0, 2);
+        Assertions.assertEquals(Lists.newArrayList(rex, max), petIds(byBirthDate));
+        Assertions.assertEquals(Lists.newArrayList(mia, maya),
+                petIds(petController.searchPets(null, LocalDate.of(2010, 1, 1), null, null, byBirthDate.get(1).getId(), 2)));
+
+        // the in-memory pet type index and the database agree, on every page
+        for (long page : new long[] {0, max, rex}) {
+            Assertions.assertEquals(petIds(petManagedRepository.search(PetType.DOG, null, LocalDate.of(2016, 1, 1), "", page, 2)),
+                    petIds(petController.searchPets(PetType.DOG, null, LocalDate.of(2016, 1, 1), "", page, 2)));
+            Assertions.assertEquals(petIds(petManagedRepository.search(PetType.DOG, LocalDate.of(2010, 1, 1), null, null, page, 2)),
+                    petIds(petController.searchPets(PetType.DOG, LocalDate.of(2010, 1, 1), null, null, page, 2)));
+            Assertions.assertEquals(petIds(petManagedRepository.search(PetType.DOG, null, null, "M", page, 2)),
+                    petIds(petController.searchPets(PetType.DOG, null, null, "M", page, 2)));
+        }
+    }
+
+    @Test
+    @Order(21)
+    public void testNotesLoadedLazily() {
+        CustomerRequest customerRequest = createCustomerDTO();
+        customerRequest.setNotes("Pays by card");
+        CustomerRequest customer = userController.saveCustomer(customerRequest);
+        PetRequest petRequest = createPetDTO();
+        petRequest.setOwnerId(customer.getId());
+        petRequest.setNotes("Allergic to chicken");
+        Long petId = petController.savePet(petRequest).getId();
+        entityManager.flush();
+        entityManager.clear();
+        entityManager.getEntityManagerFactory().getCache().evictAll();
+
+        // list endpoints read the notes within their DTO query, and load no pet or customer
+        Assertions.assertEquals("Allergic to chicken", petController.getPetsByOwner(customer.getId()).get(0).getNotes());
+        Assertions.assertEquals("Allergic to chicken", petController.getPets().stream()
+                .filter(p -> p.getId() == petId).findFirst().get().getNotes());
+        CustomerRequest listed = userController.getAllCustomers().stream()
+                .filter(c -> c.getId().equals(customer.getId())).findFirst().get();
+        Assertions.assertEquals("Pays by card", listed.getNotes());
+        Assertions.assertEquals(Lists.newArrayList(petId), listed.getPetIds());
+        Assertions.assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+
+        // so do the single lookups
+        Assertions.assertEquals("Allergic to chicken", petController.getPet(petId).getNotes());
+        Assertions.assertEquals("Pays by card", userController.getCustomer(customer.getId()).getNotes());
+        Assertions.assertEquals("Pays by card", userController.getOwnerByPet(petId).getNotes());
+        Assertions.assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+
+        // entities leave the notes out until they are read
+        Pet pet = petService.findPets(Lists.newArrayList(petId)).get(0);
+        Assertions.assertFalse(Hibernate.isPropertyInitialized(pet, "notes"));
+        Assertions.assertFalse(Hibernate.isPropertyInitialized(pet.getOwner(), "notes"));
+        Assertions.assertEquals("Allergic to chicken", pet.getNotes());
+        Assertions.assertEquals("Pays by card", pet.getOwner().getNotes());
+    }
+
+    private Long savePet(CustomerRequest owner, String name, PetType type, LocalDate birthDate) {
+        PetRequest pet = createPetDTO();
+        pet.setOwnerId(owner.getId());
+        pet.setName(name);
+        pet.setType(type);
+        pet.setBirthDate(birthDate);
+        return petController.savePet(pet).getId();
+    }
+
+    private static List<Long> petIds(List<PetRequest> pets) {
+        return pets.stream().map(PetRequest::getId).collect(Collectors.toList());
+    }
+
     private static Pet createPet(String name, PetType type) {
         Pet pet = new Pet();
         pet.setName(name);
@@ -412,11 +967,29 @@ public class CritterFunctionalTest {
         return scheduleController.createSchedule(createScheduleDTO(petIds, employeeIds, date, activities));
     }
 
+    /**
+     * Calls an endpoint the way a new request would see it (pending writes flushed, nothing cached in the
+     * persistence context) and fails if it executes more SQL statements than the endpoint is allowed.
+     * The allowances do not depend on how many rows are returned, so an N+1 regression fails here.
+     */
+    private <T> T assertMaxStatements(int maxStatements, Supplier<T> endpoint) {
+        entityManager.flush();
+        entityManager.clear();
+        try (StatementBudget.Scope scope = statementBudget.open("endpoint", maxStatements)) {
+            T result = endpoint.get();
+            Assertions.assertTrue(scope.getCount() <= maxStatements,
+                    () -> "Expected at most " + maxStatements + " SQL statements, executed " + scope.getCount());
+            return result;
+        }
+    }
+
     private static void compareSchedules(ScheduleRequest sched1, ScheduleRequest sched2) {
         Assertions.assertEquals(sched1.getPetIds(), sched2.getPetIds());
         Assertions.assertEquals(sched1.getActivities(), sched2.getActivities());
         Assertions.assertEquals(sched1.getEmployeeIds(), sched2.getEmployeeIds());
         Assertions.assertEquals(sched1.getDate(), sched2.getDate());
+        Assertions.assertEquals(sched1.getStartTime(), sched2.getStartTime());
+        Assertions.assertEquals(sched1.getEndTime(), sched2.getEndTime());
     }
 
 }
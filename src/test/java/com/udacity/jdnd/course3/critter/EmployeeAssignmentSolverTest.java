@@ -0,0 +1,188 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.index.EnumMask;
+import com.udacity.jdnd.course3.critter.solver.EmployeeAssignmentSolver;
+import com.udacity.jdnd.course3.critter.solver.Roster;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the employee assignment solver on small hand-made cases and on a synthetic week,
+ * where every assignment must respect skills, working days, bookings and the daily capacity.
+ */
+public class EmployeeAssignmentSolverTest {
+
+    private static final LocalDate MONDAY = SyntheticWeek.MONDAY;
+
+    // critter.solver.time-budget-ms
+    private static final long TIME_BUDGET_MS = 500;
+
+    // the clock is read every few hundred search nodes, and the result is collected after the budget
+    private static final long OVERRUN_MS = 100;
+
+    @Test
+    public void testAssignsFreeQualifiedEmployees() {
+        Roster roster = new Roster();
+        int monday = EnumMask.bit(MONDAY.getDayOfWeek());
+        roster.addEmployee(1, EnumMask.of(Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.FEEDING)), monday);
+        roster.addEmployee(2, EnumMask.of(Sets.newHashSet(EmployeeSkill.WALKING)), monday);
+        roster.addEmployee(3, EnumMask.of(Sets.newHashSet(EmployeeSkill.SHAVING)), monday);
+        roster.addBooking(1, MONDAY.atTime(9, 0), MONDAY.atTime(10, 0));
+
+        List<EmployeeAssignmentSolver.Slot> slots = Lists.newArrayList(
+                slot(MONDAY, 9, EmployeeSkill.WALKING),
+                slot(MONDAY, 11, EmployeeSkill.WALKING, EmployeeSkill.SHAVING),
+                slot(MONDAY.plusDays(1), 9, EmployeeSkill.WALKING),
+                slot(MONDAY, 13, EmployeeSkill.FEEDING));
+        List<List<Long>> assigned = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), 100, 2).solve(slots, roster);
+
+        // employee 1 is booked at 9
+        Assertions.assertEquals(Lists.newArrayList(2L), assigned.get(0));
+        // nobody has both skills, so two employees share the slot
+        Assertions.assertEquals(2, assigned.get(1).size());
+        Assertions.assertTrue(assigned.get(1).contains(3L));
+        // nobody works on tuesday
+        Assertions.assertEquals(Collections.emptyList(), assigned.get(2));
+        Assertions.assertEquals(Lists.newArrayList(1L), assigned.get(3));
+        assertValid(slots, assigned, roster, 2);
+    }
+
+    @Test
+    public void testPrefersLeastLoadedEmployee() {
+        Roster roster = new Roster();
+        int everyDay = (1 << 7) - 1;
+        int walking = EnumMask.bit(EmployeeSkill.WALKING);
+        roster.addEmployee(1, walking, everyDay);
+        roster.addEmployee(2, walking, everyDay);
+        // employee 1 already works tuesday and wednesday of the same week
+        roster.addBooking(1, MONDAY.plusDays(1).atTime(9, 0), MONDAY.plusDays(1).atTime(10, 0));
+        roster.addBooking(1, MONDAY.plusDays(2).atTime(9, 0), MONDAY.plusDays(2).atTime(10, 0));
+
+        List<EmployeeAssignmentSolver.Slot> slots = Lists.newArrayList(
+                slot(MONDAY, 9, EmployeeSkill.WALKING),
+                slot(MONDAY, 10, EmployeeSkill.WALKING),
+                slot(MONDAY, 11, EmployeeSkill.WALKING));
+        List<List<Long>> assigned = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), 100, 8).solve(slots, roster);
+
+        Assertions.assertEquals(Lists.newArrayList(2L), assigned.get(0));
+        Assertions.assertEquals(Lists.newArrayList(2L), assigned.get(1));
+        // now both have two bookings this week
+        Assertions.assertEquals(Lists.newArrayList(1L), assigned.get(2));
+    }
+
+    @Test
+    public void testBalancesWorkloadAcrossDates() {
+        Roster roster = new Roster();
+        int everyDay = (1 << 7) - 1;
+        int walking = EnumMask.bit(EmployeeSkill.WALKING);
+        roster.addEmployee(1, walking, everyDay);
+        roster.addEmployee(2, walking, everyDay);
+
+        // each date on its own would pick employee 1, the first of two equally loaded employees
+        List<EmployeeAssignmentSolver.Slot> slots = Lists.newArrayList(
+                slot(MONDAY, 9, EmployeeSkill.WALKING),
+                slot(MONDAY.plusDays(1), 9, EmployeeSkill.WALKING),
+                slot(MONDAY.plusDays(2), 9, EmployeeSkill.WALKING),
+                slot(MONDAY.plusDays(3), 9, EmployeeSkill.WALKING));
+        List<List<Long>> assigned = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), 100, 1).solve(slots, roster);
+
+        Map<Long, Integer> load = new HashMap<>();
+        assigned.forEach(team -> team.forEach(id -> load.merge(id, 1, Integer::sum)));
+        Assertions.assertEquals(2, (int) load.get(1L));
+        Assertions.assertEquals(2, (int) load.get(2L));
+        assertValid(slots, assigned, roster, 1);
+    }
+
+    @Test
+    public void testPlansEveryOccurrenceOfRecurringSlots() {
+        Roster roster = new Roster();
+        int everyDay = (1 << 7) - 1;
+        int walking = EnumMask.bit(EmployeeSkill.WALKING);
+        roster.addEmployee(1, walking, everyDay);
+        roster.addEmployee(2, walking, everyDay);
+        // employee 1 is free on the first monday but not on the third
+        roster.addBooking(1, MONDAY.plusWeeks(2).atTime(9, 0), MONDAY.plusWeeks(2).atTime(10, 0));
+
+        List<LocalDate> mondays = Lists.newArrayList(MONDAY, MONDAY.plusWeeks(1), MONDAY.plusWeeks(2), MONDAY.plusWeeks(3));
+        List<EmployeeAssignmentSolver.Slot> slots = Lists.newArrayList(
+                new EmployeeAssignmentSolver.Slot(MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0),
+                        Sets.newHashSet(EmployeeSkill.WALKING), mondays),
+                slot(MONDAY.plusWeeks(3), 9, EmployeeSkill.WALKING));
+        List<List<Long>> assigned = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), 100, 1).solve(slots, roster);
+
+        Assertions.assertEquals(Lists.newArrayList(2L), assigned.get(0));
+        // the series already takes employee 2 on the fourth monday
+        Assertions.assertEquals(Lists.newArrayList(1L), assigned.get(1));
+        Assertions.assertTrue(roster.getBookings(2).isEmpty());
+    }
+
+    @Test
+    public void testSyntheticWeekWithinTimeBudget() {
+        Roster roster = SyntheticWeek.roster(400, 42);
+        List<EmployeeAssignmentSolver.Slot> slots = SyntheticWeek.slots(3000, 7);
+        EmployeeAssignmentSolver solver = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), TIME_BUDGET_MS, 8);
+
+        long start = System.nanoTime();
+        List<List<Long>> assigned = solver.solve(slots, roster);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Assertions.assertTrue(millis < TIME_BUDGET_MS + OVERRUN_MS, "solving took " + millis + " ms");
+        assertValid(slots, assigned, roster, 8);
+        long covered = assigned.stream().filter(team -> !team.isEmpty()).count();
+        Assertions.assertTrue(covered > slots.size() * 0.95, "covered " + covered + " of " + slots.size());
+    }
+
+    @Test
+    public void testStopsFirstDescentAtTimeBudget() {
+        Roster roster = SyntheticWeek.roster(4000, 42);
+        List<EmployeeAssignmentSolver.Slot> slots = SyntheticWeek.slots(30000, 7);
+        // far too short for even the greedy assignment of a date
+        EmployeeAssignmentSolver solver = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), 20, 8);
+
+        long start = System.nanoTime();
+        List<List<Long>> assigned = solver.solve(slots, roster);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Assertions.assertTrue(millis < 20 + OVERRUN_MS, "solving took " + millis + " ms");
+        assertValid(slots, assigned, roster, 8);
+        Assertions.assertTrue(assigned.stream().anyMatch(List::isEmpty));
+    }
+
+    private static EmployeeAssignmentSolver.Slot slot(LocalDate date, int hour, EmployeeSkill... activities) {
+        return new EmployeeAssignmentSolver.Slot(date, LocalTime.of(hour, 0), LocalTime.of(hour + 1, 0), Sets.newHashSet(activities));
+    }
+
+    private static void assertValid(List<EmployeeAssignmentSolver.Slot> slots, List<List<Long>> assigned, Roster roster, int capacity) {
+        Assertions.assertEquals(slots.size(), assigned.size());
+        Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> busy = new HashMap<>();
+        for (Long id : roster.getEmployeeIds()) {
+            busy.put(id, new TreeMap<>(roster.getBookings(id)));
+        }
+        for (int i = 0; i < slots.size(); i++) {
+            EmployeeAssignmentSolver.Slot slot = slots.get(i);
+            int skills = 0;
+            for (Long id : assigned.get(i)) {
+                skills |= roster.getSkills(id);
+                Assertions.assertTrue((roster.getDays(id) & EnumMask.bit(slot.getDate().getDayOfWeek())) != 0);
+                LocalDateTime start = slot.getDate().atTime(slot.getStartTime());
+                LocalDateTime end = slot.getDate().atTime(slot.getEndTime());
+                Map.Entry<LocalDateTime, LocalDateTime> before = busy.get(id).lowerEntry(end);
+                Assertions.assertTrue(before == null || !before.getValue().isAfter(start), "employee " + id + " double booked");
+                busy.get(id).put(start, end);
+                Assertions.assertTrue(busy.get(id).subMap(slot.getDate().atStartOfDay(), slot.getDate().plusDays(1).atStartOfDay()).size() <= capacity);
+            }
+            if (!assigned.get(i).isEmpty()) {
+                Assertions.assertEquals(slot.getActivities(), EnumMask.toSet(skills & EnumMask.of(slot.getActivities()), EmployeeSkill.class));
+            }
+        }
+    }
+}
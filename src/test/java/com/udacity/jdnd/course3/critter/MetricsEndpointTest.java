@@ -0,0 +1,65 @@
+package com.udacity.jdnd.course3.critter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that request, service, Hibernate and connection pool metrics are published on the
+ * Prometheus scrape endpoint.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:critter-metrics")
+@AutoConfigureMockMvc
+public class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testMetricsArePublished() throws Exception {
+        mockMvc.perform(post("/user/customer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"MetricsCustomer\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/pet")).andExpect(status().isOk());
+        mockMvc.perform(get("/pet/{petId}", -1)).andExpect(status().isNotFound());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // request timers tagged by route and outcome, with percentiles
+        assertContains(scrape, "http_server_requests_seconds{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/pet\",quantile=\"0.99\",}");
+        assertContains(scrape, "outcome=\"CLIENT_ERROR\",status=\"404\",uri=\"/pet/{petId}\"");
+        assertContains(scrape, "http_server_requests_seconds_bucket{");
+
+        // service method timers
+        assertContains(scrape, "critter_service_seconds{class=\"PetService\",exception=\"none\",method=\"getAllPets\",quantile=\"0.95\",}");
+        assertContains(scrape, "critter_service_seconds_count{class=\"UserService\",exception=\"none\",method=\"save\",}");
+
+        // Hibernate statistics and connection pool gauges
+        assertContains(scrape, "hibernate_query_executions_total");
+        assertContains(scrape, "hibernate_entities_loads_total");
+        assertContains(scrape, "hibernate_collections_fetches_total{");
+        assertContains(scrape, "hibernate_second_level_cache_requests_total{");
+        assertContains(scrape, "hikaricp_connections_active{");
+    }
+
+    @Test
+    public void testNotesIndexRebuildIsNotExposed() throws Exception {
+        mockMvc.perform(post("/actuator/notesindex")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/actuator/notesindex")).andExpect(status().isNotFound());
+    }
+
+    private static void assertContains(String scrape, String expected) {
+        Assertions.assertTrue(scrape.contains(expected), () -> "Missing from scrape: " + expected);
+    }
+}
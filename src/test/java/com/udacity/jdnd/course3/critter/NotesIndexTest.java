@@ -0,0 +1,125 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.entity.Customer;
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.index.NotesIndex;
+import com.udacity.jdnd.course3.critter.repository.CustomerRepository;
+import com.udacity.jdnd.course3.critter.repository.PetRepository;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that the notes index follows committed pet and customer saves, and that the index kept
+ * current by those saves answers exactly like one rebuilt from the database.
+ *
+ * Runs without a test transaction so the saves commit and reach the index. The reader is only
+ * reopened on demand here, so the test sees exactly when changes become searchable.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:critter-notes-index",
+        "critter.notes-index.path=target/notes-index-test",
+        "critter.notes-index.refresh-interval-ms=600000"})
+public class NotesIndexTest {
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private NotesIndex notesIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testIncrementalIndexMatchesRebuild() {
+        Customer owner = saveCustomer("Prefers morning appointments, call before visiting");
+        Long diabetic = savePet(owner.getId(), "Diabetic cat, insulin twice a day");
+        Long biter = savePet(owner.getId(), "Bites when nervous. Bites the groomer, muzzle for grooming");
+        Long calm = savePet(owner.getId(), "Calm and friendly with other pets");
+        savePet(owner.getId(), null);
+        notesIndex.waitForChanges();
+
+        // stemmed and ranked: "biting" finds "bites", and the pet biting twice comes first
+        Assertions.assertEquals(Collections.singletonList(diabetic), petService.searchNotes("diabetes", 10));
+        Assertions.assertEquals(Arrays.asList(biter, calm), petService.searchNotes("biting calm", 10));
+        Assertions.assertEquals(Collections.singletonList(owner.getId()), userService.searchCustomerNotes("morning", 10));
+        Assertions.assertEquals(Collections.emptyList(), petService.searchNotes("morning", 10));
+        Assertions.assertEquals(Collections.emptyList(), petService.searchNotes("the and", 10));
+
+        // an update replaces the old words
+        Pet pet = petRepository.findById(calm).get();
+        pet.setNotes("Anxious at the vet");
+        petService.save(pet, owner.getId());
+        // the save does not wait for the reader to be reopened
+        Assertions.assertEquals(Collections.singletonList(calm), petService.searchNotes("calm", 10));
+        notesIndex.waitForChanges();
+        Assertions.assertEquals(Collections.emptyList(), petService.searchNotes("calm", 10));
+        Assertions.assertEquals(Collections.singletonList(calm), petService.searchNotes("anxious", 10));
+
+        // a rolled back save never reaches the index
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Pet rolledBack = petRepository.findById(diabetic).get();
+            rolledBack.setNotes("Vaccinated");
+            petService.save(rolledBack, owner.getId());
+            status.setRollbackOnly();
+            return null;
+        });
+        Assertions.assertEquals(Collections.singletonList(diabetic), petService.searchNotes("insulin", 10));
+        Assertions.assertEquals(Collections.emptyList(), petService.searchNotes("vaccinated", 10));
+
+        List<String> queries = Arrays.asList("diabetes", "biting calm", "anxious", "insulin groomer", "vet");
+        List<List<Long>> incremental = search(queries);
+        Map<NotesIndex.Source, Long> counts = notesIndex.count();
+        Assertions.assertEquals(petRepository.countWithNotes(), (long) counts.get(NotesIndex.Source.PET));
+        Assertions.assertEquals(customerRepository.countWithNotes(), (long) counts.get(NotesIndex.Source.CUSTOMER));
+
+        Assertions.assertEquals(counts, notesIndex.rebuild());
+        Assertions.assertEquals(incremental, search(queries));
+    }
+
+    private List<List<Long>> search(List<String> queries) {
+        List<List<Long>> results = Lists.newArrayList();
+        for (String query : queries) {
+            results.add(petService.searchNotes(query, 10));
+            results.add(userService.searchCustomerNotes(query, 10));
+        }
+        return results;
+    }
+
+    private Customer saveCustomer(String notes) {
+        Customer customer = new Customer();
+        customer.setName("NotesCustomer");
+        customer.setNotes(notes);
+        return userService.save(customer, Lists.newArrayList());
+    }
+
+    private Long savePet(Long ownerId, String notes) {
+        Pet pet = new Pet();
+        pet.setName("NotesPet");
+        pet.setType(PetType.CAT);
+        pet.setNotes(notes);
+        return petService.save(pet, ownerId).getId();
+    }
+}
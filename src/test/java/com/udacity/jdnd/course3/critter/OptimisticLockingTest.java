@@ -0,0 +1,100 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.controller.PetController;
+import com.udacity.jdnd.course3.critter.controller.UserController;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import com.udacity.jdnd.course3.critter.request.EmployeeRequest;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that a POST losing the race to another update of the same pet or employee gets 409 Conflict.
+ * The other update is simulated by incrementing the version right after the POST has read the row.
+ *
+ * Runs without a test transaction so the POST commits, which is where Hibernate checks the version.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:critter-optimistic-locking")
+@AutoConfigureMockMvc
+public class OptimisticLockingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private PetController petController;
+
+    @SpyBean
+    private PetService petService;
+
+    @SpyBean
+    private UserService userService;
+
+    @Test
+    public void testConcurrentPetUpdateIsAConflict() throws Exception {
+        CustomerRequest customer = new CustomerRequest();
+        customer.setName("Racing owner");
+        Long customerId = userController.saveCustomer(customer).getId();
+        PetRequest pet = new PetRequest();
+        pet.setName("Raced pet");
+        pet.setType(PetType.CAT);
+        pet.setOwnerId(customerId);
+        long petId = petController.savePet(pet).getId();
+
+        doAnswer(readThenUpdateElsewhere("UPDATE pet SET version = version + 1 WHERE id = ?"))
+                .when(petService).getPet(anyLong());
+        mockMvc.perform(post("/pet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":" + petId + ",\"type\":\"CAT\",\"name\":\"Renamed\",\"ownerId\":" + customerId + "}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void testConcurrentEmployeeUpdateIsAConflict() throws Exception {
+        EmployeeRequest employee = new EmployeeRequest();
+        employee.setName("Raced employee");
+        employee.setSkills(Sets.newHashSet(EmployeeSkill.FEEDING));
+        Long employeeId = userController.saveEmployee(employee).getId();
+
+        doAnswer(readThenUpdateElsewhere("UPDATE user SET version = version + 1 WHERE id = ?"))
+                .when(userService).findEmployee(anyLong());
+        mockMvc.perform(post("/user/employee")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":" + employeeId + ",\"name\":\"Renamed\",\"skills\":[\"FEEDING\"]}"))
+                .andExpect(status().isConflict());
+    }
+
+    /**
+     * Reads the row as asked, then commits another update of it before the caller writes it back.
+     */
+    private Answer<Object> readThenUpdateElsewhere(String update) {
+        return invocation -> {
+            Object read = invocation.callRealMethod();
+            jdbcTemplate.update(update, (Long) invocation.getArgument(0));
+            return read;
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.entity.Customer;
+import com.udacity.jdnd.course3.critter.entity.Employee;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.index.EmployeeAvailabilityIndex;
+import com.udacity.jdnd.course3.critter.index.PetTypeIndex;
+import com.udacity.jdnd.course3.critter.repository.PetRepository;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Checks that the in-memory indexes show a transaction its own changes right away, while other
+ * threads see them only once it commits, and never if it rolls back.
+ *
+ * Runs without a test transaction so the saves commit.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:critter-pending-index-changes")
+public class PendingIndexChangesTest {
+
+    private static final Set<EmployeeSkill> SKILLS = Sets.newHashSet(EmployeeSkill.SHAVING);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private EmployeeAvailabilityIndex employeeAvailabilityIndex;
+
+    @Autowired
+    private PetTypeIndex petTypeIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testEmployeeChangesAreSeenByOthersAfterCommit() {
+        Supplier<List<Long>> shavingOnSunday = () ->
+                employeeAvailabilityIndex.findEmployeeIdsWithAllSkillsOnDay(SKILLS, DayOfWeek.SUNDAY);
+
+        Long rolledBack = new TransactionTemplate(transactionManager).execute(status -> {
+            Long id = saveEmployee();
+            Assertions.assertTrue(shavingOnSunday.get().contains(id));
+            Assertions.assertFalse(onOtherThread(shavingOnSunday).contains(id));
+            status.setRollbackOnly();
+            return id;
+        });
+        Assertions.assertFalse(shavingOnSunday.get().contains(rolledBack));
+
+        Long committed = new TransactionTemplate(transactionManager).execute(status -> {
+            Long id = saveEmployee();
+            Assertions.assertFalse(onOtherThread(shavingOnSunday).contains(id));
+            return id;
+        });
+        Assertions.assertTrue(onOtherThread(shavingOnSunday).contains(committed));
+    }
+
+    @Test
+    public void testPetChangesAreSeenByOthersAfterCommit() {
+        Customer owner = new Customer();
+        owner.setName("Hedgehog owner");
+        Long ownerId = userService.save(owner, Lists.newArrayList()).getId();
+        Pet pet = new Pet();
+        pet.setName("Spike");
+        pet.setType(PetType.HEDGEHOG);
+        Long petId = petService.save(pet, ownerId).getId();
+        Supplier<List<Long>> spikes = () -> petTypeIndex.search(PetType.HEDGEHOG, null, null, "Spike", 0, 10);
+        Supplier<List<Long>> sonics = () -> petTypeIndex.search(PetType.HEDGEHOG, null, null, "Sonic", 0, 10);
+        Supplier<List<Long>> hedgehogs = () -> petTypeIndex.search(PetType.HEDGEHOG, null, null, null, 0, 10);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            renamePet(petId, ownerId);
+            Assertions.assertEquals(Collections.emptyList(), spikes.get());
+            Assertions.assertEquals(Collections.singletonList(petId), sonics.get());
+            Assertions.assertEquals(Collections.singletonList(petId), hedgehogs.get());
+            Assertions.assertEquals(Collections.singletonList(petId), onOtherThread(spikes));
+            status.setRollbackOnly();
+            return null;
+        });
+        Assertions.assertEquals(Collections.singletonList(petId), spikes.get());
+        Assertions.assertEquals(Collections.emptyList(), sonics.get());
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            renamePet(petId, ownerId);
+            Assertions.assertEquals(Collections.emptyList(), onOtherThread(sonics));
+            return null;
+        });
+        Assertions.assertEquals(Collections.emptyList(), onOtherThread(spikes));
+        Assertions.assertEquals(Collections.singletonList(petId), onOtherThread(sonics));
+    }
+
+    private void renamePet(Long petId, Long ownerId) {
+        Pet pet = petRepository.findById(petId).get();
+        pet.setName("Sonic");
+        petService.save(pet, ownerId);
+    }
+
+    private Long saveEmployee() {
+        Employee employee = new Employee();
+        employee.setName("Sunday barber");
+        employee.setSkills(SKILLS);
+        employee.setDaysAvailable(Sets.newHashSet(DayOfWeek.SUNDAY));
+        return userService.save(employee).getId();
+    }
+
+    private static <T> T onOtherThread(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query).join();
+    }
+}
@@ -0,0 +1,257 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.jdnd.course3.critter.config.ReadYourWritesWindow;
+import com.udacity.jdnd.course3.critter.entity.Customer;
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.metrics.StatementBudget;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against two H2 databases, a primary and a "replica" that only gets the schema, and checks
+ * that GET endpoints read from the replica, that writes and the loads for updates use the primary,
+ * and that a client that wrote reads from the primary during its read-your-writes window, which
+ * rows read from the lagging replica never reach through the shared caches.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+        "critter.datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "critter.datasource.read-your-writes-ms=60000"})
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:critter-routing-primary";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:critter-routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String WINDOW_COOKIE = "critter-read-primary-until";
+
+    // only in the replica, so a response showing it was read from there
+    private static final long REPLICA_PET_ID = 900_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatementBudget statementBudget;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReadYourWritesWindow readYourWritesWindow;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DataSource primaryDataSource = new DriverManagerDataSource(PRIMARY_URL, "sa", "");
+
+    private final DataSource replicaDataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+
+    @BeforeAll
+    public static void migrateReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").locations("classpath:db/migration/h2").load().migrate();
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.update("INSERT INTO user (id, name, version) VALUES (?, 'Replica owner', 0)", REPLICA_PET_ID);
+        replica.update("INSERT INTO customer (id) VALUES (?)", REPLICA_PET_ID);
+        replica.update("INSERT INTO pet (id, type, name, customer_id, version) VALUES (?, ?, 'ReplicaOnly', ?, 0)",
+                REPLICA_PET_ID, PetType.CAT.ordinal(), REPLICA_PET_ID);
+    }
+
+    @Test
+    public void testReadsUseReplicaUntilTheClientWrote() throws Exception {
+        MvcResult saved = mockMvc.perform(json(post("/pet"), pet("PrimaryOnly", createCustomer())))
+                .andExpect(status().isOk())
+                .andReturn();
+        Cookie window = saved.getResponse().getCookie(WINDOW_COOKIE);
+        Assertions.assertNotNull(window);
+
+        String fromReplica = mockMvc.perform(get("/pet")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(fromReplica.contains("ReplicaOnly"));
+        Assertions.assertFalse(fromReplica.contains("PrimaryOnly"));
+
+        String fromPrimary = mockMvc.perform(get("/pet").cookie(window)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(fromPrimary.contains("PrimaryOnly"));
+        Assertions.assertFalse(fromPrimary.contains("ReplicaOnly"));
+
+        // an expired window, and one reaching further than the server would ever set, read the replica again
+        long now = System.currentTimeMillis();
+        for (long until : new long[]{now - 1, now + 24 * 3600 * 1000L}) {
+            String read = mockMvc.perform(get("/pet").cookie(new Cookie(WINDOW_COOKIE, Long.toString(until))))
+                    .andReturn().getResponse().getContentAsString();
+            Assertions.assertTrue(read.contains("ReplicaOnly"), Long.toString(until));
+        }
+
+        Assertions.assertEquals(1, countPets(primaryDataSource, "PrimaryOnly"));
+        Assertions.assertEquals(0, countPets(replicaDataSource, "PrimaryOnly"));
+    }
+
+    @Test
+    public void testUpdatesLoadFromPrimary() throws Exception {
+        PetRequest pet = pet("BeforeUpdate", createCustomer());
+        pet.setId(objectMapper.readValue(mockMvc.perform(json(post("/pet"), pet))
+                .andReturn().getResponse().getContentAsString(), PetRequest.class).getId());
+
+        // a new request, so no window: the pet is still found on the primary and updated in place
+        pet.setName("AfterUpdate");
+        PetRequest updated = objectMapper.readValue(mockMvc.perform(json(post("/pet"), pet))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), PetRequest.class);
+
+        Assertions.assertEquals(pet.getId(), updated.getId());
+        Assertions.assertEquals(0, countPets(primaryDataSource, "BeforeUpdate"));
+        Assertions.assertEquals(1, countPets(primaryDataSource, "AfterUpdate"));
+    }
+
+    @Test
+    public void testReplicaReadsStayOutOfTheCaches() throws Exception {
+        Long ownerId = createCustomer();
+        PetRequest pet = pet("BeforeReplication", ownerId);
+        long petId = objectMapper.readValue(mockMvc.perform(json(post("/pet"), pet))
+                .andReturn().getResponse().getContentAsString(), PetRequest.class).getId();
+        pet.setId(petId);
+
+        // the replica got the insert but lags behind the update that follows
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.update("INSERT INTO user (id, name, version) VALUES (?, 'Routed owner', 0)", ownerId);
+        replica.update("INSERT INTO customer (id) VALUES (?)", ownerId);
+        replica.update("INSERT INTO pet (id, type, name, customer_id, version) VALUES (?, ?, 'BeforeReplication', ?, 0)",
+                petId, PetType.DOG.ordinal(), ownerId);
+        pet.setName("Replicated");
+        Cookie window = mockMvc.perform(json(post("/pet"), pet))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(WINDOW_COOKIE);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        // read-only transactions read the lagging rows, an entity and a cacheable query alike
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Assertions.assertEquals("BeforeReplication", readOnly.execute(status -> entityManager.find(Pet.class, petId).getName()));
+        Assertions.assertTrue(mockMvc.perform(get("/pet/owner/{ownerId}", ownerId))
+                .andReturn().getResponse().getContentAsString().contains("BeforeReplication"));
+
+        // without caching them: the writing client still reads its update, and the next update finds the current version
+        String own = mockMvc.perform(get("/pet/owner/{ownerId}", ownerId).cookie(window))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(own.contains("Replicated"), own);
+        pet.setName("UpdatedAgain");
+        mockMvc.perform(json(post("/pet"), pet)).andExpect(status().isOk());
+        Assertions.assertEquals(1, countPets(primaryDataSource, "UpdatedAgain"));
+    }
+
+    @Test
+    public void testOnlyTransactionsThatWroteOpenTheWindow() throws Exception {
+        Long ownerId = createCustomer();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // a thread of its own, so its window does not send the reads of other tests to the primary
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Assertions.assertFalse(executor.submit(() -> {
+                transaction.execute(status -> entityManager.find(Customer.class, ownerId));
+                return readYourWritesWindow.isOpen();
+            }).get());
+            Assertions.assertTrue(executor.submit(() -> {
+                transaction.execute(status -> {
+                    entityManager.find(Customer.class, ownerId).setPhoneNumber("987-654-321");
+                    return null;
+                });
+                return readYourWritesWindow.isOpen();
+            }).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPoolsAreMeasuredSeparately() throws Exception {
+        double replicaReads = connections("replica", "read-only");
+        String eTag = mockMvc.perform(get("/pet/{petId}", REPLICA_PET_ID))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertTrue(connections("replica", "read-only") > replicaReads);
+
+        // statements on the replica are counted once, not again by the routing data source in front of it
+        try (StatementBudget.Scope scope = statementBudget.open("conditional GET", 1)) {
+            mockMvc.perform(get("/pet/{petId}", REPLICA_PET_ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified());
+            Assertions.assertEquals(1, scope.getCount());
+        }
+
+        Assertions.assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primary").gauge());
+        Assertions.assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica").gauge());
+        Assertions.assertTrue(connections("primary", "read-write") > 0);
+    }
+
+    private double connections(String pool, String route) {
+        return meterRegistry.get("critter.datasource.connections").tag("pool", pool).tag("route", route).functionCounter().count();
+    }
+
+    private static int countPets(DataSource dataSource, String name) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM pet WHERE name = ?", Integer.class, name);
+    }
+
+    private MockHttpServletRequestBuilder json(MockHttpServletRequestBuilder request, Object body) throws Exception {
+        return request.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(body));
+    }
+
+    private Long createCustomer() throws Exception {
+        CustomerRequest customer = new CustomerRequest();
+        customer.setName("Routed owner");
+        customer.setPhoneNumber("123-456-789");
+        return objectMapper.readValue(mockMvc.perform(json(post("/user/customer"), customer))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), CustomerRequest.class).getId();
+    }
+
+    private static PetRequest pet(String name, Long ownerId) {
+        PetRequest pet = new PetRequest();
+        pet.setName(name);
+        pet.setType(PetType.DOG);
+        pet.setOwnerId(ownerId);
+        return pet;
+    }
+}
@@ -0,0 +1,305 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.controller.PetController;
+import com.udacity.jdnd.course3.critter.controller.ScheduleController;
+import com.udacity.jdnd.course3.critter.controller.UserController;
+import com.udacity.jdnd.course3.critter.entity.Employee;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.entity.Recurrence;
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleConflictException;
+import com.udacity.jdnd.course3.critter.index.ScheduleIntervalIndex;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import com.udacity.jdnd.course3.critter.request.EmployeeRequest;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books schedules from many threads at once and checks that no employee is ever double booked, that
+ * concurrent updates of one schedule are all applied through optimistic retries, and that bookings
+ * of different employees never wait for each other.
+ *
+ * Runs without a test transaction so every booking commits on its own.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:critter-booking-stress",
+        "critter.schedule.optimistic-retries=" + ScheduleBookingStressTest.THREADS})
+public class ScheduleBookingStressTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleBookingStressTest.class);
+
+    static final int THREADS = 8;
+
+    private static final int BOOKINGS_PER_THREAD = 20;
+
+    private static final int EMPLOYEES = 4;
+
+    private static final LocalDate DATE = LocalDate.of(2021, 3, 1);
+
+    // ids of the employees and schedules booked straight into the index, far from the generated ones
+    private static final AtomicLong indexOnlyIds = new AtomicLong(-1_000_000);
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private PetController petController;
+
+    @Autowired
+    private ScheduleController scheduleController;
+
+    @Autowired
+    private ScheduleIntervalIndex scheduleIntervalIndex;
+
+    @Test
+    public void testConcurrentBookingsNeverOverbook() throws Exception {
+        List<Long> employeeIds = new ArrayList<>();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employeeIds.add(createEmployee());
+        }
+        Long ownerId = createCustomer();
+        List<Long> petIds = new ArrayList<>();
+        for (int i = 0; i < THREADS * BOOKINGS_PER_THREAD; i++) {
+            petIds.add(createPet(ownerId));
+        }
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                // one to two hours starting on the hour between 09:00 and 12:00, so most requests overlap
+                LocalTime start = LocalTime.of(9 + random.nextInt(4), 0);
+                ScheduleRequest request = createSchedule(employeeIds.get(random.nextInt(EMPLOYEES)),
+                        petIds.get(thread * BOOKINGS_PER_THREAD + i), DATE, start, start.plusHours(1 + random.nextInt(2)));
+                try {
+                    scheduleController.createSchedule(request);
+                    booked.incrementAndGet();
+                } catch (ScheduleConflictException exception) {
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+
+        Assertions.assertEquals(THREADS * BOOKINGS_PER_THREAD, booked.get() + conflicts.get());
+        int stored = 0;
+        for (Long employeeId : employeeIds) {
+            List<ScheduleRequest> schedules = scheduleController.getScheduleForEmployee(employeeId, DATE, DATE);
+            schedules.sort(Comparator.comparing(ScheduleRequest::getStartTime));
+            for (int i = 1; i < schedules.size(); i++) {
+                Assertions.assertFalse(schedules.get(i).getStartTime().isBefore(schedules.get(i - 1).getEndTime()),
+                        "Employee " + employeeId + " is double booked");
+            }
+            stored += schedules.size();
+        }
+        Assertions.assertEquals(booked.get(), stored);
+        Assertions.assertTrue(booked.get() >= EMPLOYEES);
+    }
+
+    @Test
+    public void testConcurrentUpdatesOfOneScheduleAreRetried() throws Exception {
+        ScheduleRequest weekly = createSchedule(createEmployee(), createPet(createCustomer()), DATE,
+                LocalTime.of(8, 0), LocalTime.of(9, 0));
+        weekly.setRecurrence(Recurrence.WEEKLY);
+        weekly.setRecurrenceUntil(DATE.plusWeeks(THREADS));
+        Long scheduleId = scheduleController.createSchedule(weekly).getId();
+
+        // every thread cancels another week of the same series: each one changes the schedule's version
+        runConcurrently(thread -> scheduleController.cancelOccurrence(scheduleId, DATE.plusWeeks(thread + 1)));
+
+        Set<LocalDate> cancelled = scheduleController.getAllSchedules().stream()
+                .filter(s -> s.getId() == scheduleId)
+                .findFirst().get().getExceptionDates();
+        Set<LocalDate> expected = new HashSet<>();
+        for (int i = 1; i <= THREADS; i++) {
+            expected.add(DATE.plusWeeks(i));
+        }
+        Assertions.assertEquals(expected, cancelled);
+    }
+
+    @Test
+    public void testOtherEmployeesAndDatesDoNotWait() throws Exception {
+        Employee busy = indexOnlyEmployee();
+        Employee other = indexOnlyEmployee();
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // holds the lock of (busy, DATE) until released
+            Future<Schedule> slow = executor.submit(() -> scheduleIntervalIndex.book(indexOnlySchedule(busy, DATE, 9), schedule -> {
+                saving.countDown();
+                awaitUninterruptibly(release);
+                return withIndexOnlyId(schedule);
+            }));
+            Assertions.assertTrue(saving.await(10, TimeUnit.SECONDS));
+
+            Assertions.assertNotNull(bookInIndex(executor, other, DATE, 9).get(5, TimeUnit.SECONDS).getId());
+            Assertions.assertNotNull(bookInIndex(executor, busy, DATE.plusDays(1), 9).get(5, TimeUnit.SECONDS).getId());
+
+            Future<Schedule> sameDay = bookInIndex(executor, busy, DATE, 11);
+            Assertions.assertThrows(TimeoutException.class, () -> sameDay.get(200, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            Assertions.assertNotNull(slow.get(5, TimeUnit.SECONDS).getId());
+            Assertions.assertNotNull(sameDay.get(5, TimeUnit.SECONDS).getId());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Threads booking different employees take different stripes, so with two cores or more they book
+     * more per second together than one thread alone. With a single core there is nothing to compare.
+     */
+    @Test
+    public void testThroughputWithThreadsOnDifferentEmployees() throws Exception {
+        int bookings = 20_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        // warms the booking path up so the single thread run is not measured while it is compiled
+        bookingsPerSecond(1, bookings);
+        double single = bookingsPerSecond(1, bookings);
+        int threads = Math.max(2, cores);
+        double parallel = bookingsPerSecond(threads, bookings);
+        log.info("Index bookings per second: {} with 1 thread, {} with {} threads ({} cores)",
+                Math.round(single), Math.round(parallel), threads, cores);
+        Assumptions.assumeTrue(cores >= 2, "a single core runs the threads one after the other");
+        Assertions.assertTrue(parallel > single, "bookings per second: " + Math.round(parallel) + " with "
+                + threads + " threads, " + Math.round(single) + " with 1");
+    }
+
+    /**
+     * Every thread moves a schedule of its own employee to the next day, bookings times over.
+     */
+    private double bookingsPerSecond(int threads, int bookings) throws Exception {
+        long start = System.nanoTime();
+        runConcurrently(threads, thread -> {
+            Employee employee = indexOnlyEmployee();
+            Long scheduleId = indexOnlyIds.decrementAndGet();
+            for (int i = 0; i < bookings; i++) {
+                Schedule schedule = indexOnlySchedule(employee, DATE.plusDays(i), 9);
+                schedule.setId(scheduleId);
+                scheduleIntervalIndex.book(schedule, s -> s);
+            }
+        });
+        return threads * bookings / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private Future<Schedule> bookInIndex(ExecutorService executor, Employee employee, LocalDate date, int hour) {
+        return executor.submit(() ->
+                scheduleIntervalIndex.book(indexOnlySchedule(employee, date, hour), ScheduleBookingStressTest::withIndexOnlyId));
+    }
+
+    private static Employee indexOnlyEmployee() {
+        Employee employee = new Employee();
+        employee.setId(indexOnlyIds.decrementAndGet());
+        return employee;
+    }
+
+    private static Schedule indexOnlySchedule(Employee employee, LocalDate date, int hour) {
+        Schedule schedule = new Schedule();
+        schedule.setEmployees(Lists.newArrayList(employee));
+        schedule.setPets(new ArrayList<>());
+        schedule.setDate(date);
+        schedule.setStartTime(LocalTime.of(hour, 0));
+        schedule.setEndTime(LocalTime.of(hour + 1, 0));
+        return schedule;
+    }
+
+    private static Schedule withIndexOnlyId(Schedule schedule) {
+        schedule.setId(indexOnlyIds.decrementAndGet());
+        return schedule;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(ThreadBody body) throws Exception {
+        runConcurrently(THREADS, body);
+    }
+
+    /**
+     * Starts the threads together and rethrows the first failure of any of them.
+     */
+    private static void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Long createEmployee() {
+        EmployeeRequest employee = new EmployeeRequest();
+        employee.setName("Dispatched employee");
+        employee.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+        return userController.saveEmployee(employee).getId();
+    }
+
+    private Long createCustomer() {
+        CustomerRequest customer = new CustomerRequest();
+        customer.setName("Owner");
+        customer.setPhoneNumber("123-456-789");
+        return userController.saveCustomer(customer).getId();
+    }
+
+    private Long createPet(Long ownerId) {
+        PetRequest pet = new PetRequest();
+        pet.setName("Pet");
+        pet.setType(PetType.DOG);
+        pet.setOwnerId(ownerId);
+        return petController.savePet(pet).getId();
+    }
+
+    private static ScheduleRequest createSchedule(Long employeeId, Long petId, LocalDate date, LocalTime start, LocalTime end) {
+        ScheduleRequest request = new ScheduleRequest();
+        request.setEmployeeIds(Lists.newArrayList(employeeId));
+        request.setPetIds(Lists.newArrayList(petId));
+        request.setDate(date);
+        request.setStartTime(start);
+        request.setEndTime(end);
+        request.setActivities(Sets.newHashSet(EmployeeSkill.WALKING));
+        return request;
+    }
+}
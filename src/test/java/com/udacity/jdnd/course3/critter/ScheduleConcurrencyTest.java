@@ -0,0 +1,136 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.controller.PetController;
+import com.udacity.jdnd.course3.critter.controller.ScheduleController;
+import com.udacity.jdnd.course3.critter.controller.UserController;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.exceptions.ScheduleConflictException;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import com.udacity.jdnd.course3.critter.request.EmployeeRequest;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Books the same employee from many threads at once and checks that exactly one booking of an
+ * overlapping slot succeeds, and that a rolled back booking frees its slot again.
+ *
+ * Runs without a test transaction so every booking commits on its own.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:critter-schedule-concurrency")
+public class ScheduleConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private PetController petController;
+
+    @Autowired
+    private ScheduleController scheduleController;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testConcurrentOverlappingBookingsOfOneEmployee() throws Exception {
+        Long employeeId = createEmployee();
+        List<Long> petIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            petIds.add(createPet());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                // every slot overlaps every other one between 09:45 and 10:00
+                ScheduleRequest request = createSchedule(employeeId, petIds.get(i), LocalTime.of(9, i * 5), LocalTime.of(10, 15));
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        scheduleController.createSchedule(request);
+                    } catch (ScheduleConflictException exception) {
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(THREADS - 1, conflicts.get());
+        Assertions.assertEquals(1, scheduleController.getScheduleForEmployee(employeeId, null, null).size());
+    }
+
+    @Test
+    public void testRolledBackBookingReleasesItsSlot() {
+        Long employeeId = createEmployee();
+        Long petId = createPet();
+        ScheduleRequest request = createSchedule(employeeId, petId, LocalTime.of(14, 0), LocalTime.of(15, 0));
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> {
+            scheduleController.createSchedule(request);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        Assertions.assertEquals(0, scheduleController.getScheduleForEmployee(employeeId, null, null).size());
+        scheduleController.createSchedule(request);
+        Assertions.assertEquals(1, scheduleController.getScheduleForEmployee(employeeId, null, null).size());
+    }
+
+    private Long createEmployee() {
+        EmployeeRequest employee = new EmployeeRequest();
+        employee.setName("Busy employee");
+        employee.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+        return userController.saveEmployee(employee).getId();
+    }
+
+    private Long createPet() {
+        CustomerRequest customer = new CustomerRequest();
+        customer.setName("Owner");
+        customer.setPhoneNumber("123-456-789");
+        PetRequest pet = new PetRequest();
+        pet.setName("Pet");
+        pet.setType(PetType.DOG);
+        pet.setOwnerId(userController.saveCustomer(customer).getId());
+        return petController.savePet(pet).getId();
+    }
+
+    private static ScheduleRequest createSchedule(Long employeeId, Long petId, LocalTime startTime, LocalTime endTime) {
+        ScheduleRequest request = new ScheduleRequest();
+        request.setEmployeeIds(Lists.newArrayList(employeeId));
+        request.setPetIds(Lists.newArrayList(petId));
+        request.setDate(LocalDate.of(2020, 2, 3));
+        request.setStartTime(startTime);
+        request.setEndTime(endTime);
+        request.setActivities(Sets.newHashSet(EmployeeSkill.WALKING));
+        return request;
+    }
+}
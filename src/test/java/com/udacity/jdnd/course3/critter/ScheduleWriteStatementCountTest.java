@@ -0,0 +1,134 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.entity.*;
+import com.udacity.jdnd.course3.critter.metrics.StatementBudget;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Counts the statements issued when a schedule with N pets and M employees is created.
+ *
+ * Only the owning side (Schedule) may be written: one insert for the schedule, one insert per
+ * join row, and no reads of the pets, employees or their inverse schedule collections. A batch of
+ * schedules sends the rows of each table in one JDBC batch.
+ */
+@Transactional
+@SpringBootTest(classes = CritterApplication.class)
+public class ScheduleWriteStatementCountTest {
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private StatementBudget statementBudget;
+
+    @ParameterizedTest
+    @CsvSource({"1, 1", "5, 3", "25, 10"})
+    public void testCreateScheduleWritesOnlyOwningSide(int numPets, int numEmployees) {
+        Customer customer = new Customer();
+        customer.setName("StatementCountCustomer");
+        customer = userService.save(customer, Lists.newArrayList());
+        Long ownerId = customer.getId();
+        List<Long> petIds = IntStream.range(0, numPets).mapToObj(i -> {
+            Pet pet = new Pet();
+            pet.setName("Pet" + i);
+            pet.setType(PetType.DOG);
+            return petService.save(pet, ownerId).getId();
+        }).collect(Collectors.toList());
+        List<Long> employeeIds = IntStream.range(0, numEmployees).mapToObj(i -> {
+            Employee employee = new Employee();
+            employee.setName("Employee" + i);
+            return userService.save(employee).getId();
+        }).collect(Collectors.toList());
+        entityManager.flush();
+        entityManager.clear();
+
+        // resolve references the same way ScheduleController.createSchedule does
+        Schedule schedule = new Schedule();
+        schedule.setDate(LocalDate.of(2020, 1, 6));
+        schedule.setActivities(Sets.newHashSet(EmployeeSkill.WALKING));
+        schedule.setPets(petService.findPets(petIds));
+        schedule.setEmployees(userService.findAllEmployees(employeeIds));
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        scheduleService.save(schedule);
+        entityManager.flush();
+
+        Assertions.assertEquals(1, statistics.getEntityInsertCount());
+        Assertions.assertEquals(0, statistics.getEntityUpdateCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(0, statistics.getEntityFetchCount());
+        Assertions.assertEquals(0, statistics.getCollectionFetchCount());
+        Assertions.assertEquals(0, statistics.getCollectionLoadCount());
+        Assertions.assertEquals(0, statistics.getQueryExecutionCount());
+        // the two join tables are written in one pass each; the empty exception dates write no rows
+        Assertions.assertEquals(3, statistics.getCollectionRecreateCount());
+        // id fetch + schedule insert + one insert per join row
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 2 + numPets + numEmployees,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testBatchSendsOneJdbcBatchPerTable() {
+        Customer customer = new Customer();
+        customer.setName("BatchStatementCountCustomer");
+        customer = userService.save(customer, Lists.newArrayList());
+        Pet pet = new Pet();
+        pet.setName("BatchPet");
+        pet.setType(PetType.DOG);
+        Long petId = petService.save(pet, customer.getId()).getId();
+        Employee employee = new Employee();
+        employee.setName("BatchEmployee");
+        Long employeeId = userService.save(employee).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Pet> pets = petService.findPets(Lists.newArrayList(petId));
+        List<Employee> employees = userService.findAllEmployees(Lists.newArrayList(employeeId));
+        List<Schedule> schedules = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Schedule schedule = new Schedule();
+            schedule.setDate(LocalDate.of(2030, 1, 1).plusDays(i));
+            schedule.setActivities(Sets.newHashSet(EmployeeSkill.WALKING));
+            schedule.setPets(new ArrayList<>(pets));
+            schedule.setEmployees(new ArrayList<>(employees));
+            schedules.add(schedule);
+        }
+
+        try (StatementBudget.Scope scope = statementBudget.open("ScheduleService.saveAll", 1000)) {
+            Assertions.assertEquals(300, scheduleService.saveAll(schedules).size());
+            // one id fetch per 50 schedules, then one batch for the schedules and one per join table
+            Assertions.assertTrue(scope.getCount() <= 300 / 50 + 1 + 3, "statements: " + scope.getCount());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.udacity.jdnd.course3.critter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * Checks the H2 plan of each query shape the repositories run against the schema created by the
+ * Flyway migrations, so every lookup stays backed by an index instead of a table scan.
+ */
+@SpringBootTest(classes = CritterApplication.class)
+public class SchemaIndexTest {
+
+    // schedules with an occurrence in the range: single schedules dated in it and series overlapping it
+    private static final String DATE_RANGE = "s.date <= DATE '2019-12-31' AND s.last_date >= DATE '2019-01-01'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static Stream<Arguments> plannedQueries() {
+        return Stream.of(
+                // PetRepository.findByOwnerId
+                Arguments.of("SELECT p.id FROM pet p WHERE p.customer_id = 1",
+                        new String[] {"IDX_PET_CUSTOMER"}),
+                // EmployeeManagedRepository.findEmployeeIdsWithAllSkillsOnDay
+                Arguments.of("SELECT e.id FROM employee AS e WHERE e.skills IN (6, 7) AND e.days_available IN (4, 5) ORDER BY e.id",
+                        new String[] {"IDX_EMPLOYEE_SKILLS_DAYS"}),
+                // ScheduleRepository.findEmployeeIdsByScheduleIds / findPetIdsByScheduleIds
+                Arguments.of("SELECT se.schedule_id, se.employee_id FROM schedule_employee se WHERE se.schedule_id IN (1, 2)",
+                        new String[] {"IDX_SCHEDULE_EMPLOYEE_SCHEDULE"}),
+                Arguments.of("SELECT sp.schedule_id, sp.pet_id FROM schedule_pet sp WHERE sp.schedule_id IN (1, 2)",
+                        new String[] {"IDX_SCHEDULE_PET_SCHEDULE"}),
+                // ScheduleRepository.findByEmployeeId
+                Arguments.of("SELECT s.id FROM schedule s INNER JOIN schedule_employee se ON s.id = se.schedule_id " +
+                                "WHERE se.employee_id = 1 AND " + DATE_RANGE,
+                        new String[] {"IDX_SCHEDULE_EMPLOYEE_EMPLOYEE"}),
+                // ScheduleRepository.findByPetId
+                Arguments.of("SELECT s.id FROM schedule s INNER JOIN schedule_pet sp ON s.id = sp.schedule_id " +
+                                "WHERE sp.pet_id = 1 AND " + DATE_RANGE,
+                        new String[] {"IDX_SCHEDULE_PET_PET"}),
+                // ScheduleRepository.findByCustomerId
+                Arguments.of("SELECT DISTINCT s.id FROM schedule s INNER JOIN schedule_pet sp ON s.id = sp.schedule_id " +
+                                "INNER JOIN pet p ON p.id = sp.pet_id WHERE p.customer_id = 1 AND " + DATE_RANGE,
+                        new String[] {"IDX_PET_CUSTOMER", "IDX_SCHEDULE_PET_PET"}),
+                // PetManagedRepository.search: type on any page, type with birth dates on a later page,
+                // first page of a birth date range and of a name prefix
+                Arguments.of("SELECT p.id FROM pet p WHERE p.id > 0 AND p.type = 3 ORDER BY p.id",
+                        new String[] {"IDX_PET_TYPE_BIRTH_DATE"}),
+                Arguments.of("SELECT p.id FROM pet p WHERE p.birth_date >= DATE '2016-05-01' " +
+                                "AND (p.birth_date > DATE '2016-05-01' OR p.id > 42) AND p.type = 3 " +
+                                "AND p.birth_date >= DATE '2015-01-01' AND p.birth_date <= DATE '2019-12-31' ORDER BY p.birth_date, p.id",
+                        new String[] {"IDX_PET_TYPE_BIRTH_DATE"}),
+                Arguments.of("SELECT p.id FROM pet p WHERE " +
+                                "p.birth_date >= DATE '2015-01-01' AND p.birth_date <= DATE '2019-12-31' ORDER BY p.birth_date, p.id",
+                        new String[] {"IDX_PET_BIRTH_DATE"}),
+                Arguments.of("SELECT p.id FROM pet p WHERE p.name LIKE 'Ma%' ESCAPE '!' ORDER BY p.name, p.id",
+                        new String[] {"IDX_PET_NAME"}),
+                // later pages of a birth date range and of a name prefix, after the last pet of the previous page
+                Arguments.of("SELECT p.id FROM pet p WHERE p.birth_date >= DATE '2016-05-01' " +
+                                "AND (p.birth_date > DATE '2016-05-01' OR p.id > 42) " +
+                                "AND p.birth_date >= DATE '2015-01-01' AND p.birth_date <= DATE '2019-12-31' ORDER BY p.birth_date, p.id",
+                        new String[] {"IDX_PET_BIRTH_DATE"}),
+                Arguments.of("SELECT p.id FROM pet p WHERE p.name >= 'Max' AND (p.name > 'Max' OR p.id > 42) " +
+                                "AND p.name LIKE 'Ma%' ESCAPE '!' ORDER BY p.name, p.id",
+                        new String[] {"IDX_PET_NAME"}),
+                // date range on its own (e.g. schedules of a day)
+                Arguments.of("SELECT s.id FROM schedule s WHERE " + DATE_RANGE,
+                        new String[] {"IDX_SCHEDULE_DATE"}));
+    }
+
+    @ParameterizedTest
+    @MethodSource("plannedQueries")
+    public void testQueryUsesIndex(String sql, String[] indexes) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        for (String index : indexes) {
+            Assertions.assertTrue(plan.contains("PUBLIC." + index + ":"), () -> "Expected " + index + " in plan:\n" + plan);
+        }
+        Assertions.assertFalse(plan.contains(".tableScan"), () -> "Unexpected table scan in plan:\n" + plan);
+    }
+}
@@ -0,0 +1,122 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.entity.Customer;
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.metrics.StatementBudget;
+import com.udacity.jdnd.course3.critter.repository.PetRepository;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that pets and customers are served from the second-level cache and that saving through
+ * UserService and PetService never leaves stale entities, pet collections or query results behind.
+ *
+ * Runs without a test transaction so every call commits and uses a new persistence context.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "spring.datasource.url=jdbc:h2:mem:critter-cache")
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private StatementBudget statementBudget;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testRepeatedLookupsAreServedFromCache() {
+        Customer customer = userService.save(createCustomer("CachedCustomer"), Lists.newArrayList());
+        Pet pet = petService.save(createPet("CachedPet"), customer.getId());
+
+        petService.getPet(pet.getId());
+        Assertions.assertEquals("CachedPet", countStatements(0, () -> petService.getPet(pet.getId()).get().getName()));
+        Assertions.assertEquals("CachedCustomer", countStatements(0, () -> userService.findCustomerById(customer.getId()).get().getName()));
+
+        petService.findPetByOwner(customer.getId());
+        Assertions.assertEquals(1, countStatements(0, () -> petService.findPetByOwner(customer.getId())).size());
+
+        Assertions.assertTrue(meterRegistry.get("hibernate.second.level.cache.requests")
+                .tag("result", "hit").functionCounter().count() > 0);
+    }
+
+    @Test
+    public void testSavesInvalidateCachedEntitiesCollectionsAndQueries() {
+        Customer first = userService.save(createCustomer("First"), Lists.newArrayList());
+        Customer second = userService.save(createCustomer("Second"), Lists.newArrayList());
+        Pet pet = petService.save(createPet("Moving"), first.getId());
+
+        // cache the customers, their pet collections and the owner queries
+        Assertions.assertEquals(Lists.newArrayList(pet.getId()), petIdsOf(first.getId()));
+        Assertions.assertEquals(Lists.newArrayList(), petIdsOf(second.getId()));
+        Assertions.assertEquals(1, petService.findPetByOwner(first.getId()).size());
+
+        // UserService.save: entity update, loaded and saved in one session as the controller does with open-in-view
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Customer renamed = userService.findCustomerById(first.getId()).get();
+            renamed.setName("Renamed");
+            return userService.save(renamed, Lists.newArrayList(pet.getId()));
+        });
+        Assertions.assertEquals("Renamed", userService.findCustomerById(first.getId()).get().getName());
+
+        // PetService.save: the pet changes owner, so both pet collections and the owner queries are stale
+        Pet moved = petService.getPet(pet.getId()).get();
+        moved.setName("Moved");
+        petService.save(moved, second.getId());
+        Assertions.assertEquals("Moved", petService.getPet(pet.getId()).get().getName());
+        Assertions.assertEquals(Lists.newArrayList(), petIdsOf(first.getId()));
+        Assertions.assertEquals(Lists.newArrayList(pet.getId()), petIdsOf(second.getId()));
+        Assertions.assertEquals(0, petService.findPetByOwner(first.getId()).size());
+        Assertions.assertEquals(1, petRepository.findByOwnerId(second.getId()).size());
+    }
+
+    private List<Long> petIdsOf(Long customerId) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                userService.findCustomerById(customerId).get().getPets().stream().map(Pet::getId).collect(Collectors.toList()));
+    }
+
+    private <T> T countStatements(int expected, Supplier<T> call) {
+        try (StatementBudget.Scope scope = statementBudget.open("cached read", expected)) {
+            T result = call.get();
+            Assertions.assertEquals(expected, scope.getCount());
+            return result;
+        }
+    }
+
+    private static Customer createCustomer(String name) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        customer.setPhoneNumber("123-456-789");
+        return customer;
+    }
+
+    private static Pet createPet(String name) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setType(PetType.CAT);
+        return pet;
+    }
+}
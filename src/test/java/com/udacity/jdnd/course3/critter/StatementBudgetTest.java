@@ -0,0 +1,55 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.udacity.jdnd.course3.critter.metrics.StatementBudget;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that HTTP requests and transactional methods are counted and warned about when they
+ * go over their statement budgets (both set to 0 here).
+ */
+@ExtendWith(OutputCaptureExtension.class)
+@SpringBootTest(classes = CritterApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:critter-statement-budget",
+        "critter.sql.request-budget=0",
+        "critter.sql.transaction-budget=0"})
+@AutoConfigureMockMvc
+public class StatementBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private StatementBudget statementBudget;
+
+    @Test
+    public void testRequestOverBudgetIsLogged(CapturedOutput output) throws Exception {
+        mockMvc.perform(get("/pet")).andExpect(status().isOk());
+        Assertions.assertTrue(output.getOut().contains("GET /pet exceeded its budget of 0 SQL statements"));
+    }
+
+    @Test
+    public void testTransactionalMethodOverBudgetIsLogged(CapturedOutput output) {
+        try (StatementBudget.Scope outer = statementBudget.open("outer", 10)) {
+            petService.forEachPet(pet -> {});
+            Assertions.assertEquals(1, outer.getCount());
+            Assertions.assertFalse(outer.isExceeded());
+        }
+        Assertions.assertTrue(output.getOut().contains("PetService.forEachPet exceeded its budget of 0 SQL statements"));
+        Assertions.assertTrue(output.getOut().contains("java.lang.Throwable: Statement over budget"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.index.EnumMask;
+import com.udacity.jdnd.course3.critter.solver.EmployeeAssignmentSolver;
+import com.udacity.jdnd.course3.critter.solver.Roster;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded synthetic planning input for one week: employees with random skills and working days, some of
+ * them already booked, and one-hour slots between 08:00 and 18:00 needing one or two activities.
+ */
+public final class SyntheticWeek {
+
+    // a Monday
+    public static final LocalDate MONDAY = LocalDate.of(2021, 3, 1);
+
+    private SyntheticWeek() {}
+
+    public static Roster roster(int employees, long seed) {
+        Random random = new Random(seed);
+        Roster roster = new Roster();
+        int allSkills = (1 << EmployeeSkill.values().length) - 1;
+        for (long id = 1; id <= employees; id++) {
+            // two to four skills, four to six working days
+            roster.addEmployee(id, randomMask(random, allSkills, 2 + random.nextInt(3)),
+                    randomMask(random, (1 << DayOfWeek.values().length) - 1, 4 + random.nextInt(3)));
+            if (random.nextInt(4) == 0) {
+                LocalDate date = MONDAY.plusDays(random.nextInt(7));
+                LocalTime start = LocalTime.of(8 + random.nextInt(10), 0);
+                roster.addBooking(id, date.atTime(start), date.atTime(start.plusHours(1)));
+            }
+        }
+        return roster;
+    }
+
+    public static List<EmployeeAssignmentSolver.Slot> slots(int count, long seed) {
+        Random random = new Random(seed);
+        List<EmployeeAssignmentSolver.Slot> slots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalTime start = LocalTime.of(8 + random.nextInt(10), 0);
+            int activities = randomMask(random, (1 << EmployeeSkill.values().length) - 1, 1 + random.nextInt(2));
+            slots.add(new EmployeeAssignmentSolver.Slot(MONDAY.plusDays(random.nextInt(7)), start, start.plusHours(1),
+                    EnumMask.toSet(activities, EmployeeSkill.class)));
+        }
+        return slots;
+    }
+
+    private static int randomMask(Random random, int all, int bits) {
+        int mask = 0;
+        while (Integer.bitCount(mask) < Math.min(bits, Integer.bitCount(all))) {
+            mask |= 1 << random.nextInt(Integer.SIZE - Integer.numberOfLeadingZeros(all));
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,73 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.exceptions.MissingInfoException;
+import com.udacity.jdnd.course3.critter.service.ValidationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks the messages of the compiled validators, including attributes whose getter fails, which are skipped.
+ */
+public class ValidationServiceTest {
+
+    private final ValidationService validationService = new ValidationService();
+
+    public static class Request {
+        private String name;
+        private List<Long> ids;
+        private boolean broken;
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public String getNotes() {
+            if (broken) {
+                throw new IllegalStateException("notes are not loaded");
+            }
+            return "notes";
+        }
+    }
+
+    @Test
+    public void testValidRequestPasses() {
+        Request request = new Request();
+        request.name = "Rex";
+        request.ids = Lists.newArrayList(1L);
+        validationService.validatePOJOAttributesNotNullOrEmpty(request);
+    }
+
+    @Test
+    public void testReportsNullAndEmptyAttributes() {
+        Request request = new Request();
+        request.ids = Collections.emptyList();
+        MissingInfoException exception = Assertions.assertThrows(MissingInfoException.class,
+                () -> validationService.validatePOJOAttributesNotNullOrEmpty(request));
+        Assertions.assertTrue(exception.getMessage().startsWith("Parameters of missing requests: "));
+        Assertions.assertTrue(exception.getMessage().contains("Name"));
+        Assertions.assertTrue(exception.getMessage().contains("Ids"));
+        Assertions.assertFalse(exception.getMessage().contains("Notes"));
+    }
+
+    @Test
+    public void testFailingGetterIsSkipped() {
+        Request request = new Request();
+        request.name = "Rex";
+        request.ids = Lists.newArrayList(1L);
+        request.broken = true;
+        validationService.validatePOJOAttributesNotNullOrEmpty(request);
+
+        request.name = null;
+        MissingInfoException exception = Assertions.assertThrows(MissingInfoException.class,
+                () -> validationService.validatePOJOAttributesNotNullOrEmpty(request));
+        Assertions.assertEquals("Parameters of missing requests: Name.", exception.getMessage());
+    }
+}
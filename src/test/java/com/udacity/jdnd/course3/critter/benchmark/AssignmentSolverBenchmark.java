@@ -0,0 +1,47 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.udacity.jdnd.course3.critter.SyntheticWeek;
+import com.udacity.jdnd.course3.critter.solver.EmployeeAssignmentSolver;
+import com.udacity.jdnd.course3.critter.solver.Roster;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans a synthetic week of one-hour slots with the fork/join employee assignment solver.
+ * The time budget caps the search; the score shows how far below it a full assignment is found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AssignmentSolverBenchmark {
+
+    @Param({"1000", "3000"})
+    public int slots;
+
+    @Param({"400"})
+    public int employees;
+
+    private Roster roster;
+
+    private List<EmployeeAssignmentSolver.Slot> week;
+
+    private EmployeeAssignmentSolver solver;
+
+    @Setup
+    public void createWeek() {
+        roster = SyntheticWeek.roster(employees, 42);
+        week = SyntheticWeek.slots(slots, 7);
+        solver = new EmployeeAssignmentSolver(ForkJoinPool.commonPool(), 500, 8);
+    }
+
+    @Benchmark
+    public List<List<Long>> solveWeek() {
+        return solver.solve(week, roster);
+    }
+}
@@ -0,0 +1,69 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.index.EmployeeAvailabilityIndex;
+import com.udacity.jdnd.course3.critter.index.ScheduleIntervalIndex;
+import com.udacity.jdnd.course3.critter.repository.EmployeeManagedRepository;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding employees with all requested skills on a day, through the database query and
+ * through the in-memory availability index that now answers the endpoint. The booked variant
+ * also leaves out employees who already have a schedule on the date, and the month variants answer
+ * a whole month one day at a time or in one range pass.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AvailabilityQueryBenchmark {
+
+    private static final Set<EmployeeSkill> SKILLS = Sets.newHashSet(EmployeeSkill.FEEDING, EmployeeSkill.PETTING);
+
+    // a Monday inside the seeded schedule dates
+    private static final LocalDate DATE = LocalDate.of(2020, 3, 2);
+
+    @Benchmark
+    public List<Long> databaseQuery(SeededDataset dataset) {
+        return dataset.getBean(EmployeeManagedRepository.class).findEmployeeIdsWithAllSkillsOnDay(SKILLS, DayOfWeek.MONDAY);
+    }
+
+    @Benchmark
+    public List<Long> availabilityIndex(SeededDataset dataset) {
+        return dataset.getBean(EmployeeAvailabilityIndex.class).findEmployeeIdsWithAllSkillsOnDay(SKILLS, DayOfWeek.MONDAY);
+    }
+
+    @Benchmark
+    public List<Long> bookedAvailabilityIndex(SeededDataset dataset) {
+        List<Long> ids = dataset.getBean(EmployeeAvailabilityIndex.class).findEmployeeIdsWithAllSkillsOnDay(SKILLS, DATE.getDayOfWeek());
+        return dataset.getBean(ScheduleIntervalIndex.class).findEmployeeIdsWithCapacity(ids, DATE, 1);
+    }
+
+    @Benchmark
+    public List<List<Long>> monthOneDayAtATime(SeededDataset dataset) {
+        EmployeeAvailabilityIndex availabilityIndex = dataset.getBean(EmployeeAvailabilityIndex.class);
+        ScheduleIntervalIndex intervalIndex = dataset.getBean(ScheduleIntervalIndex.class);
+        List<List<Long>> days = new ArrayList<>();
+        for (LocalDate date = DATE; date.isBefore(DATE.plusMonths(1)); date = date.plusDays(1)) {
+            days.add(intervalIndex.findEmployeeIdsWithCapacity(
+                    availabilityIndex.findEmployeeIdsWithAllSkillsOnDay(SKILLS, date.getDayOfWeek()), date, 1));
+        }
+        return days;
+    }
+
+    @Benchmark
+    public Map<LocalDate, List<Long>> monthRange(SeededDataset dataset) {
+        return dataset.getBean(UserService.class).findEmployeeIdsAvailable(SKILLS, DATE, DATE.plusMonths(1).minusDays(1));
+    }
+}
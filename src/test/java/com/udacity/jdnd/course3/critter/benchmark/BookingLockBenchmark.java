@@ -0,0 +1,75 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.entity.Employee;
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+import com.udacity.jdnd.course3.critter.index.ScheduleIntervalIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books slots in the schedule interval index from one and from four threads, each thread moving a
+ * schedule of its own employee from day to day. With per employee and date locks the four threads
+ * never wait for each other, so the throughput grows with the cores instead of staying flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookingLockBenchmark {
+
+    @State(Scope.Thread)
+    public static class Booker {
+
+        private static final AtomicLong ids = new AtomicLong();
+
+        private final Employee employee = new Employee();
+
+        private final Long scheduleId = ids.incrementAndGet();
+
+        private LocalDate date = LocalDate.of(2021, 1, 1);
+
+        @Setup
+        public void createEmployee() {
+            employee.setId(ids.incrementAndGet());
+        }
+
+        private Schedule next() {
+            Schedule schedule = new Schedule();
+            schedule.setId(scheduleId);
+            schedule.setEmployees(Lists.newArrayList(employee));
+            schedule.setPets(new ArrayList<>());
+            schedule.setDate(date);
+            schedule.setStartTime(LocalTime.of(9, 0));
+            schedule.setEndTime(LocalTime.of(10, 0));
+            date = date.plusDays(1);
+            return schedule;
+        }
+    }
+
+    private ScheduleIntervalIndex index;
+
+    @Setup
+    public void createIndex() {
+        index = new ScheduleIntervalIndex(1024);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Schedule bookOneThread(Booker booker) {
+        return index.book(booker.next(), schedule -> schedule);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Schedule bookFourThreads(Booker booker) {
+        return index.book(booker.next(), schedule -> schedule);
+    }
+}
@@ -0,0 +1,186 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.entity.*;
+import com.udacity.jdnd.course3.critter.mapper.CustomerMapper;
+import com.udacity.jdnd.course3.critter.mapper.EmployeeMapper;
+import com.udacity.jdnd.course3.critter.mapper.PetMapper;
+import com.udacity.jdnd.course3.critter.mapper.ScheduleMapper;
+import com.udacity.jdnd.course3.critter.request.CustomerRequest;
+import com.udacity.jdnd.course3.critter.request.EmployeeRequest;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.BeanUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-object cost of the entity/DTO mappers against the BeanUtils.copyProperties calls they replaced.
+ *
+ * Run with -prof gc to compare allocation per operation as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MappingBenchmark {
+
+    private static final String []  PROPERTIES_TO_IGNORE_ON_COPY = { "id" };
+
+    private final PetMapper petMapper = new PetMapper();
+    private final CustomerMapper customerMapper = new CustomerMapper();
+    private final EmployeeMapper employeeMapper = new EmployeeMapper();
+    private final ScheduleMapper scheduleMapper = new ScheduleMapper();
+
+    private Pet pet;
+    private PetRequest petRequest;
+    private Customer customer;
+    private List<Long> petIds;
+    private CustomerRequest customerRequest;
+    private Employee employee;
+    private EmployeeRequest employeeRequest;
+    private Schedule schedule;
+    private List<Long> employeeIds;
+
+    @Setup
+    public void createObjects() {
+        customer = new Customer();
+        customer.setId(1L);
+        customer.setName("Customer");
+        customer.setPhoneNumber("123-456-789");
+        customer.setNotes("Notes");
+        petIds = Lists.newArrayList(2L, 3L);
+
+        customerRequest = new CustomerRequest();
+        customerRequest.setName("Customer");
+        customerRequest.setPhoneNumber("123-456-789");
+
+        pet = new Pet();
+        pet.setId(2L);
+        pet.setType(PetType.CAT);
+        pet.setName("Kilo");
+        pet.setOwner(customer);
+        pet.setBirthDate(LocalDate.of(2018, 1, 1));
+        pet.setNotes("Notes");
+
+        petRequest = new PetRequest(0, PetType.DOG, "Remy", 1L, LocalDate.of(2019, 1, 1), "Notes");
+
+        employee = new Employee();
+        employee.setId(4L);
+        employee.setName("Employee");
+        employee.setSkills(Sets.newHashSet(EmployeeSkill.FEEDING, EmployeeSkill.PETTING));
+        employee.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY, DayOfWeek.FRIDAY));
+        employeeIds = Lists.newArrayList(4L);
+
+        employeeRequest = new EmployeeRequest();
+        employeeRequest.setName("Employee");
+        employeeRequest.setSkills(employee.getSkills());
+        employeeRequest.setDaysAvailable(employee.getDaysAvailable());
+
+        schedule = new Schedule();
+        schedule.setId(5L);
+        schedule.setDate(LocalDate.of(2019, 12, 25));
+        schedule.setActivities(Sets.newHashSet(EmployeeSkill.PETTING));
+    }
+
+    @Benchmark
+    public PetRequest petToDTOMapper() {
+        return petMapper.toDTO(pet);
+    }
+
+    @Benchmark
+    public PetRequest petToDTOBeanUtils() {
+        PetRequest dto = new PetRequest();
+        BeanUtils.copyProperties(pet, dto);
+        dto.setOwnerId(pet.getOwner().getId());
+        return dto;
+    }
+
+    @Benchmark
+    public Pet petToEntityMapper() {
+        Pet p = new Pet();
+        petMapper.copyToEntity(petRequest, p);
+        return p;
+    }
+
+    @Benchmark
+    public Pet petToEntityBeanUtils() {
+        Pet p = new Pet();
+        BeanUtils.copyProperties(petRequest, p, PROPERTIES_TO_IGNORE_ON_COPY);
+        return p;
+    }
+
+    @Benchmark
+    public CustomerRequest customerToDTOMapper() {
+        return customerMapper.toDTO(customer, petIds);
+    }
+
+    @Benchmark
+    public CustomerRequest customerToDTOBeanUtils() {
+        CustomerRequest dto = new CustomerRequest();
+        BeanUtils.copyProperties(customer, dto);
+        dto.setPetIds(petIds);
+        return dto;
+    }
+
+    @Benchmark
+    public Customer customerToEntityMapper() {
+        Customer c = new Customer();
+        customerMapper.copyToEntity(customerRequest, c);
+        return c;
+    }
+
+    @Benchmark
+    public Customer customerToEntityBeanUtils() {
+        Customer c = new Customer();
+        BeanUtils.copyProperties(customerRequest, c, PROPERTIES_TO_IGNORE_ON_COPY);
+        return c;
+    }
+
+    @Benchmark
+    public EmployeeRequest employeeToDTOMapper() {
+        return employeeMapper.toDTO(employee);
+    }
+
+    @Benchmark
+    public EmployeeRequest employeeToDTOBeanUtils() {
+        EmployeeRequest dto = new EmployeeRequest();
+        BeanUtils.copyProperties(employee, dto);
+        return dto;
+    }
+
+    @Benchmark
+    public Employee employeeToEntityMapper() {
+        Employee e = new Employee();
+        employeeMapper.copyToEntity(employeeRequest, e);
+        return e;
+    }
+
+    @Benchmark
+    public Employee employeeToEntityBeanUtils() {
+        Employee e = new Employee();
+        BeanUtils.copyProperties(employeeRequest, e, PROPERTIES_TO_IGNORE_ON_COPY);
+        return e;
+    }
+
+    @Benchmark
+    public ScheduleRequest scheduleToDTOMapper() {
+        return scheduleMapper.toDTO(schedule, employeeIds, petIds, schedule.getExceptionDates());
+    }
+
+    @Benchmark
+    public ScheduleRequest scheduleToDTOBeanUtils() {
+        ScheduleRequest dto = new ScheduleRequest();
+        BeanUtils.copyProperties(schedule, dto);
+        dto.setEmployeeIds(employeeIds);
+        dto.setPetIds(petIds);
+        return dto;
+    }
+}
@@ -0,0 +1,52 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.udacity.jdnd.course3.critter.entity.Pet;
+import com.udacity.jdnd.course3.critter.exceptions.PetNotFoundException;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PetService.findPets with every id present and with one id missing, which has to be detected
+ * and reported after the lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PetLookupBenchmark {
+
+    @Param({"10", "1000"})
+    public int idsPerRequest;
+
+    private List<Long> presentIds;
+
+    private List<Long> idsWithOneMissing;
+
+    @Setup(Level.Trial)
+    public void chooseIds(SeededDataset dataset) {
+        presentIds = new ArrayList<>(dataset.petIds.subList(0, Math.min(idsPerRequest, dataset.petIds.size())));
+        idsWithOneMissing = new ArrayList<>(presentIds);
+        idsWithOneMissing.set(idsWithOneMissing.size() / 2, -1L);
+    }
+
+    @Benchmark
+    public List<Pet> allPresent(SeededDataset dataset) {
+        return dataset.getBean(PetService.class).findPets(presentIds);
+    }
+
+    @Benchmark
+    public String oneMissing(SeededDataset dataset) {
+        try {
+            dataset.getBean(PetService.class).findPets(idsWithOneMissing);
+            throw new IllegalStateException("Missing pet was not detected");
+        } catch (PetNotFoundException exception) {
+            return exception.getMessage();
+        }
+    }
+}
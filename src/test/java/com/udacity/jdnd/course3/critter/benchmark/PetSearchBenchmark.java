@@ -0,0 +1,46 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.udacity.jdnd.course3.critter.entity.PetType;
+import com.udacity.jdnd.course3.critter.repository.PetManagedRepository;
+import com.udacity.jdnd.course3.critter.request.PetRequest;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of the pet search by type and birth date range, through the database query and through
+ * the in-memory pet type index that now answers searches with a type, and a name prefix search
+ * that always goes to the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PetSearchBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    // seeded pets are born in the ten years before 2020
+    private static final LocalDate BORN_FROM = LocalDate.of(2015, 1, 1);
+
+    private static final LocalDate BORN_TO = LocalDate.of(2017, 12, 31);
+
+    @Benchmark
+    public List<PetRequest> typeAndAgeDatabaseQuery(SeededDataset dataset) {
+        return dataset.getBean(PetManagedRepository.class).search(PetType.DOG, BORN_FROM, BORN_TO, null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PetRequest> typeAndAgePetTypeIndex(SeededDataset dataset) {
+        return dataset.getBean(PetService.class).searchPets(PetType.DOG, BORN_FROM, BORN_TO, null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PetRequest> namePrefixDatabaseQuery(SeededDataset dataset) {
+        return dataset.getBean(PetService.class).searchPets(null, null, null, "Pet12", 0, PAGE_SIZE);
+    }
+}
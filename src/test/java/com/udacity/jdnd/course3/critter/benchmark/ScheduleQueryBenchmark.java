@@ -0,0 +1,48 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.udacity.jdnd.course3.critter.controller.ScheduleController;
+import com.udacity.jdnd.course3.critter.entity.Schedule;
+import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
+import com.udacity.jdnd.course3.critter.service.Keyset;
+import com.udacity.jdnd.course3.critter.service.ScheduleOccurrence;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading schedules for a customer, and the cost of converting a page of schedules to DTOs.
+ *
+ * The controller benchmarks run the same query as the matching service benchmark followed by
+ * the controller's DTO copy, so the difference between the two is the cost of that copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScheduleQueryBenchmark {
+
+    private static final int PAGE_SIZE = 500;
+
+    @Benchmark
+    public List<ScheduleOccurrence> findSchedulesForCustomer(SeededDataset dataset) {
+        return dataset.getBean(ScheduleService.class).findSchedulesForCustomer(dataset.nextCustomerId(), null, null, 0, Keyset.MAX_LIMIT);
+    }
+
+    @Benchmark
+    public List<ScheduleRequest> getScheduleForCustomer(SeededDataset dataset) {
+        return dataset.getBean(ScheduleController.class).getScheduleForCustomer(dataset.nextCustomerId(), null, null);
+    }
+
+    @Benchmark
+    public List<Schedule> findSchedulePage(SeededDataset dataset) {
+        return dataset.getBean(ScheduleService.class).findSchedulesAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<ScheduleRequest> copySchedulePageToDTO(SeededDataset dataset) {
+        return dataset.getBean(ScheduleController.class).getSchedulesPage(0, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,131 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.entity.*;
+import com.udacity.jdnd.course3.critter.index.EmployeeAvailabilityIndex;
+import com.udacity.jdnd.course3.critter.index.EnumMask;
+import com.udacity.jdnd.course3.critter.index.PetTypeIndex;
+import com.udacity.jdnd.course3.critter.repository.CustomerRepository;
+import com.udacity.jdnd.course3.critter.repository.EmployeeRepository;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shared benchmark fixture: an application context over an H2 database seeded with a
+ * reproducible dataset of the requested size.
+ *
+ * For a size of N the dataset holds N customers with two pets each, N / 2 employees with
+ * random skills and days, and 2N schedules in 2020, each booking one employee and the
+ * pets of one customer. The same seed always produces the same rows and ids.
+ */
+@State(Scope.Benchmark)
+public class SeededDataset {
+
+    private static final long SEED = 20200101L;
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    public ConfigurableApplicationContext context;
+
+    public final List<Long> customerIds = new ArrayList<>();
+
+    public final List<Long> petIds = new ArrayList<>();
+
+    public final List<Long> employeeIds = new ArrayList<>();
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        context = BenchmarkContexts.start("seeded-" + size);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Random random = new Random(SEED);
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Customer c = new Customer();
+            c.setName("Customer" + i);
+            c.setPhoneNumber(String.valueOf(1000000 + i));
+            for (int j = 0; j < 2; j++) {
+                Pet p = new Pet();
+                p.setName("Pet" + i + "-" + j);
+                p.setType(PetType.values()[random.nextInt(PetType.values().length)]);
+                p.setBirthDate(FIRST_DATE.minusDays(random.nextInt(3650)));
+                p.setOwner(c);
+                c.getPets().add(p);
+            }
+            customers.add(c);
+        }
+        CustomerRepository customerRepository = context.getBean(CustomerRepository.class);
+        for (List<Customer> chunk : Lists.partition(customers, CHUNK_SIZE)) {
+            transaction.execute(status -> customerRepository.saveAll(chunk));
+        }
+        customers.forEach(c -> {
+            customerIds.add(c.getId());
+            c.getPets().forEach(p -> petIds.add(p.getId()));
+        });
+        context.getBean(PetTypeIndex.class).load();
+
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < size / 2; i++) {
+            Employee e = new Employee();
+            e.setName("Employee" + i);
+            e.setSkills(EnumMask.toSet(random.nextInt(1 << EmployeeSkill.values().length), EmployeeSkill.class));
+            e.setDaysAvailable(EnumMask.toSet(random.nextInt(1 << DayOfWeek.values().length), DayOfWeek.class));
+            employees.add(e);
+        }
+        EmployeeRepository employeeRepository = context.getBean(EmployeeRepository.class);
+        for (List<Employee> chunk : Lists.partition(employees, CHUNK_SIZE)) {
+            transaction.execute(status -> employeeRepository.saveAll(chunk));
+        }
+        employees.forEach(e -> employeeIds.add(e.getId()));
+        context.getBean(EmployeeAvailabilityIndex.class).load();
+
+        List<Schedule> schedules = new ArrayList<>();
+        for (int i = 0; i < 2 * size; i++) {
+            Customer c = customers.get(random.nextInt(customers.size()));
+            Schedule s = new Schedule();
+            s.setDate(FIRST_DATE.plusDays(random.nextInt(366)));
+            s.setActivities(EnumMask.toSet(1 + random.nextInt((1 << EmployeeSkill.values().length) - 1), EmployeeSkill.class));
+            s.setEmployees(Lists.newArrayList(employees.get(random.nextInt(employees.size()))));
+            s.setPets(new ArrayList<>(c.getPets()));
+            schedules.add(s);
+        }
+        ScheduleService scheduleService = context.getBean(ScheduleService.class);
+        for (List<Schedule> chunk : Lists.partition(schedules, CHUNK_SIZE)) {
+            // random slots can double-book an employee or pet; those schedules are simply left out
+            scheduleService.saveAll(chunk, (index, exception) -> {});
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Cycles through the customers so consecutive invocations do not read the same rows.
+     */
+    public long nextCustomerId() {
+        next = (next + 1) % customerIds.size();
+        return customerIds.get(next);
+    }
+}
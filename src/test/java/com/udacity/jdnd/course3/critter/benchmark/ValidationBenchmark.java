@@ -0,0 +1,98 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.entity.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.exceptions.MissingInfoException;
+import com.udacity.jdnd.course3.critter.request.EmployeeRequestDTO;
+import com.udacity.jdnd.course3.critter.request.ScheduleRequest;
+import com.udacity.jdnd.course3.critter.service.ValidationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ValidationService with the reflective implementation it replaced, on the two DTOs
+ * validated by the hot endpoints (schedule creation and availability search).
+ *
+ * Run with -prof gc to compare allocation per operation as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidationBenchmark {
+
+    private final ValidationService validationService = new ValidationService();
+
+    private ScheduleRequest scheduleRequest;
+
+    private EmployeeRequestDTO employeeRequestDTO;
+
+    @Setup
+    public void createRequests() {
+        scheduleRequest = new ScheduleRequest();
+        scheduleRequest.setDate(LocalDate.of(2019, 12, 25));
+        scheduleRequest.setEmployeeIds(Lists.newArrayList(1L, 2L));
+        scheduleRequest.setPetIds(Lists.newArrayList(3L));
+        scheduleRequest.setActivities(Sets.newHashSet(EmployeeSkill.PETTING));
+
+        employeeRequestDTO = new EmployeeRequestDTO();
+        employeeRequestDTO.setDate(LocalDate.of(2019, 12, 25));
+        employeeRequestDTO.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+    }
+
+    @Benchmark
+    public void compiledScheduleRequest() {
+        validationService.validatePOJOAttributesNotNullOrEmpty(scheduleRequest);
+    }
+
+    @Benchmark
+    public void reflectiveScheduleRequest() {
+        reflectiveValidate(scheduleRequest);
+    }
+
+    @Benchmark
+    public void compiledEmployeeRequestDTO() {
+        validationService.validatePOJOAttributesNotNullOrEmpty(employeeRequestDTO);
+    }
+
+    @Benchmark
+    public void reflectiveEmployeeRequestDTO() {
+        reflectiveValidate(employeeRequestDTO);
+    }
+
+    /**
+     * The previous ValidationService implementation, kept as the baseline.
+     */
+    private static void reflectiveValidate(Object pojo) throws MissingInfoException {
+        String missing = "";
+        Method[] methods = pojo.getClass().getMethods();
+        for (Method method : methods) {
+            try {
+                if (method.getName().startsWith("get")) {
+                    Object o = method.invoke(pojo);
+                    if ((o == null) ||
+                            (o instanceof List && ((List) o).size() == 0) ||
+                            (o instanceof Set && ((Set) o).size() == 0)) {
+                        String name = method.getName().substring(3);
+                        name = name.substring(0, 1).toUpperCase() + name.substring(1);
+                        missing += (missing.length() > 0) ? ", " + name : name;
+                    }
+                }
+            } catch (IllegalAccessException | InvocationTargetException exception) {
+                System.out.println(exception.getMessage());
+            }
+        }
+        if (missing.length() > 0) {
+            throw new MissingInfoException("Parameters of missing requests: " + missing + ".");
+        }
+    }
+}